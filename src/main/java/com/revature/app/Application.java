@@ -4,9 +4,26 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.revature.controller.AccountController;
+import com.revature.controller.AdminController;
 import com.revature.controller.ClientController;
 import com.revature.controller.Controller;
 import com.revature.controller.ExceptionController;
+import com.revature.controller.MetricsController;
+import com.revature.service.AccountService;
+import com.revature.service.ClientService;
+import com.revature.util.ConcurrencyLimiter;
+import com.revature.util.ConnectionTracker;
+import com.revature.util.ConnectionUtil;
+import com.revature.util.HttpRequestEvent;
+import com.revature.util.IdFilter;
+import com.revature.util.JsonUtil;
+import com.revature.util.RequestContext;
+import com.revature.util.RequestMetrics;
+import com.revature.util.RequestScope;
+import com.revature.util.Threads;
+import com.revature.util.VirtualThreadPool;
+
+import org.eclipse.jetty.server.Server;
 
 import io.javalin.Javalin;
 
@@ -17,15 +34,68 @@ public class Application {
 	
 	public static void main(String[] args) {
 		
-		app = Javalin.create();
+		ConnectionUtil.configure(); // Open the connection pool once, before we start taking requests
+		ConnectionTracker.start();
+		
+		// Load every client and account id into the id filters (and reload them every so often to forget deleted ones)
+		ClientService clientService = new ClientService();
+		AccountService accountService = new AccountService();
+		IdFilter.startRebuilding(() -> {
+			clientService.rebuildIdFilter();
+			accountService.rebuildIdFilter();
+		});
+		
+		JsonUtil.configure(); // So any ctx.json() uses the same writers as JsonUtil.json()
+		app = Javalin.create(config -> {
+			if (Threads.useVirtualThreads()) {
+				config.server(() -> new Server(new VirtualThreadPool("jetty")));
+			}
+		});
+		
+		app.events(event -> {
+			event.serverStopped(IdFilter::stopRebuilding);
+			event.serverStopped(ConnectionUtil::shutdown);
+			event.serverStopped(ConnectionTracker::stop);
+		});
 		
 		app.before(ctx -> {
 			String URI = ctx.req.getRequestURI();
 			String httpMethod = ctx.req.getMethod();
 			logger.info(httpMethod + " request to endpoint " + URI + " received");
+			RequestScope.begin(ctx);
+			RequestMetrics.begin(ctx);
+			HttpRequestEvent.begin(ctx); // Only if a Flight Recorder recording wants it
+			
+			// Turn the request away straight away if too many are in already (a 503, the handler doesn't run)
+			ConcurrencyLimiter.admit(ctx);
+		});
+		
+		// Runs on whichever thread finished the request (see JdbcExecutor), so everything comes from ctx
+		app.after(ctx -> {
+			// Part of the answer came from the cache because the database failed (see StaleRefresher)
+			RequestContext current = RequestScope.requestContext(ctx);
+			if (current != null && current.isStale()) {
+				ctx.header("Warning", "110 - \"Response is Stale\"");
+				ctx.header("X-Stale-Seconds", String.valueOf(current.getStaleAgeSeconds()));
+			}
+			
+			// Commit everything the request did in one go (or roll it all back if it failed)
+			// and hand the connection back to the pool. Already done for requests that ran on a JdbcExecutor
+			try {
+				RequestScope.finish(ctx);
+			} finally {
+				ConcurrencyLimiter.release(ctx); // How long it took teaches the limiter how many to let in
+				HttpRequestEvent.end(ctx);
+				RequestContext request = RequestScope.end(ctx);
+				if (request != null) {
+					RequestMetrics.end(ctx, request);
+					logger.debug("{} borrowed {} connection(s)", request, request.getConnectionsAcquired());
+				}
+			}
 		});
 		
-		mapControllers(new AccountController(), new ExceptionController(), new ClientController());
+		mapControllers(new AccountController(), new ExceptionController(), new ClientController(), new AdminController(),
+				new MetricsController());
 		
 		app.start(7000);
 		
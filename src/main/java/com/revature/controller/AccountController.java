@@ -1,15 +1,25 @@
 package com.revature.controller;
 
-import java.util.List;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.revature.dto.AccountDTO;
-import com.revature.dto.MessageDTO;
+import com.revature.dto.AccountQueryDTO;
+import com.revature.dto.PageDTO;
+import com.revature.exceptions.AccountNotFoundException;
+import com.revature.exceptions.BadParameterException;
+import com.revature.exceptions.NotClientsAccountException;
+import com.revature.exceptions.UpdateAccountException;
 import com.revature.model.Account;
 import com.revature.service.AccountService;
 import com.revature.service.ClientService;
+import com.revature.util.ConfigUtil;
+import com.revature.util.JdbcExecutor;
+import com.revature.util.JsonArrayStream;
+import com.revature.util.JsonUtil;
+import com.revature.util.PageUtil;
+import com.revature.util.RateLimiter;
+import com.revature.util.ResponseCache;
 
 import io.javalin.Javalin;
 import io.javalin.http.Handler;
@@ -20,34 +30,77 @@ public class AccountController implements Controller {
 
 	private AccountService accountService;
 	private ClientService clientService;
+	private ResponseCache responseCache;
+	private JdbcExecutor reads;
+	private JdbcExecutor writes;
+	private JdbcExecutor exports;
+	private RateLimiter listLimit;
+	private RateLimiter getLimit;
+	private RateLimiter addLimit;
+	private RateLimiter updateLimit;
+	private RateLimiter deleteLimit;
+	
+	// The delete responses never change, so they're encoded once
+	private static final byte[] deletedBody = JsonUtil.toJsonBytes("Account was successfully deleted");
+	private static final byte[] notDeletedBody = JsonUtil.toJsonBytes("Failed to delete account");
 	
 	public AccountController() {
 		this.accountService = new AccountService();
 		this.clientService = new ClientService();
+		this.responseCache = ResponseCache.shared();
+		this.reads = JdbcExecutor.reads();
+		this.writes = JdbcExecutor.writes();
+		this.exports = JdbcExecutor.exports();
+		
+		// Requests a second for each client and each caller, and how many may come at once, per route
+		// (account_list_per_second ...). account_reads_* and account_writes_* set what the routes default to
+		int readsPerSecond = ConfigUtil.getInt("account_reads_per_second", 50);
+		int readsBurst = ConfigUtil.getInt("account_reads_burst", 100);
+		int writesPerSecond = ConfigUtil.getInt("account_writes_per_second", 10);
+		int writesBurst = ConfigUtil.getInt("account_writes_burst", 20);
+		this.listLimit = RateLimiter.forRoute("account_list", readsPerSecond, readsBurst);
+		this.getLimit = RateLimiter.forRoute("account_get", readsPerSecond, readsBurst);
+		this.addLimit = RateLimiter.forRoute("account_add", writesPerSecond, writesBurst);
+		this.updateLimit = RateLimiter.forRoute("account_update", writesPerSecond, writesBurst);
+		this.deleteLimit = RateLimiter.forRoute("account_delete", writesPerSecond, writesBurst);
 	}
 	
 	private Handler getAllAccountsOfClient = ctx -> {
 		
-		String amtGreaterThan = ctx.queryParam("amountGreaterThan");
-		String amtLessThan = ctx.queryParam("amountLessThan");
+		AccountQueryDTO query = new AccountQueryDTO();
+		query.setAmountGreaterThan(ctx.queryParam("amountGreaterThan"));
+		query.setAmountLessThan(ctx.queryParam("amountLessThan"));
+		query.setAmountAtLeast(ctx.queryParam("amountAtLeast"));
+		query.setAmountAtMost(ctx.queryParam("amountAtMost"));
+		query.setAccountType(ctx.queryParam("accountType"));
+		query.setSort(ctx.queryParam("sort"));
 
 		String clientId = ctx.pathParam("clientid");
 		
-		clientService.getClientById(clientId); // Check if client exists
-		
-		List<Account> accountList;
-		if (amtGreaterThan != null && amtLessThan != null) { // If both parameters are provided
-			accountList = accountService.getAllAccountsOfClient(clientId, amtGreaterThan, amtLessThan);
-		} else if (amtGreaterThan == null && amtLessThan != null) { // If only less than param provided
-			accountList = accountService.getAllAccountsOfClientLessThan(clientId, amtLessThan);
-		} else if (amtGreaterThan != null && amtLessThan == null) { // If only greater than param provided
-			accountList = accountService.getAllAccountsOfClientGreaterThan(clientId, amtGreaterThan);
-		} else { // (amtGreaterThan == null && amtLessThan == null) // If both params are missing
-			accountList = accountService.getAllAccountsOfClient(clientId);
+		// ?stream=true is for exports: every matching account, written out row by row as the database returns them.
+		// It holds a connection until the client has it all, so it takes an export thread
+		if ("true".equals(ctx.queryParam("stream"))) {
+			exports.stream(ctx, () -> {
+				clientService.getClientById(clientId); // Check if client exists
+				JsonArrayStream stream = new JsonArrayStream(ctx);
+				accountService.streamAccountsOfClient(clientId, query, stream::write);
+				stream.finish();
+				return null;
+			});
+			return;
 		}
 		
-		ctx.json(accountList);
-		ctx.status(200);
+		// Keyset paged, ?cursor= takes the X-Next-Cursor of the previous page and ?limit= the page size
+		String cursor = ctx.queryParam("cursor");
+		String limit = ctx.queryParam("limit");
+		reads.respond(ctx, () -> {
+			clientService.getClientById(clientId); // Check if client exists
+			PageDTO<Account> page = accountService.getAccountsOfClientPage(clientId, query, cursor, limit);
+			
+			PageUtil.setNextCursor(ctx, page);
+			ctx.status(200);
+			return page.getItems();
+		});
 	};
 	
 	private Handler getAccountById = ctx -> {
@@ -55,22 +108,34 @@ public class AccountController implements Controller {
 		String clientId = ctx.pathParam("clientid");
 		String accountId = ctx.pathParam("accountid");
 		
-		clientService.getClientById(clientId); // Check if client exists
-		Account account = accountService.getAccountById(clientId, accountId);
-		
-		ctx.json(account);
-		ctx.status(200);
+		reads.respond(ctx, () -> {
+			Account account;
+			try {
+				account = accountService.getAccountById(clientId, accountId);
+			} catch (BadParameterException | AccountNotFoundException | NotClientsAccountException e) {
+				// An account that was found must belong to an existing client, so we only need to check
+				// the client when the lookup failed (a missing client still gets its own error first)
+				clientService.getClientById(clientId);
+				throw e;
+			}
+			
+			ctx.status(200);
+			return account;
+		});
 	};
 		
 	private Handler addAccount = ctx -> {
 		String clientId = ctx.pathParam("clientid");
 		AccountDTO accInfo = ctx.bodyAsClass(AccountDTO.class);
-		clientService.getClientById(clientId); // Check if client exists
+		writes.respond(ctx, () -> {
+			clientService.getClientById(clientId); // Check if client exists
 			
-		Account insertedAccount = accountService.addAccount(clientId, accInfo);
-		logger.info("Successfully created account with id: " + insertedAccount.getId());
-		ctx.status(201); // 201 CREATED
-		ctx.json(insertedAccount);		
+			Account insertedAccount = accountService.addAccount(clientId, accInfo);
+			responseCache.invalidateClient(clientId);
+			logger.info("Successfully created account with id: " + insertedAccount.getId());
+			ctx.status(201); // 201 CREATED
+			return insertedAccount;
+		});
 
 	};
 	
@@ -78,13 +143,21 @@ public class AccountController implements Controller {
 		String clientId = ctx.pathParam("clientid");
 		String accountId = ctx.pathParam("accountid");
 		AccountDTO accInfo = ctx.bodyAsClass(AccountDTO.class);
-		
-		accountService.getAccountById(clientId, accountId); // Check if client exists
-		
-		Account updatedAccount = accountService.updateAccount(clientId, accountId, accInfo);
-		logger.info("Successfully updated account with id: " + accountId);
-		ctx.status(201); // 201 CREATED
-		ctx.json(updatedAccount);
+		writes.respond(ctx, () -> {
+			Account updatedAccount;
+			try {
+				updatedAccount = accountService.updateAccount(clientId, accountId, accInfo);
+			} catch (UpdateAccountException e) {
+				// A missing account (or someone else's) is still reported ahead of a bad request body
+				accountService.getAccountById(clientId, accountId);
+				throw e;
+			}
+			
+			responseCache.invalidateClient(clientId);
+			logger.info("Successfully updated account with id: " + accountId);
+			ctx.status(201); // 201 CREATED
+			return updatedAccount;
+		});
 	};
 	
 	private Handler deleteAccount = ctx -> {
@@ -92,29 +165,29 @@ public class AccountController implements Controller {
 		String clientId = ctx.pathParam("clientid");
 		String accountId = ctx.pathParam("accountid");
 		
-		accountService.getAccountById(clientId, accountId); // Check if client exists
-		
-		boolean didDelete = accountService.deleteAccount(clientId, accountId);
-		
-		MessageDTO message = new MessageDTO();
-		if (didDelete) {
-			logger.info("Successfully deleted account with id: " + accountId);
-			message.setMessage("Account was successfully deleted");
-			ctx.json(message.getMessage()).status(200);
-		} else { // Should most likely never get here, but just in case give 400 status instead of arbitrary 500 status
-			message.setMessage("Failed to delete account");
-			ctx.json(message.getMessage()).status(400);
-		}
+		writes.respond(ctx, () -> {
+			boolean didDelete = accountService.deleteAccount(clientId, accountId);
+			responseCache.invalidateClient(clientId);
+			
+			if (didDelete) {
+				logger.info("Successfully deleted account with id: " + accountId);
+				ctx.status(200);
+				return deletedBody;
+			} else { // Should most likely never get here, but just in case give 400 status instead of arbitrary 500 status
+				ctx.status(400);
+				return notDeletedBody;
+			}
+		});
 		
 	};
 	
 	@Override
 	public void mapEndpoints(Javalin app) {
-		app.get("/clients/:clientid/accounts", getAllAccountsOfClient);
-		app.get("/clients/:clientid/accounts/:accountid", getAccountById);
-		app.post("/clients/:clientid/accounts", addAccount);
-		app.put("/clients/:clientid/accounts/:accountid", updateAccount);
-		app.delete("/clients/:clientid/accounts/:accountid", deleteAccount);
+		app.get("/clients/:clientid/accounts", responseCache.cached(listLimit.limited("clientid", getAllAccountsOfClient)));
+		app.get("/clients/:clientid/accounts/:accountid", responseCache.cached(getLimit.limited("clientid", getAccountById)));
+		app.post("/clients/:clientid/accounts", addLimit.limited("clientid", addAccount));
+		app.put("/clients/:clientid/accounts/:accountid", updateLimit.limited("clientid", updateAccount));
+		app.delete("/clients/:clientid/accounts/:accountid", deleteLimit.limited("clientid", deleteAccount));
 	}
 
 }
@@ -0,0 +1,123 @@
+package com.revature.controller;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.revature.dto.CacheStatsDTO;
+import com.revature.exceptions.AdminAccessException;
+import com.revature.util.AccountListCache;
+import com.revature.util.AccountOwnerIndex;
+import com.revature.util.ClientCache;
+import com.revature.util.ConcurrencyLimiter;
+import com.revature.util.ConfigUtil;
+import com.revature.util.ConnectionTracker;
+import com.revature.util.IdFilter;
+import com.revature.util.JdbcExecutor;
+import com.revature.util.JsonUtil;
+import com.revature.util.RateLimiter;
+import com.revature.util.ResponseCache;
+import com.revature.util.SingleFlight;
+import com.revature.util.StatementCache;
+
+import io.javalin.Javalin;
+import io.javalin.http.Handler;
+
+/*
+ * Stats for the pools, caches and limiters. They show internals (who holds which connection, what's cached), so
+ * they're only served to requests from this machine, or from anywhere with "Authorization: Bearer <admin_token>"
+ * when the admin_token environment variable is set. Behind a reverse proxy on the same machine every request looks
+ * local, so set admin_token there. MetricsController puts /metrics behind the same check
+ */
+public class AdminController implements Controller {
+
+	private static final String adminToken = System.getenv("admin_token");
+
+	static final Handler checkAccess = ctx -> {
+		
+		if (adminToken != null && !adminToken.trim().equals("")) {
+			String expected = "Bearer " + adminToken.trim();
+			String given = ctx.header("Authorization");
+			if (given == null || !MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+					given.trim().getBytes(StandardCharsets.UTF_8))) {
+				throw new AdminAccessException("The admin endpoints and /metrics need a valid admin token");
+			}
+		} else if (!isLoopback(ctx.req.getRemoteAddr())) {
+			throw new AdminAccessException("The admin endpoints and /metrics can only be used from the server itself");
+		}
+	};
+	
+	private Handler getConnectionStats = ctx -> {
+		
+		JsonUtil.json(ctx, ConnectionTracker.getStats());
+		ctx.status(200);
+	};
+	
+	private Handler getStatementCacheStats = ctx -> {
+		
+		JsonUtil.json(ctx, StatementCache.getStats());
+		ctx.status(200);
+	};
+	
+	private Handler getCacheStats = ctx -> {
+		
+		List<CacheStatsDTO> caches = new ArrayList<>();
+		caches.add(ClientCache.shared().getStats());
+		caches.add(AccountListCache.shared().getStats());
+		caches.add(AccountOwnerIndex.shared().getStats());
+		caches.add(IdFilter.clients().getStats());
+		caches.add(IdFilter.accounts().getStats());
+		caches.add(ResponseCache.shared().getStats());
+		
+		JsonUtil.json(ctx, caches);
+		ctx.status(200);
+	};
+	
+	private Handler getCoalescingStats = ctx -> {
+		
+		JsonUtil.json(ctx, SingleFlight.getAllStats());
+		ctx.status(200);
+	};
+	
+	private Handler getExecutorStats = ctx -> {
+		
+		JsonUtil.json(ctx, JdbcExecutor.getAllStats());
+		ctx.status(200);
+	};
+	
+	private Handler getLimiterStats = ctx -> {
+		
+		JsonUtil.json(ctx, ConcurrencyLimiter.getAllStats());
+		ctx.status(200);
+	};
+	
+	private Handler getRateLimitStats = ctx -> {
+		
+		JsonUtil.json(ctx, RateLimiter.getAllStats());
+		ctx.status(200);
+	};
+	
+	static boolean isLoopback(String address) {
+		try {
+			return address != null && InetAddress.getByName(address).isLoopbackAddress(); // An IP literal, no DNS lookup
+		} catch (UnknownHostException e) {
+			return false;
+		}
+	}
+	
+	@Override
+	public void mapEndpoints(Javalin app) {
+		app.before("/admin/*", checkAccess);
+		app.get("/admin/connections", getConnectionStats);
+		app.get("/admin/statements", getStatementCacheStats);
+		app.get("/admin/caches", getCacheStats);
+		app.get("/admin/coalescing", getCoalescingStats);
+		app.get("/admin/executors", getExecutorStats);
+		app.get("/admin/limits", getLimiterStats);
+		app.get("/admin/rate-limits", getRateLimitStats);
+	}
+
+}
@@ -1,19 +1,30 @@
 package com.revature.controller;
 
+import java.io.IOException;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.revature.dto.GetClientDTO;
-import com.revature.dto.MessageDTO;
+import com.revature.dto.PageDTO;
 import com.revature.dto.PostClientDTO;
-import com.revature.model.Account;
+import com.revature.exceptions.BadParameterException;
+import com.revature.exceptions.DatabaseException;
 import com.revature.model.Client;
-import com.revature.service.AccountService;
 import com.revature.service.ClientService;
+import com.revature.util.ConfigUtil;
+import com.revature.util.JdbcExecutor;
+import com.revature.util.JsonArrayStream;
+import com.revature.util.JsonStreamUtil;
+import com.revature.util.JsonUtil;
+import com.revature.util.PageUtil;
+import com.revature.util.RateLimiter;
+import com.revature.util.ResponseCache;
 
 import io.javalin.Javalin;
+import io.javalin.http.Context;
 import io.javalin.http.Handler;
 
 public class ClientController implements Controller {
@@ -21,82 +32,178 @@ public class ClientController implements Controller {
 	private Logger logger = LoggerFactory.getLogger(AccountController.class);
 
 	private ClientService clientService;
-	private AccountService accountService;
+	private ResponseCache responseCache;
+	private JdbcExecutor reads;
+	private JdbcExecutor writes;
+	private JdbcExecutor exports;
+	private RateLimiter listLimit;
+	private RateLimiter getLimit;
+	private RateLimiter addLimit;
+	private RateLimiter updateLimit;
+	private RateLimiter deleteLimit;
+	
+	// The delete responses never change, so they're encoded once
+	private static final byte[] deletedBody = JsonUtil.toJsonBytes("Client was successfully deleted");
+	private static final byte[] notDeletedBody = JsonUtil.toJsonBytes("Failed to delete client");
+	
+	// How many clients (with their accounts) are loaded and written per round trip for ?include=accounts
+	private static final int includeChunkSize = ConfigUtil.getInt("clients_include_chunk_size", 500);
 	
 	public ClientController() {
 		this.clientService = new ClientService();
-		this.accountService = new AccountService();
+		this.responseCache = ResponseCache.shared();
+		this.reads = JdbcExecutor.reads();
+		this.writes = JdbcExecutor.writes();
+		this.exports = JdbcExecutor.exports();
+		
+		// Requests a second for each client and each caller, and how many may come at once, per route
+		// (client_list_per_second ...). client_reads_* and client_writes_* set what the routes default to
+		int readsPerSecond = ConfigUtil.getInt("client_reads_per_second", 50);
+		int readsBurst = ConfigUtil.getInt("client_reads_burst", 100);
+		int writesPerSecond = ConfigUtil.getInt("client_writes_per_second", 10);
+		int writesBurst = ConfigUtil.getInt("client_writes_burst", 20);
+		this.listLimit = RateLimiter.forRoute("client_list", readsPerSecond, readsBurst);
+		this.getLimit = RateLimiter.forRoute("client_get", readsPerSecond, readsBurst);
+		this.addLimit = RateLimiter.forRoute("client_add", writesPerSecond, writesBurst);
+		this.updateLimit = RateLimiter.forRoute("client_update", writesPerSecond, writesBurst);
+		this.deleteLimit = RateLimiter.forRoute("client_delete", writesPerSecond, writesBurst);
 	}
 	
 	private Handler getAllClients = ctx -> {
 		
-		List<GetClientDTO> clientList = clientService.getAllClients();
+		String include = ctx.queryParam("include");
+		if (include != null) {
+			if (!include.equals("accounts")) {
+				throw new BadParameterException("The only thing clients can include is accounts. User provided: " + include);
+			}
+			exports.stream(ctx, () -> {
+				streamClientsWithAccounts(ctx);
+				return null;
+			});
+			return;
+		}
 		
-		ctx.json(clientList);
-		ctx.status(200);
+		// ?stream=true is for exports: every client, written out row by row as the database returns them.
+		// Both streamed responses hold a connection until the client has it all, so they take an export thread
+		if ("true".equals(ctx.queryParam("stream"))) {
+			exports.stream(ctx, () -> {
+				JsonArrayStream stream = new JsonArrayStream(ctx);
+				clientService.streamAllClients(stream::write);
+				stream.finish();
+				return null;
+			});
+			return;
+		}
+		
+		// Keyset paged, ?cursor= takes the X-Next-Cursor of the previous page and ?limit= the page size
+		String cursor = ctx.queryParam("cursor");
+		String limit = ctx.queryParam("limit");
+		reads.respond(ctx, () -> {
+			PageDTO<GetClientDTO> page = clientService.getClientsPage(cursor, limit);
+			
+			PageUtil.setNextCursor(ctx, page);
+			ctx.status(200);
+			return page.getItems();
+		});
 		
 	};
 	
-	private Handler getClientById = ctx -> {
+	/*
+	 * Every client with its accounts, two queries per chunk of clients instead of one query per client.
+	 * Each chunk is written out and dropped before the next one is loaded, so only one chunk is ever in memory.
+	 * All the chunks run in the request's transaction, so they all see the same snapshot of the data
+	 */
+	private void streamClientsWithAccounts(Context ctx) throws DatabaseException, IOException {
 		
-		String clientId = ctx.pathParam("id");
-		GetClientDTO clientDTO = clientService.getClientById(clientId);
-		List<Account> accountList = accountService.getAllAccountsOfClient(clientId);
+		// Loaded before anything is written so a database problem still gets a normal error response
+		List<Client> chunk = clientService.getClientsWithAccounts(0, includeChunkSize);
 		
-		Client clientWithAccounts = new Client(clientDTO.getId(), clientDTO.getFirstName(), clientDTO.getLastName());
-		clientWithAccounts.setAccounts(accountList);
+		try (JsonGenerator generator = JsonStreamUtil.start(ctx, 200)) {
+			generator.writeStartArray();
+			while (true) {
+				for (Client client : chunk) {
+					JsonUtil.writeValue(generator, client);
+				}
+				generator.flush();
+				
+				if (chunk.size() < includeChunkSize) {
+					break;
+				}
+				int lastClientId = chunk.get(chunk.size() - 1).getId();
+				chunk = clientService.getClientsWithAccounts(lastClientId, includeChunkSize);
+			}
+			generator.writeEndArray();
+		}
 		
-		ctx.json(clientWithAccounts);
-		ctx.status(200);
+	}
+	
+	private Handler getClientById = ctx -> {
+		
+		String clientId = ctx.pathParam("id");
+		reads.respond(ctx, () -> {
+			Client clientWithAccounts = clientService.getClientWithAccounts(clientId);
+			
+			ctx.status(200);
+			return clientWithAccounts;
+		});
 	};
 	
 	private Handler addClient = ctx -> {
 		
 		PostClientDTO clientDTO = ctx.bodyAsClass(PostClientDTO.class);
-		Client client = clientService.addClient(clientDTO);
-		logger.info("Successfully created account with id: " + client.getId());
-		ctx.json(client);
-		ctx.status(201);
+		writes.respond(ctx, () -> {
+			Client client = clientService.addClient(clientDTO);
+			responseCache.invalidateClientList();
+			logger.info("Successfully created account with id: " + client.getId());
+			ctx.status(201);
+			return client;
+		});
 	};
 	
 	private Handler updateClient = ctx -> {
 		
 		String clientId = ctx.pathParam("id");
 		PostClientDTO clientDTO = ctx.bodyAsClass(PostClientDTO.class);
-		GetClientDTO updatedClientDTO = clientService.updateClient(clientId, clientDTO);
-		List<Account> accountList = accountService.getAllAccountsOfClient(clientId);
-		
-		Client updatedClientWithAccounts = new Client(updatedClientDTO.getId(), updatedClientDTO.getFirstName(), updatedClientDTO.getLastName());
-		updatedClientWithAccounts.setAccounts(accountList);
-		logger.info("Successfully updated account with id: " + clientId);
-		ctx.json(updatedClientWithAccounts);
-		ctx.status(200);
+		writes.respond(ctx, () -> {
+			clientService.updateClient(clientId, clientDTO);
+			responseCache.invalidateClient(clientId);
+			responseCache.invalidateClientList();
+			
+			// Same transaction as the update, so this sees the new names along with the client's accounts
+			Client updatedClientWithAccounts = clientService.getClientWithAccounts(clientId);
+			logger.info("Successfully updated account with id: " + clientId);
+			ctx.status(200);
+			return updatedClientWithAccounts;
+		});
 	};
 	
 	private Handler deleteClient = ctx -> {
 		
 		String clientId = ctx.pathParam("id");
-		boolean didDelete = clientService.deleteClient(clientId);
-		
-		MessageDTO message = new MessageDTO();
-		if (didDelete) {
-			logger.info("Successfully deleted account with id: " + clientId);
-			message.setMessage("Client was successfully deleted");
-			ctx.json(message.getMessage()).status(200);
-		} else { // Should most likely never get here, but just in case give 400 status instead of arbitrary 500 status
-			message.setMessage("Failed to delete client");
-			ctx.json(message.getMessage()).status(400);
-		}
+		writes.respond(ctx, () -> {
+			boolean didDelete = clientService.deleteClient(clientId);
+			responseCache.invalidateClient(clientId);
+			responseCache.invalidateClientList();
+			
+			if (didDelete) {
+				logger.info("Successfully deleted account with id: " + clientId);
+				ctx.status(200);
+				return deletedBody;
+			} else { // Should most likely never get here, but just in case give 400 status instead of arbitrary 500 status
+				ctx.status(400);
+				return notDeletedBody;
+			}
+		});
 		
 	};
 	
 	@Override
 	public void mapEndpoints(Javalin app) {
-		app.get("/clients", getAllClients);
-		app.get("/clients/:id", getClientById);
-		app.post("/clients", addClient);
-		app.put("/clients/:id", updateClient);
-		app.delete("/clients/:id", deleteClient);
+		app.get("/clients", responseCache.cached(listLimit.limited(null, getAllClients)));
+		app.get("/clients/:id", responseCache.cached(getLimit.limited("id", getClientById)));
+		app.post("/clients", addLimit.limited(null, addClient));
+		app.put("/clients/:id", updateLimit.limited("id", updateClient));
+		app.delete("/clients/:id", deleteLimit.limited("id", deleteClient));
 	}
 
 }
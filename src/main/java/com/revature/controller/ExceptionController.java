@@ -3,16 +3,19 @@ package com.revature.controller;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.revature.dto.MessageDTO;
 import com.revature.exception.AddAccountException;
 import com.revature.exceptions.AccountNotFoundException;
+import com.revature.exceptions.AdminAccessException;
 import com.revature.exceptions.AddClientException;
 import com.revature.exceptions.BadParameterException;
 import com.revature.exceptions.ClientNotFoundException;
 import com.revature.exceptions.DatabaseException;
 import com.revature.exceptions.NotClientsAccountException;
+import com.revature.exceptions.ServerBusyException;
+import com.revature.exceptions.TooManyRequestsException;
 import com.revature.exceptions.UpdateAccountException;
 import com.revature.exceptions.UpdateClientException;
+import com.revature.util.JsonUtil;
 
 import io.javalin.Javalin;
 import io.javalin.http.ExceptionHandler;
@@ -27,55 +30,74 @@ public class ExceptionController implements Controller {
 	private ExceptionHandler<BadParameterException> badParameterExceptionHandler = (e, ctx) -> {
 		logger.warn("A user provided a bad parameter. Exception message is: \n" + e.getMessage());
 		ctx.status(400);
-		ctx.json(new MessageDTO(e.getMessage()));
+		JsonUtil.message(ctx, e.getMessage());
 	};
 	
 	private ExceptionHandler<DatabaseException> databaseExceptionHandler = (e, ctx) -> {
 		logger.error("Could not connect to database. Exception message is \n" + e.getMessage());
 		ctx.status(500);
-		ctx.json(new MessageDTO(e.getMessage()));
+		JsonUtil.message(ctx, e.getMessage());
 	};
 	
 	private ExceptionHandler<AddClientException> addClientExceptionHandler = (e, ctx) -> {
 		logger.warn("Could not add client. Exception message is \n" + e.getMessage());
 		ctx.status(400);
-		ctx.json(new MessageDTO(e.getMessage()));
+		JsonUtil.message(ctx, e.getMessage());
 	};
 	
 	private ExceptionHandler<ClientNotFoundException> clientNotFoundExceptionHandler = (e, ctx) -> {
 		logger.warn("A user tried to get or update information of a client that doesn't exist. Exception message is: \n" + e.getMessage());
 		ctx.status(404); //
-		ctx.json(new MessageDTO(e.getMessage()));
+		JsonUtil.message(ctx, e.getMessage());
 	};
 	
 	private ExceptionHandler<AccountNotFoundException> accountNotFoundExceptionHandler = (e, ctx) -> {
 		logger.warn("A user tried to get or update information of an account that doesn't exist. Exception message is: \n" + e.getMessage());
 		ctx.status(404); //
-		ctx.json(new MessageDTO(e.getMessage()));
+		JsonUtil.message(ctx, e.getMessage());
 	};
 	
 	private ExceptionHandler<UpdateClientException> UpdateClientExceptionHandler = (e, ctx) -> {
 		logger.warn("Could not update client. Exception message is \n" + e.getMessage());
 		ctx.status(400);
-		ctx.json(new MessageDTO(e.getMessage()));
+		JsonUtil.message(ctx, e.getMessage());
 	};
 	
 	private ExceptionHandler<NotClientsAccountException> NotClientsAccountExceptionHandler = (e, ctx) -> {
 		logger.warn("Client does not own that account. Exception message is \n" + e.getMessage());
 		ctx.status(400);
-		ctx.json(new MessageDTO(e.getMessage()));
+		JsonUtil.message(ctx, e.getMessage());
 	};
 	
 	private ExceptionHandler<AddAccountException> AddAccountExceptionHandler = (e, ctx) -> {
 		logger.warn("Failed to add account. Exception message is \n" + e.getMessage());
 		ctx.status(400);
-		ctx.json(new MessageDTO(e.getMessage()));
+		JsonUtil.message(ctx, e.getMessage());
 	};
 	
 	private ExceptionHandler<UpdateAccountException> UpdateAccountExceptionHandler = (e, ctx) -> {
 		logger.warn("Failed to update account. Exception message is \n" + e.getMessage());
 		ctx.status(400);
-		ctx.json(new MessageDTO(e.getMessage()));
+		JsonUtil.message(ctx, e.getMessage());
+	};
+	
+	private ExceptionHandler<ServerBusyException> serverBusyExceptionHandler = (e, ctx) -> {
+		logger.warn("Turned a request away. Exception message is \n" + e.getMessage());
+		ctx.status(503);
+		ctx.header("Retry-After", "1");
+		JsonUtil.message(ctx, e.getMessage());
+	};
+	
+	private ExceptionHandler<TooManyRequestsException> tooManyRequestsExceptionHandler = (e, ctx) -> {
+		logger.warn("Rate limited a request. Exception message is \n" + e.getMessage());
+		ctx.status(429); // RateLimiter already set Retry-After
+		JsonUtil.message(ctx, e.getMessage());
+	};
+	
+	private ExceptionHandler<AdminAccessException> adminAccessExceptionHandler = (e, ctx) -> {
+		logger.warn("Refused an admin request from " + ctx.ip() + ". Exception message is \n" + e.getMessage());
+		ctx.status(403);
+		JsonUtil.message(ctx, e.getMessage());
 	};
 	
 	@Override
@@ -89,6 +111,9 @@ public class ExceptionController implements Controller {
 		app.exception(NotClientsAccountException.class, NotClientsAccountExceptionHandler);
 		app.exception(AddAccountException.class, AddAccountExceptionHandler);
 		app.exception(UpdateAccountException.class, UpdateAccountExceptionHandler);
+		app.exception(ServerBusyException.class, serverBusyExceptionHandler);
+		app.exception(TooManyRequestsException.class, tooManyRequestsExceptionHandler);
+		app.exception(AdminAccessException.class, adminAccessExceptionHandler);
 	}
 
 }
@@ -0,0 +1,32 @@
+package com.revature.controller;
+
+import com.revature.util.QueryMetrics;
+import com.revature.util.RequestMetrics;
+
+import io.javalin.Javalin;
+import io.javalin.http.Handler;
+
+public class MetricsController implements Controller {
+
+	/*
+	 * Everything in Prometheus' text exposition format, for a Prometheus server (or anything that speaks it) to scrape.
+	 * Route timings and slow repository methods say a lot about the internals, so it takes the same access as /admin
+	 */
+	private Handler getMetrics = ctx -> {
+		
+		StringBuilder metrics = new StringBuilder();
+		RequestMetrics.writeTo(metrics);
+		QueryMetrics.writeTo(metrics);
+		
+		ctx.contentType("text/plain; version=0.0.4; charset=utf-8");
+		ctx.result(metrics.toString());
+		ctx.status(200);
+	};
+	
+	@Override
+	public void mapEndpoints(Javalin app) {
+		app.before("/metrics", AdminController.checkAccess);
+		app.get("/metrics", getMetrics);
+	}
+
+}
@@ -0,0 +1,213 @@
+package com.revature.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import com.revature.model.Account;
+
+/*
+ * Describes which of a client's accounts to get: amount bounds (each inclusive or exclusive), account type,
+ * sort order, keyset position and limit. Anything left null isn't filtered on.
+ *
+ * AccountRepository turns a filter into SQL (see AccountQueryCompiler), and apply() runs the exact same filter
+ * over accounts that are already in memory, so a cached list of a client's accounts gives the same answer
+ * the database would.
+ */
+public class AccountFilter {
+
+	public enum Sort {
+
+		ID("id", "id", Comparator.comparingInt(Account::getId)),
+		ID_DESC("-id", "id DESC", Comparator.comparingInt(Account::getId).reversed()),
+		AMOUNT("amount", "amount, id", Comparator.comparingInt(Account::getAmount).thenComparingInt(Account::getId)),
+		AMOUNT_DESC("-amount", "amount DESC, id DESC", Comparator.comparingInt(Account::getAmount).thenComparingInt(Account::getId).reversed());
+
+		private final String param;
+		private final String orderBy;
+		private final Comparator<Account> comparator;
+
+		private Sort(String param, String orderBy, Comparator<Account> comparator) {
+			this.param = param;
+			this.orderBy = orderBy;
+			this.comparator = comparator;
+		}
+
+		// The value of the ?sort= query parameter, null when it isn't one of ours
+		public static Sort fromParam(String param) {
+			for (Sort sort : values()) {
+				if (sort.param.equals(param)) {
+					return sort;
+				}
+			}
+			return null;
+		}
+
+		public String getParam() {
+			return param;
+		}
+
+		String getOrderBy() {
+			return orderBy;
+		}
+
+		// Only sorting by id can continue from an id, the amount sorts have no single column to page on
+		public boolean isById() {
+			return this == ID || this == ID_DESC;
+		}
+
+	}
+
+	private int clientId;
+	private Integer minAmount;
+	private boolean minInclusive;
+	private Integer maxAmount;
+	private boolean maxInclusive;
+	private String accountType;
+	private Sort sort = Sort.ID;
+	private Integer afterId; // Keyset position, only rows after this id in the sort order
+	private Integer limit;
+
+	public AccountFilter() {
+		super();
+	}
+
+	public AccountFilter(int clientId) {
+		this.clientId = clientId;
+	}
+
+	/*
+	 * The filter applied to accounts already in memory. The accounts are assumed to all belong to the filter's client
+	 * (Account doesn't know its client). Account types are compared ignoring case, the same way the database's
+	 * default collation compares them
+	 */
+	public List<Account> apply(Collection<Account> accounts) {
+		List<Account> matching = new ArrayList<>();
+		for (Account account : accounts) {
+			if (matches(account)) {
+				matching.add(account);
+			}
+		}
+
+		matching.sort(sort.comparator);
+		if (limit != null && matching.size() > limit) {
+			return new ArrayList<>(matching.subList(0, limit));
+		}
+		return matching;
+	}
+
+	public boolean matches(Account account) {
+		if (afterId != null && (sort == Sort.ID_DESC ? account.getId() >= afterId : account.getId() <= afterId)) {
+			return false;
+		}
+		if (minAmount != null && (minInclusive ? account.getAmount() < minAmount : account.getAmount() <= minAmount)) {
+			return false;
+		}
+		if (maxAmount != null && (maxInclusive ? account.getAmount() > maxAmount : account.getAmount() >= maxAmount)) {
+			return false;
+		}
+		return accountType == null || accountType.equalsIgnoreCase(account.getAccountType());
+	}
+
+	// Nothing but the client, so the query returns every account they have (as long as the limit isn't hit)
+	public boolean coversWholeClient() {
+		return afterId == null && minAmount == null && maxAmount == null && accountType == null;
+	}
+
+	public int getClientId() {
+		return clientId;
+	}
+
+	public void setClientId(int clientId) {
+		this.clientId = clientId;
+	}
+
+	public Integer getMinAmount() {
+		return minAmount;
+	}
+
+	public boolean isMinInclusive() {
+		return minInclusive;
+	}
+
+	public void setMinAmount(Integer minAmount, boolean inclusive) {
+		this.minAmount = minAmount;
+		this.minInclusive = inclusive;
+	}
+
+	public Integer getMaxAmount() {
+		return maxAmount;
+	}
+
+	public boolean isMaxInclusive() {
+		return maxInclusive;
+	}
+
+	public void setMaxAmount(Integer maxAmount, boolean inclusive) {
+		this.maxAmount = maxAmount;
+		this.maxInclusive = inclusive;
+	}
+
+	public String getAccountType() {
+		return accountType;
+	}
+
+	public void setAccountType(String accountType) {
+		this.accountType = accountType;
+	}
+
+	public Sort getSort() {
+		return sort;
+	}
+
+	public void setSort(Sort sort) {
+		this.sort = sort;
+	}
+
+	public Integer getAfterId() {
+		return afterId;
+	}
+
+	public void setAfterId(Integer afterId) {
+		this.afterId = afterId;
+	}
+
+	public Integer getLimit() {
+		return limit;
+	}
+
+	public void setLimit(Integer limit) {
+		this.limit = limit;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(accountType, afterId, clientId, limit, maxAmount, maxInclusive, minAmount, minInclusive, sort);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		AccountFilter other = (AccountFilter) obj;
+		return Objects.equals(accountType, other.accountType) && Objects.equals(afterId, other.afterId)
+				&& clientId == other.clientId && Objects.equals(limit, other.limit)
+				&& Objects.equals(maxAmount, other.maxAmount) && maxInclusive == other.maxInclusive
+				&& Objects.equals(minAmount, other.minAmount) && minInclusive == other.minInclusive
+				&& sort == other.sort;
+	}
+
+	@Override
+	public String toString() {
+		return "AccountFilter [clientId=" + clientId + ", minAmount=" + minAmount + ", minInclusive=" + minInclusive
+				+ ", maxAmount=" + maxAmount + ", maxInclusive=" + maxInclusive + ", accountType=" + accountType
+				+ ", sort=" + sort + ", afterId=" + afterId + ", limit=" + limit + "]";
+	}
+
+}
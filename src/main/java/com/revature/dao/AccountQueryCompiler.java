@@ -0,0 +1,90 @@
+package com.revature.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Turns an AccountFilter into SQL. The SQL only depends on the filter's shape (which parts are set, inclusive or not,
+ * the sort), never on the values, which are all bound as parameters. So there are only a few hundred possible
+ * statements, each is built once and then reused from here, and every one of them gets a long lived entry in
+ * StatementCache instead of being parsed again by the server.
+ *
+ * sql() and bind() have to walk the filter in the same order, so a new filter goes in both.
+ */
+class AccountQueryCompiler {
+
+	private static final Map<Integer, String> sqlByShape = new ConcurrentHashMap<>();
+
+	private AccountQueryCompiler() {
+	}
+
+	static String sql(AccountFilter filter) {
+		return sqlByShape.computeIfAbsent(shapeOf(filter), shape -> compile(filter));
+	}
+
+	// Binds the filter's values to a statement prepared from sql(filter)
+	static void bind(PreparedStatement pstmt, AccountFilter filter) throws SQLException {
+		int parameterIndex = 1;
+		pstmt.setInt(parameterIndex++, filter.getClientId());
+		if (filter.getAfterId() != null) {
+			pstmt.setInt(parameterIndex++, filter.getAfterId());
+		}
+		if (filter.getMinAmount() != null) {
+			pstmt.setInt(parameterIndex++, filter.getMinAmount());
+		}
+		if (filter.getMaxAmount() != null) {
+			pstmt.setInt(parameterIndex++, filter.getMaxAmount());
+		}
+		if (filter.getAccountType() != null) {
+			pstmt.setString(parameterIndex++, filter.getAccountType());
+		}
+		if (filter.getLimit() != null) {
+			pstmt.setInt(parameterIndex++, filter.getLimit());
+		}
+	}
+
+	private static String compile(AccountFilter filter) {
+		StringBuilder sql = new StringBuilder("SELECT id, accountType, amount FROM accounts WHERE client_id = ?");
+		if (filter.getAfterId() != null) {
+			sql.append(filter.getSort() == AccountFilter.Sort.ID_DESC ? " AND id < ?" : " AND id > ?");
+		}
+		if (filter.getMinAmount() != null) {
+			sql.append(filter.isMinInclusive() ? " AND amount >= ?" : " AND amount > ?");
+		}
+		if (filter.getMaxAmount() != null) {
+			sql.append(filter.isMaxInclusive() ? " AND amount <= ?" : " AND amount < ?");
+		}
+		if (filter.getAccountType() != null) {
+			sql.append(" AND accountType = ?");
+		}
+		sql.append(" ORDER BY ").append(filter.getSort().getOrderBy());
+		if (filter.getLimit() != null) {
+			sql.append(" LIMIT ?");
+		}
+		return sql.toString();
+	}
+
+	// One bit for each optional part of the query, plus the sort
+	private static int shapeOf(AccountFilter filter) {
+		int shape = 0;
+		if (filter.getAfterId() != null) {
+			shape |= 1;
+		}
+		if (filter.getMinAmount() != null) {
+			shape |= filter.isMinInclusive() ? 2 | 4 : 2;
+		}
+		if (filter.getMaxAmount() != null) {
+			shape |= filter.isMaxInclusive() ? 8 | 16 : 8;
+		}
+		if (filter.getAccountType() != null) {
+			shape |= 32;
+		}
+		if (filter.getLimit() != null) {
+			shape |= 64;
+		}
+		return shape | filter.getSort().ordinal() << 7;
+	}
+
+}
@@ -1,18 +1,20 @@
 package com.revature.dao;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 import com.revature.dto.AccountDTO;
 import com.revature.exceptions.AccountNotFoundException;
 import com.revature.exceptions.DatabaseException;
 import com.revature.model.Account;
-import com.revature.util.ConnectionUtil;
+import com.revature.util.StatementCache;
+import com.revature.util.UnitOfWork;
 
 public class AccountRepository {
 
@@ -20,36 +22,31 @@ public class AccountRepository {
 	// A good practice might be to handle a transaction over in the service layer. Here is where we might perform
 	// individual database operations
 	
-	// So, I will create a constructor that accepts an external connection object into this DAO instead
-	// and then we'll make use of that
-	private Connection connection;
-	
+	// So every method here uses the connection of the current UnitOfWork (one per request) instead of
+	// opening its own, and the service layer decides when to commit
 	public AccountRepository() {
 		super();
 	}
 	
-	public void setConnection(Connection connection) {
-		this.connection = connection;
-	}
-	
-	public List<Account> getAllAccountsOfClient(int clientId) throws DatabaseException {
+	// The client's accounts that match the filter, see AccountFilter for everything it can do
+	public List<Account> getAccounts(AccountFilter filter) throws DatabaseException {
 
 		List<Account> accountList = new ArrayList<>();
 
-		try (Connection connection = ConnectionUtil.getConnection()) {
+		try {
+			Connection connection = UnitOfWork.currentConnection();
 			
-			String sql = "SELECT * FROM accounts WHERE client_id = ?";
-			PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-			pstmt.setInt(1,  clientId);
+			PreparedStatement pstmt = StatementCache.prepare(connection, AccountQueryCompiler.sql(filter));
+			AccountQueryCompiler.bind(pstmt, filter);
 			
-			ResultSet rs = pstmt.executeQuery();
-			while (rs.next()) {
-				int id = rs.getInt("id");
-				String accountType = rs.getString("accountType");
-				int amount = rs.getInt("amount");
-				
-				accountList.add(new Account(id, accountType, amount));
+			try (ResultSet rs = pstmt.executeQuery()) {
+				while (rs.next()) {
+					int id = rs.getInt("id");
+					String accountType = rs.getString("accountType");
+					int amount = rs.getInt("amount");
 				
+					accountList.add(new Account(id, accountType, amount));
+				}
 			}
 			
 		} catch (SQLException e) {
@@ -60,105 +57,58 @@ public class AccountRepository {
 		return accountList;
 		
 	}
-	
-	public List<Account> getAllAccountsOfClientLessThan(int clientId, int amtLessThan) throws DatabaseException {
 
-		List<Account> accountList = new ArrayList<>();
+	// Same as getAccounts, but each account is handed to the callback as it's read instead of collected into a list
+	public void streamAccounts(AccountFilter filter, RowCallback<Account> callback) throws DatabaseException, IOException {
 
-		try (Connection connection = ConnectionUtil.getConnection()) {
-			
-			String sql = "SELECT * FROM accounts WHERE client_id = ? AND amount < ?";
-			PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-			pstmt.setInt(1,  clientId);
-			pstmt.setInt(2,  amtLessThan);
-			
-			ResultSet rs = pstmt.executeQuery();
-			while (rs.next()) {
-				int id = rs.getInt("id");
-				String accountType = rs.getString("accountType");
-				int amount = rs.getInt("amount");
-				
-				accountList.add(new Account(id, accountType, amount));
-				
-			}
-			
-		} catch (SQLException e) {
-			throw new DatabaseException("Something went wrong when trying to get a connection. "
-					+ "Exception message: " + e.getMessage());
-		}
-		
-		return accountList;
-		
-	}
-	
-	public List<Account> getAllAccountsOfClientGreaterThan(int clientId, int amtGreaterThan) throws DatabaseException {
+		try {
+			Connection connection = UnitOfWork.currentConnection();
 
-		List<Account> accountList = new ArrayList<>();
+			PreparedStatement pstmt = StatementCache.prepareStreaming(connection, AccountQueryCompiler.sql(filter));
+			AccountQueryCompiler.bind(pstmt, filter);
 
-		try (Connection connection = ConnectionUtil.getConnection()) {
-			
-			String sql = "SELECT * FROM accounts WHERE client_id = ? AND amount > ?";
-			PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-			pstmt.setInt(1,  clientId);
-			pstmt.setInt(2,  amtGreaterThan);
-			
-			ResultSet rs = pstmt.executeQuery();
-			while (rs.next()) {
-				int id = rs.getInt("id");
-				String accountType = rs.getString("accountType");
-				int amount = rs.getInt("amount");
-				
-				accountList.add(new Account(id, accountType, amount));
-				
+			try (ResultSet rs = pstmt.executeQuery()) {
+				while (rs.next()) {
+					callback.accept(new Account(rs.getInt("id"), rs.getString("accountType"), rs.getInt("amount")));
+				}
 			}
-			
+
 		} catch (SQLException e) {
 			throw new DatabaseException("Something went wrong when trying to get a connection. "
 					+ "Exception message: " + e.getMessage());
 		}
-		
-		return accountList;
-		
+
 	}
-	
-	// Overloaded method to incorporate the amountGreaterThan and amountLessThan query params
-	public List<Account> getAllAccountsOfClient(int clientId, int amtGreaterThan, int amtLessThan) throws DatabaseException {
 
-		List<Account> accountList = new ArrayList<>();
+	// Every account id, streamed off the connection (for building IdFilter)
+	public void scanAccountIds(IntConsumer consumer) throws DatabaseException {
 
-		try (Connection connection = ConnectionUtil.getConnection()) {
-			
-			String sql = "SELECT * FROM accounts WHERE client_id = ? AND amount > ? AND amount < ?";
-			PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-			pstmt.setInt(1,  clientId);
-			pstmt.setInt(2,  amtGreaterThan);
-			pstmt.setInt(3,  amtLessThan);
-			
-			ResultSet rs = pstmt.executeQuery();
-			while (rs.next()) {
-				int id = rs.getInt("id");
-				String accountType = rs.getString("accountType");
-				int amount = rs.getInt("amount");
-				
-				accountList.add(new Account(id, accountType, amount));
-				
+		try {
+			Connection connection = UnitOfWork.currentConnection();
+			String sql = "SELECT id FROM accounts";
+
+			PreparedStatement pstmt = StatementCache.prepareStreaming(connection, sql);
+
+			try (ResultSet rs = pstmt.executeQuery()) {
+				while (rs.next()) {
+					consumer.accept(rs.getInt(1));
+				}
 			}
-			
+
 		} catch (SQLException e) {
 			throw new DatabaseException("Something went wrong when trying to get a connection. "
 					+ "Exception message: " + e.getMessage());
 		}
-		
-		return accountList;
-		
+
 	}
 
 	public Account addAccount(int clientId, AccountDTO accDTO) throws DatabaseException {
 		
 		try {
+			Connection connection = UnitOfWork.currentConnection();
 			String sql = "INSERT INTO accounts (accountType, amount, client_id) VALUES (?, ?, ?)";
 			
-			PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+			PreparedStatement pstmt = StatementCache.prepare(connection, sql, true);
 			pstmt.setString(1, accDTO.getAccountType());
 			pstmt.setInt(2, accDTO.getAmount());
 			pstmt.setInt(3, clientId);
@@ -169,12 +119,13 @@ public class AccountRepository {
 				throw new DatabaseException("Couldn't add an account to the database");
 			}
 			
-			ResultSet rs = pstmt.getGeneratedKeys();
-			if (rs.next()) {
-				int id = rs.getInt("id");
-				return new Account(id, accDTO.getAccountType(), accDTO.getAmount());
-			} else {
-				throw new DatabaseException("Account id was not generated, and therefore adding an account failed");
+			try (ResultSet rs = pstmt.getGeneratedKeys()) {
+				if (rs.next()) {
+					int id = rs.getInt("id");
+					return new Account(id, accDTO.getAccountType(), accDTO.getAmount());
+				} else {
+					throw new DatabaseException("Account id was not generated, and therefore adding an account failed");
+				}
 			}
 			
 		} catch (SQLException e) {
@@ -184,25 +135,28 @@ public class AccountRepository {
 		
 	}
 
-	public Account getAccountById(int clientId, int accountId) throws DatabaseException, AccountNotFoundException {
+	// Returns null if there's no account with that id belonging to that client
+	public Account getAccountById(int clientId, int accountId) throws DatabaseException {
 
-		try (Connection connection = ConnectionUtil.getConnection()) {
+		try {
+			Connection connection = UnitOfWork.currentConnection();
 			String sql = "SELECT * FROM accounts WHERE client_id = ? AND id = ?";
 			
-			PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+			PreparedStatement pstmt = StatementCache.prepare(connection, sql);
 			pstmt.setInt(1,  clientId);
 			pstmt.setInt(2, accountId);
 			
-			ResultSet rs = pstmt.executeQuery();
-			if (rs.next()) {
-				int id = rs.getInt("id");
-				String accountType = rs.getString("accountType");
-				int amount = rs.getInt("amount");
+			try (ResultSet rs = pstmt.executeQuery()) {
+				if (rs.next()) {
+					int id = rs.getInt("id");
+					String accountType = rs.getString("accountType");
+					int amount = rs.getInt("amount");
 				
-				return new Account(id, accountType, amount);
+					return new Account(id, accountType, amount);
 				
-			} else {
-				throw new AccountNotFoundException("Couldn't find an account with the id provided. User provided: " + accountId);
+				} else {
+					return null;
+				}
 			}
 			
 		} catch (SQLException e) {
@@ -212,20 +166,23 @@ public class AccountRepository {
 		
 	}
 
-	public Account updateAccount(int clientId, int accountId, AccountDTO accDTO) throws AccountNotFoundException, DatabaseException {
+	// Returns null if there's no account with that id belonging to that client
+	public Account updateAccount(int clientId, int accountId, AccountDTO accDTO) throws DatabaseException {
 
-		try (Connection connection = ConnectionUtil.getConnection()) {
-			String sql = "UPDATE accounts SET accountType = ?, amount = ? WHERE id = ?";
+		try {
+			Connection connection = UnitOfWork.currentConnection();
+			String sql = "UPDATE accounts SET accountType = ?, amount = ? WHERE id = ? AND client_id = ?";
 			
-			PreparedStatement pstmt = connection.prepareStatement(sql);
+			PreparedStatement pstmt = StatementCache.prepare(connection, sql);
 			pstmt.setString(1, accDTO.getAccountType());
 			pstmt.setInt(2, accDTO.getAmount());
 			pstmt.setInt(3,  accountId);
+			pstmt.setInt(4,  clientId);
 			
 			int rowsAffected = pstmt.executeUpdate();
 			
 			if (rowsAffected != 1) {
-				throw new AccountNotFoundException("Couldn't update client because it doesnt exist.");
+				return null;
 			} else {
 				// No issue with update query, return a new object with the updated information provided
 				return new Account(accountId, accDTO.getAccountType(), accDTO.getAmount());
@@ -238,22 +195,20 @@ public class AccountRepository {
 		
 	}
 
-	public boolean deleteAccount(int clientId, int accountId) throws AccountNotFoundException, DatabaseException {
+	// Returns false if there's no account with that id belonging to that client
+	public boolean deleteAccount(int clientId, int accountId) throws DatabaseException {
 
-		try (Connection connection = ConnectionUtil.getConnection()) {
+		try {
+			Connection connection = UnitOfWork.currentConnection();
 			String sql = "DELETE FROM accounts WHERE id = ? AND client_id = ?";
 			
-			PreparedStatement pstmt = connection.prepareStatement(sql);
+			PreparedStatement pstmt = StatementCache.prepare(connection, sql);
 			pstmt.setInt(1,  accountId);
 			pstmt.setInt(2,  clientId);
 			
 			int rowsAffected = pstmt.executeUpdate();
 			
-			if (rowsAffected != 1) {
-				throw new AccountNotFoundException("Couldn't delete account because it doesnt exist.");
-			} else {
-				return true;
-			}
+			return rowsAffected == 1;
 			
 		} catch (SQLException e) {
 			throw new DatabaseException("Something went wrong when trying to get a connection. "
@@ -264,18 +219,20 @@ public class AccountRepository {
 	
 	public int whosAccount(int accountId) throws AccountNotFoundException, DatabaseException {
 
-		try (Connection connection = ConnectionUtil.getConnection()) {
-			String sql = "SELECT * FROM accounts WHERE id = ?";
+		try {
+			Connection connection = UnitOfWork.currentConnection();
+			String sql = "SELECT client_id FROM accounts WHERE id = ?";
 			
-			PreparedStatement pstmt = connection.prepareStatement(sql);
+			PreparedStatement pstmt = StatementCache.prepare(connection, sql);
 			pstmt.setInt(1,  accountId);
 			
-			ResultSet rs = pstmt.executeQuery();
+			try (ResultSet rs = pstmt.executeQuery()) {
 			
-			if (rs.next()) {
-				return rs.getInt("client_id");
-			} else {
-				throw new AccountNotFoundException("Couldn't find account with id " + accountId);
+				if (rs.next()) {
+					return rs.getInt("client_id");
+				} else {
+					throw new AccountNotFoundException("Couldn't find account with id " + accountId);
+				}
 			}
 			
 		} catch (SQLException e) {
@@ -1,24 +1,26 @@
 package com.revature.dao;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 import com.revature.dto.GetClientDTO;
 import com.revature.dto.PostClientDTO;
 import com.revature.exceptions.AddClientException;
 import com.revature.exceptions.ClientNotFoundException;
 import com.revature.exceptions.DatabaseException;
+import com.revature.model.Account;
 import com.revature.model.Client;
-import com.revature.util.ConnectionUtil;
+import com.revature.util.StatementCache;
+import com.revature.util.UnitOfWork;
 
 public class ClientRepository {
 	
-	private Connection connection;
 	private ClientRepository clientRepository;
 	
 	public ClientRepository() {
@@ -29,56 +31,97 @@ public class ClientRepository {
 		this.clientRepository = clientRepository;
 	}
 	
-	public void setConnection(Connection connection) {
-		this.connection = connection;
+	// Every client, handed to the callback as it's read instead of collected into a list
+	public void streamAllClients(RowCallback<GetClientDTO> callback) throws DatabaseException, IOException {
+
+		try {
+			Connection connection = UnitOfWork.currentConnection();
+			String sql = "SELECT id, first_name, last_name FROM clients ORDER BY id";
+
+			PreparedStatement pstmt = StatementCache.prepareStreaming(connection, sql);
+
+			try (ResultSet rs = pstmt.executeQuery()) {
+				while (rs.next()) {
+					callback.accept(new GetClientDTO(rs.getInt("id"), rs.getString("first_name"), rs.getString("last_name")));
+				}
+			}
+
+		} catch (SQLException e) {
+			throw new DatabaseException("Something went wrong when trying to get a connection. "
+					+ "Exception message: " + e.getMessage());
+		}
+
 	}
-	
-	public List<GetClientDTO> getAllClients() throws DatabaseException {
-		
+
+	// Every client id, streamed off the connection (for building IdFilter)
+	public void scanClientIds(IntConsumer consumer) throws DatabaseException {
+
+		try {
+			Connection connection = UnitOfWork.currentConnection();
+			String sql = "SELECT id FROM clients";
+
+			PreparedStatement pstmt = StatementCache.prepareStreaming(connection, sql);
+
+			try (ResultSet rs = pstmt.executeQuery()) {
+				while (rs.next()) {
+					consumer.accept(rs.getInt(1));
+				}
+			}
+
+		} catch (SQLException e) {
+			throw new DatabaseException("Something went wrong when trying to get a connection. "
+					+ "Exception message: " + e.getMessage());
+		}
+
+	}
+
+	// Up to `limit` clients with an id above afterId, in id order (keyset pagination, see PageUtil)
+	public List<GetClientDTO> getClientsPage(int afterId, int limit) throws DatabaseException {
+
 		List<GetClientDTO> clientList = new ArrayList<>();
 
-		try (Connection connection = ConnectionUtil.getConnection()) {
-			String sql = "SELECT * FROM clients";
-			
-			PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-			
-			ResultSet rs = pstmt.executeQuery();
-			while (rs.next()) {
-				
-				int clientId = rs.getInt("id");
-				String firstName = rs.getString("first_name");
-				String lastName = rs.getString("last_name");
-				
-				clientList.add(new GetClientDTO(clientId, firstName, lastName));
-				
+		try {
+			Connection connection = UnitOfWork.currentConnection();
+			String sql = "SELECT id, first_name, last_name FROM clients WHERE id > ? ORDER BY id LIMIT ?";
+
+			PreparedStatement pstmt = StatementCache.prepare(connection, sql);
+			pstmt.setInt(1, afterId);
+			pstmt.setInt(2, limit);
+
+			try (ResultSet rs = pstmt.executeQuery()) {
+				while (rs.next()) {
+					clientList.add(new GetClientDTO(rs.getInt("id"), rs.getString("first_name"), rs.getString("last_name")));
+				}
 			}
-			
+
 		} catch (SQLException e) {
 			throw new DatabaseException("Something went wrong when trying to get a connection. "
 					+ "Exception message: " + e.getMessage());
 		}
-		
+
 		return clientList;
-		
+
 	}
-	
+
 	public GetClientDTO getClientById(int clientId) throws ClientNotFoundException, DatabaseException {
 		
-		try (Connection connection = ConnectionUtil.getConnection()) {
+		try {
+			Connection connection = UnitOfWork.currentConnection();
 			String sql = "SELECT * FROM clients WHERE id = ?";
 			
-			PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+			PreparedStatement pstmt = StatementCache.prepare(connection, sql);
 			pstmt.setInt(1,  clientId);
 			
-			ResultSet rs = pstmt.executeQuery();
+			try (ResultSet rs = pstmt.executeQuery()) {
 			
-			if (rs.next()) {
-				String firstName = rs.getString("first_name");
-				String lastName = rs.getString("last_name");
-				GetClientDTO client = new GetClientDTO(clientId, firstName, lastName);
-				return client;
-			} else {
-				throw new ClientNotFoundException("Couldn't find a client with that id. Id provided: " + clientId);
+				if (rs.next()) {
+					String firstName = rs.getString("first_name");
+					String lastName = rs.getString("last_name");
+					GetClientDTO client = new GetClientDTO(clientId, firstName, lastName);
+					return client;
+				} else {
+					throw new ClientNotFoundException("Couldn't find a client with that id. Id provided: " + clientId);
+				}
 			}
 			
 			
@@ -89,11 +132,115 @@ public class ClientRepository {
 		
 	}
 
+	// The client and all of its accounts from a single query, so both come from the same snapshot
+	public Client getClientWithAccounts(int clientId) throws ClientNotFoundException, DatabaseException {
+		
+		try {
+			Connection connection = UnitOfWork.currentConnection();
+			String sql = "SELECT c.first_name, c.last_name, a.id AS account_id, a.accountType, a.amount "
+					+ "FROM clients c LEFT JOIN accounts a ON a.client_id = c.id "
+					+ "WHERE c.id = ? ORDER BY a.id";
+			
+			PreparedStatement pstmt = StatementCache.prepare(connection, sql);
+			pstmt.setInt(1,  clientId);
+			
+			try (ResultSet rs = pstmt.executeQuery()) {
+				Client client = null;
+				List<Account> accountList = new ArrayList<>();
+				
+				while (rs.next()) {
+					if (client == null) {
+						client = new Client(clientId, rs.getString("first_name"), rs.getString("last_name"));
+					}
+					
+					int accountId = rs.getInt("account_id");
+					if (!rs.wasNull()) { // A client with no accounts still comes back as one row, with nulls for the account columns
+						accountList.add(new Account(accountId, rs.getString("accountType"), rs.getInt("amount")));
+					}
+				}
+				
+				if (client == null) {
+					throw new ClientNotFoundException("Couldn't find a client with that id. Id provided: " + clientId);
+				}
+				
+				client.setAccounts(accountList);
+				return client;
+			}
+			
+		} catch (SQLException e) {
+			throw new DatabaseException("Something went wrong when trying to get a connection. "
+					+ "Exception message: " + e.getMessage());
+		}
+		
+	}
+
+	/*
+	 * One chunk of clients (the next `limit` clients with an id above afterId) with all of their accounts,
+	 * in two queries no matter how many clients are in the chunk. The chunk covers every client id in
+	 * (afterId, last id], so the accounts can be fetched with one range on client_id instead of an IN list
+	 * that would be a different statement for every chunk size
+	 */
+	public List<Client> getClientsWithAccounts(int afterId, int limit) throws DatabaseException {
+
+		List<Client> clientList = new ArrayList<>();
+
+		try {
+			Connection connection = UnitOfWork.currentConnection();
+			String sql = "SELECT id, first_name, last_name FROM clients WHERE id > ? ORDER BY id LIMIT ?";
+
+			PreparedStatement pstmt = StatementCache.prepare(connection, sql);
+			pstmt.setInt(1, afterId);
+			pstmt.setInt(2, limit);
+
+			try (ResultSet rs = pstmt.executeQuery()) {
+				while (rs.next()) {
+					Client client = new Client(rs.getInt("id"), rs.getString("first_name"), rs.getString("last_name"));
+					client.setAccounts(new ArrayList<>());
+					clientList.add(client);
+				}
+			}
+
+			if (clientList.isEmpty()) {
+				return clientList;
+			}
+
+			// Both lists are ordered by client id, so the accounts can be handed out with a single merge pass
+			String accountSql = "SELECT id, client_id, accountType, amount FROM accounts "
+					+ "WHERE client_id > ? AND client_id <= ? ORDER BY client_id, id";
+
+			PreparedStatement accountPstmt = StatementCache.prepare(connection, accountSql);
+			accountPstmt.setInt(1, afterId);
+			accountPstmt.setInt(2, clientList.get(clientList.size() - 1).getId());
+
+			try (ResultSet rs = accountPstmt.executeQuery()) {
+				int clientIndex = 0;
+				while (rs.next()) {
+					int clientId = rs.getInt("client_id");
+					while (clientIndex < clientList.size() - 1 && clientList.get(clientIndex).getId() < clientId) {
+						clientIndex++;
+					}
+					if (clientList.get(clientIndex).getId() == clientId) {
+						clientList.get(clientIndex).getAccounts()
+							.add(new Account(rs.getInt("id"), rs.getString("accountType"), rs.getInt("amount")));
+					}
+				}
+			}
+
+		} catch (SQLException e) {
+			throw new DatabaseException("Something went wrong when trying to get a connection. "
+					+ "Exception message: " + e.getMessage());
+		}
+
+		return clientList;
+
+	}
+
 	public Client addClient(PostClientDTO clientDTO) throws DatabaseException, AddClientException {
-		try (Connection connection = ConnectionUtil.getConnection()) {
+		try {
+			Connection connection = UnitOfWork.currentConnection();
 			String sql = "INSERT INTO clients (first_name, last_name) VALUES (?, ?)";
 			
-			PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+			PreparedStatement pstmt = StatementCache.prepare(connection, sql, true);
 			
 			pstmt.setString(1, clientDTO.getFirstName());
 			pstmt.setString(2, clientDTO.getLastName());
@@ -104,14 +251,15 @@ public class ClientRepository {
 				throw new DatabaseException("Couldn't add a client to the database");
 			}
 			
-			ResultSet rs = pstmt.getGeneratedKeys();
-			if (rs.next()) {
-				int id = rs.getInt(1);
-				Client newClient = new Client(id, clientDTO.getFirstName(), clientDTO.getLastName());
-				newClient.setAccounts(new ArrayList<>());
-				return newClient;
-			} else {
-				throw new DatabaseException("Client id was not generated, and therefore adding a client failed");
+			try (ResultSet rs = pstmt.getGeneratedKeys()) {
+				if (rs.next()) {
+					int id = rs.getInt(1);
+					Client newClient = new Client(id, clientDTO.getFirstName(), clientDTO.getLastName());
+					newClient.setAccounts(new ArrayList<>());
+					return newClient;
+				} else {
+					throw new DatabaseException("Client id was not generated, and therefore adding a client failed");
+				}
 			}
 			
 		} catch (SQLException e) {
@@ -122,10 +270,11 @@ public class ClientRepository {
 
 	public GetClientDTO updateClient(int clientId, PostClientDTO clientDTO) throws DatabaseException, ClientNotFoundException {
 
-		try (Connection connection = ConnectionUtil.getConnection()) {
+		try {
+			Connection connection = UnitOfWork.currentConnection();
 			String sql = "UPDATE clients SET first_name = ?, last_name = ? WHERE id = ?";
 			
-			PreparedStatement pstmt = connection.prepareStatement(sql);
+			PreparedStatement pstmt = StatementCache.prepare(connection, sql);
 			pstmt.setString(1, clientDTO.getFirstName());
 			pstmt.setString(2, clientDTO.getLastName());
 			pstmt.setInt(3,  clientId);
@@ -148,10 +297,11 @@ public class ClientRepository {
 
 	public boolean deleteClient(int clientId) throws ClientNotFoundException, DatabaseException {
 
-		try (Connection connection = ConnectionUtil.getConnection()) {
+		try {
+			Connection connection = UnitOfWork.currentConnection();
 			String sql = "DELETE FROM clients WHERE id = ?";
 			
-			PreparedStatement pstmt = connection.prepareStatement(sql);
+			PreparedStatement pstmt = StatementCache.prepare(connection, sql);
 			pstmt.setInt(1,  clientId);
 			
 			int rowsAffected = pstmt.executeUpdate();
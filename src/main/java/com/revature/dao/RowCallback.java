@@ -0,0 +1,14 @@
+package com.revature.dao;
+
+import java.io.IOException;
+
+/*
+ * Handed each row of a streamed query as soon as it's read, so the caller can write it out
+ * instead of the repository collecting every row into a list first
+ */
+@FunctionalInterface
+public interface RowCallback<T> {
+
+	void accept(T row) throws IOException;
+
+}
@@ -0,0 +1,93 @@
+package com.revature.dto;
+
+import java.util.Objects;
+
+// The query parameters GET /clients/:clientid/accounts can be filtered and sorted with, exactly as the user sent them
+public class AccountQueryDTO {
+
+	private String amountGreaterThan;
+	private String amountLessThan;
+	private String amountAtLeast;
+	private String amountAtMost;
+	private String accountType;
+	private String sort;
+
+	public AccountQueryDTO() {
+		super();
+	}
+
+	public String getAmountGreaterThan() {
+		return amountGreaterThan;
+	}
+
+	public void setAmountGreaterThan(String amountGreaterThan) {
+		this.amountGreaterThan = amountGreaterThan;
+	}
+
+	public String getAmountLessThan() {
+		return amountLessThan;
+	}
+
+	public void setAmountLessThan(String amountLessThan) {
+		this.amountLessThan = amountLessThan;
+	}
+
+	public String getAmountAtLeast() {
+		return amountAtLeast;
+	}
+
+	public void setAmountAtLeast(String amountAtLeast) {
+		this.amountAtLeast = amountAtLeast;
+	}
+
+	public String getAmountAtMost() {
+		return amountAtMost;
+	}
+
+	public void setAmountAtMost(String amountAtMost) {
+		this.amountAtMost = amountAtMost;
+	}
+
+	public String getAccountType() {
+		return accountType;
+	}
+
+	public void setAccountType(String accountType) {
+		this.accountType = accountType;
+	}
+
+	public String getSort() {
+		return sort;
+	}
+
+	public void setSort(String sort) {
+		this.sort = sort;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(accountType, amountAtLeast, amountAtMost, amountGreaterThan, amountLessThan, sort);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		AccountQueryDTO other = (AccountQueryDTO) obj;
+		return Objects.equals(accountType, other.accountType) && Objects.equals(amountAtLeast, other.amountAtLeast)
+				&& Objects.equals(amountAtMost, other.amountAtMost) && Objects.equals(amountGreaterThan, other.amountGreaterThan)
+				&& Objects.equals(amountLessThan, other.amountLessThan) && Objects.equals(sort, other.sort);
+	}
+
+	@Override
+	public String toString() {
+		return "AccountQueryDTO [amountGreaterThan=" + amountGreaterThan + ", amountLessThan=" + amountLessThan
+				+ ", amountAtLeast=" + amountAtLeast + ", amountAtMost=" + amountAtMost + ", accountType=" + accountType
+				+ ", sort=" + sort + "]";
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.revature.dto;
+
+public class CacheStatsDTO {
+
+	private String name;
+	private long size;
+	private long maxSize;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private double hitRate;
+	private long staleServed; // Values served past their ttl because the database couldn't be reached
+
+	public CacheStatsDTO() {
+		super();
+	}
+
+	public CacheStatsDTO(String name, long size, long maxSize, long hits, long misses, long evictions) {
+		this.name = name;
+		this.size = size;
+		this.maxSize = maxSize;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.hitRate = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public void setHits(long hits) {
+		this.hits = hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public void setMisses(long misses) {
+		this.misses = misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public void setEvictions(long evictions) {
+		this.evictions = evictions;
+	}
+
+	public double getHitRate() {
+		return hitRate;
+	}
+
+	public void setHitRate(double hitRate) {
+		this.hitRate = hitRate;
+	}
+
+	public long getStaleServed() {
+		return staleServed;
+	}
+
+	public void setStaleServed(long staleServed) {
+		this.staleServed = staleServed;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStatsDTO [name=" + name + ", size=" + size + ", maxSize=" + maxSize + ", hits=" + hits
+				+ ", misses=" + misses + ", evictions=" + evictions + ", hitRate=" + hitRate + ", staleServed=" + staleServed
+				+ "]";
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.revature.dto;
+
+public class CoalescingStatsDTO {
+
+	private String name;
+	private long calls;
+	private long deduplicated;
+	private int inFlight;
+
+	public CoalescingStatsDTO() {
+		super();
+	}
+
+	public CoalescingStatsDTO(String name, long calls, long deduplicated, int inFlight) {
+		this.name = name;
+		this.calls = calls;
+		this.deduplicated = deduplicated;
+		this.inFlight = inFlight;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public long getCalls() {
+		return calls;
+	}
+
+	public void setCalls(long calls) {
+		this.calls = calls;
+	}
+
+	public long getDeduplicated() {
+		return deduplicated;
+	}
+
+	public void setDeduplicated(long deduplicated) {
+		this.deduplicated = deduplicated;
+	}
+
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	public void setInFlight(int inFlight) {
+		this.inFlight = inFlight;
+	}
+
+	@Override
+	public String toString() {
+		return "CoalescingStatsDTO [name=" + name + ", calls=" + calls + ", deduplicated=" + deduplicated
+				+ ", inFlight=" + inFlight + "]";
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.revature.dto;
+
+public class ConnectionLeaseDTO {
+
+	private long id;
+	private String request;
+	private String thread;
+	private long heldMillis;
+	private String acquiredAt;
+	
+	public ConnectionLeaseDTO() {
+		super();
+	}
+
+	public ConnectionLeaseDTO(long id, String request, String thread, long heldMillis, String acquiredAt) {
+		this.id = id;
+		this.request = request;
+		this.thread = thread;
+		this.heldMillis = heldMillis;
+		this.acquiredAt = acquiredAt;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public void setId(long id) {
+		this.id = id;
+	}
+
+	public String getRequest() {
+		return request;
+	}
+
+	public void setRequest(String request) {
+		this.request = request;
+	}
+
+	public String getThread() {
+		return thread;
+	}
+
+	public void setThread(String thread) {
+		this.thread = thread;
+	}
+
+	public long getHeldMillis() {
+		return heldMillis;
+	}
+
+	public void setHeldMillis(long heldMillis) {
+		this.heldMillis = heldMillis;
+	}
+
+	public String getAcquiredAt() {
+		return acquiredAt;
+	}
+
+	public void setAcquiredAt(String acquiredAt) {
+		this.acquiredAt = acquiredAt;
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionLeaseDTO [id=" + id + ", request=" + request + ", thread=" + thread + ", heldMillis="
+				+ heldMillis + "]";
+	}
+
+}
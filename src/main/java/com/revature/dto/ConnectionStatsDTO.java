@@ -0,0 +1,75 @@
+package com.revature.dto;
+
+import java.util.List;
+
+public class ConnectionStatsDTO {
+
+	private long acquired;
+	private long released;
+	private long longHeld;
+	private long budgetExceeded;
+	private int connectionBudget;
+	private long leakThresholdMillis;
+	private List<ConnectionLeaseDTO> openConnections;
+	
+	public ConnectionStatsDTO() {
+		super();
+	}
+
+	public long getAcquired() {
+		return acquired;
+	}
+
+	public void setAcquired(long acquired) {
+		this.acquired = acquired;
+	}
+
+	public long getReleased() {
+		return released;
+	}
+
+	public void setReleased(long released) {
+		this.released = released;
+	}
+
+	public long getLongHeld() {
+		return longHeld;
+	}
+
+	public void setLongHeld(long longHeld) {
+		this.longHeld = longHeld;
+	}
+
+	public long getBudgetExceeded() {
+		return budgetExceeded;
+	}
+
+	public void setBudgetExceeded(long budgetExceeded) {
+		this.budgetExceeded = budgetExceeded;
+	}
+
+	public int getConnectionBudget() {
+		return connectionBudget;
+	}
+
+	public void setConnectionBudget(int connectionBudget) {
+		this.connectionBudget = connectionBudget;
+	}
+
+	public long getLeakThresholdMillis() {
+		return leakThresholdMillis;
+	}
+
+	public void setLeakThresholdMillis(long leakThresholdMillis) {
+		this.leakThresholdMillis = leakThresholdMillis;
+	}
+
+	public List<ConnectionLeaseDTO> getOpenConnections() {
+		return openConnections;
+	}
+
+	public void setOpenConnections(List<ConnectionLeaseDTO> openConnections) {
+		this.openConnections = openConnections;
+	}
+
+}
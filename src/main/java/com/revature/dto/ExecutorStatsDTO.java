@@ -0,0 +1,90 @@
+package com.revature.dto;
+
+public class ExecutorStatsDTO {
+
+	private String name;
+	private int threads;
+	private int active;
+	private int queued;
+	private int queueCapacity;
+	private long completed;
+	private long rejected;
+
+	public ExecutorStatsDTO() {
+		super();
+	}
+
+	public ExecutorStatsDTO(String name, int threads, int active, int queued, int queueCapacity, long completed,
+			long rejected) {
+		this.name = name;
+		this.threads = threads;
+		this.active = active;
+		this.queued = queued;
+		this.queueCapacity = queueCapacity;
+		this.completed = completed;
+		this.rejected = rejected;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public int getActive() {
+		return active;
+	}
+
+	public void setActive(int active) {
+		this.active = active;
+	}
+
+	public int getQueued() {
+		return queued;
+	}
+
+	public void setQueued(int queued) {
+		this.queued = queued;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public long getCompleted() {
+		return completed;
+	}
+
+	public void setCompleted(long completed) {
+		this.completed = completed;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public void setRejected(long rejected) {
+		this.rejected = rejected;
+	}
+
+	@Override
+	public String toString() {
+		return "ExecutorStatsDTO [name=" + name + ", threads=" + threads + ", active=" + active + ", queued=" + queued
+				+ ", queueCapacity=" + queueCapacity + ", completed=" + completed + ", rejected=" + rejected + "]";
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.revature.dto;
+
+public class LimiterStatsDTO {
+
+	private String name;
+	private int limit;
+	private int minLimit;
+	private int maxLimit;
+	private int inFlight;
+	private double shortRttMillis;
+	private double longRttMillis;
+	private long accepted;
+	private long rejected;
+	private long dropped;
+
+	public LimiterStatsDTO() {
+		super();
+	}
+
+	public LimiterStatsDTO(String name, int limit, int minLimit, int maxLimit, int inFlight, double shortRttMillis,
+			double longRttMillis, long accepted, long rejected, long dropped) {
+		this.name = name;
+		this.limit = limit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.inFlight = inFlight;
+		this.shortRttMillis = shortRttMillis;
+		this.longRttMillis = longRttMillis;
+		this.accepted = accepted;
+		this.rejected = rejected;
+		this.dropped = dropped;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+
+	public int getMinLimit() {
+		return minLimit;
+	}
+
+	public void setMinLimit(int minLimit) {
+		this.minLimit = minLimit;
+	}
+
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	public void setMaxLimit(int maxLimit) {
+		this.maxLimit = maxLimit;
+	}
+
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	public void setInFlight(int inFlight) {
+		this.inFlight = inFlight;
+	}
+
+	public double getShortRttMillis() {
+		return shortRttMillis;
+	}
+
+	public void setShortRttMillis(double shortRttMillis) {
+		this.shortRttMillis = shortRttMillis;
+	}
+
+	public double getLongRttMillis() {
+		return longRttMillis;
+	}
+
+	public void setLongRttMillis(double longRttMillis) {
+		this.longRttMillis = longRttMillis;
+	}
+
+	public long getAccepted() {
+		return accepted;
+	}
+
+	public void setAccepted(long accepted) {
+		this.accepted = accepted;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public void setRejected(long rejected) {
+		this.rejected = rejected;
+	}
+
+	public long getDropped() {
+		return dropped;
+	}
+
+	public void setDropped(long dropped) {
+		this.dropped = dropped;
+	}
+
+	@Override
+	public String toString() {
+		return "LimiterStatsDTO [name=" + name + ", limit=" + limit + ", minLimit=" + minLimit + ", maxLimit=" + maxLimit
+				+ ", inFlight=" + inFlight + ", shortRttMillis=" + shortRttMillis + ", longRttMillis=" + longRttMillis
+				+ ", accepted=" + accepted + ", rejected=" + rejected + ", dropped=" + dropped + "]";
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.revature.dto;
+
+public class RateLimitStatsDTO {
+
+	private String name;
+	private double perSecond;
+	private int burst;
+	private long clients;
+	private long callers;
+	private long allowed;
+	private long rejectedForClient;
+	private long rejectedForCaller;
+
+	public RateLimitStatsDTO() {
+		super();
+	}
+
+	public RateLimitStatsDTO(String name, double perSecond, int burst, long clients, long callers, long allowed,
+			long rejectedForClient, long rejectedForCaller) {
+		this.name = name;
+		this.perSecond = perSecond;
+		this.burst = burst;
+		this.clients = clients;
+		this.callers = callers;
+		this.allowed = allowed;
+		this.rejectedForClient = rejectedForClient;
+		this.rejectedForCaller = rejectedForCaller;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public double getPerSecond() {
+		return perSecond;
+	}
+
+	public void setPerSecond(double perSecond) {
+		this.perSecond = perSecond;
+	}
+
+	public int getBurst() {
+		return burst;
+	}
+
+	public void setBurst(int burst) {
+		this.burst = burst;
+	}
+
+	public long getClients() {
+		return clients;
+	}
+
+	public void setClients(long clients) {
+		this.clients = clients;
+	}
+
+	public long getCallers() {
+		return callers;
+	}
+
+	public void setCallers(long callers) {
+		this.callers = callers;
+	}
+
+	public long getAllowed() {
+		return allowed;
+	}
+
+	public void setAllowed(long allowed) {
+		this.allowed = allowed;
+	}
+
+	public long getRejectedForClient() {
+		return rejectedForClient;
+	}
+
+	public void setRejectedForClient(long rejectedForClient) {
+		this.rejectedForClient = rejectedForClient;
+	}
+
+	public long getRejectedForCaller() {
+		return rejectedForCaller;
+	}
+
+	public void setRejectedForCaller(long rejectedForCaller) {
+		this.rejectedForCaller = rejectedForCaller;
+	}
+
+	@Override
+	public String toString() {
+		return "RateLimitStatsDTO [name=" + name + ", perSecond=" + perSecond + ", burst=" + burst + ", clients=" + clients
+				+ ", callers=" + callers + ", allowed=" + allowed + ", rejectedForClient=" + rejectedForClient
+				+ ", rejectedForCaller=" + rejectedForCaller + "]";
+	}
+
+}
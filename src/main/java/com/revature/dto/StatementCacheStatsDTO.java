@@ -0,0 +1,69 @@
+package com.revature.dto;
+
+public class StatementCacheStatsDTO {
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private int cachedConnections;
+	private int maxStatementsPerConnection;
+	
+	public StatementCacheStatsDTO() {
+		super();
+	}
+
+	public StatementCacheStatsDTO(long hits, long misses, long evictions, int cachedConnections, int maxStatementsPerConnection) {
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.cachedConnections = cachedConnections;
+		this.maxStatementsPerConnection = maxStatementsPerConnection;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public void setHits(long hits) {
+		this.hits = hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public void setMisses(long misses) {
+		this.misses = misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public void setEvictions(long evictions) {
+		this.evictions = evictions;
+	}
+
+	public int getCachedConnections() {
+		return cachedConnections;
+	}
+
+	public void setCachedConnections(int cachedConnections) {
+		this.cachedConnections = cachedConnections;
+	}
+
+	public int getMaxStatementsPerConnection() {
+		return maxStatementsPerConnection;
+	}
+
+	public void setMaxStatementsPerConnection(int maxStatementsPerConnection) {
+		this.maxStatementsPerConnection = maxStatementsPerConnection;
+	}
+
+	@Override
+	public String toString() {
+		return "StatementCacheStatsDTO [hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+				+ ", cachedConnections=" + cachedConnections + "]";
+	}
+
+}
@@ -0,0 +1,26 @@
+package com.revature.exceptions;
+
+public class AdminAccessException extends Exception {
+
+	public AdminAccessException() {
+		super();
+	}
+
+	public AdminAccessException(String message, Throwable cause, boolean enableSuppression,
+			boolean writableStackTrace) {
+		super(message, cause, enableSuppression, writableStackTrace);
+	}
+
+	public AdminAccessException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public AdminAccessException(String message) {
+		super(message);
+	}
+
+	public AdminAccessException(Throwable cause) {
+		super(cause);
+	}
+
+}
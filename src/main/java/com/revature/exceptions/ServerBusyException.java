@@ -0,0 +1,26 @@
+package com.revature.exceptions;
+
+public class ServerBusyException extends Exception {
+
+	public ServerBusyException() {
+		super();
+	}
+
+	public ServerBusyException(String message, Throwable cause, boolean enableSuppression,
+			boolean writableStackTrace) {
+		super(message, cause, enableSuppression, writableStackTrace);
+	}
+
+	public ServerBusyException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public ServerBusyException(String message) {
+		super(message);
+	}
+
+	public ServerBusyException(Throwable cause) {
+		super(cause);
+	}
+
+}
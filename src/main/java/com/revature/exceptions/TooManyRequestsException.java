@@ -0,0 +1,26 @@
+package com.revature.exceptions;
+
+public class TooManyRequestsException extends Exception {
+
+	public TooManyRequestsException() {
+		super();
+	}
+
+	public TooManyRequestsException(String message, Throwable cause, boolean enableSuppression,
+			boolean writableStackTrace) {
+		super(message, cause, enableSuppression, writableStackTrace);
+	}
+
+	public TooManyRequestsException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public TooManyRequestsException(String message) {
+		super(message);
+	}
+
+	public TooManyRequestsException(Throwable cause) {
+		super(cause);
+	}
+
+}
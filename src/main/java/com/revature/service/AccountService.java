@@ -1,11 +1,15 @@
 package com.revature.service;
 
-import java.sql.Connection;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 
+import com.revature.dao.AccountFilter;
 import com.revature.dao.AccountRepository;
+import com.revature.dao.RowCallback;
 import com.revature.dto.AccountDTO;
+import com.revature.dto.AccountQueryDTO;
+import com.revature.dto.PageDTO;
 import com.revature.exception.AddAccountException;
 import com.revature.exceptions.AccountNotFoundException;
 import com.revature.exceptions.BadParameterException;
@@ -13,38 +17,71 @@ import com.revature.exceptions.DatabaseException;
 import com.revature.exceptions.NotClientsAccountException;
 import com.revature.exceptions.UpdateAccountException;
 import com.revature.model.Account;
-import com.revature.util.ConnectionUtil;
+import com.revature.util.AccountListCache;
+import com.revature.util.AccountOwnerIndex;
+import com.revature.util.CachedValue;
+import com.revature.util.IdFilter;
+import com.revature.util.PageUtil;
+import com.revature.util.SingleFlight;
+import com.revature.util.StaleRefresher;
+import com.revature.util.UnitOfWork;
 
 public class AccountService {
 
 	private AccountRepository accountRepository;
+	private AccountListCache accountCache;
+	private AccountOwnerIndex ownerIndex;
+	private IdFilter accountIds;
+	private StaleRefresher staleRefresher;
+	private SingleFlight<AccountFilter, List<Account>> accountLoads; // Concurrent identical reads share one query
 	
 	public AccountService() {
 		this.accountRepository = new AccountRepository();
+		this.accountCache = AccountListCache.shared();
+		this.ownerIndex = AccountOwnerIndex.shared();
+		this.accountIds = IdFilter.accounts();
+		this.staleRefresher = StaleRefresher.shared();
+		this.accountLoads = SingleFlight.shared("accountsOfClient");
 	}
 	
 	public AccountService(AccountRepository accountRepository) {
 		this.accountRepository = accountRepository;
+		this.accountCache = new AccountListCache(1000, 60); // Its own cache, so nothing leaks between services (tests)
+		this.ownerIndex = new AccountOwnerIndex(1000);
+		this.accountIds = new IdFilter("accountIds", 10); // Never built, so it never short-circuits anything
+		this.staleRefresher = new StaleRefresher(1, 10, 1000);
+		this.accountLoads = new SingleFlight<>("accountsOfClient");
 	}
 	
-	public List<Account> getAllAccountsOfClient(String stringId) throws DatabaseException, BadParameterException {
-
-		try {
-			Connection connection = ConnectionUtil.getConnection(); // Have control over a connection object here
-			this.accountRepository.setConnection(connection); // pass the connection into the DAO
-			connection.setAutoCommit(false); // Turn off autocommit so we have control over commit v. not committing
-			
-			try {
-				int clientId = Integer.parseInt(stringId);
-				
-				List<Account> accountList = accountRepository.getAllAccountsOfClient(clientId);
-				
-				connection.commit(); // This is when changes will actually be persisted
-				return accountList;
-			} catch (NumberFormatException e) {
-				throw new BadParameterException("Account id must be an int. User provided id: " + stringId);
+	// Reloads the account id filter from the database, see IdFilter
+	public void rebuildIdFilter() {
+		accountIds.rebuild(consumer -> {
+			try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+				accountRepository.scanAccountIds(consumer);
+				unitOfWork.commit();
+			} catch (SQLException e) {
+				throw new DatabaseException("Something went wrong when trying to get a connection. "
+						+ "Exception message: " + e.getMessage());
 			}
-			
+		});
+	}
+	
+	// One page of a client's accounts, filtered and sorted by the query. cursor is the nextCursor of the previous page
+	public PageDTO<Account> getAccountsOfClientPage(String stringId, AccountQueryDTO query, String cursor, String limit) throws DatabaseException, BadParameterException {
+		
+		AccountFilter filter = toFilter(stringId, query);
+		if (!filter.getSort().isById()) {
+			throw new BadParameterException("Only sorting by id can be paged, use stream=true to get every account sorted by amount");
+		}
+		
+		int pageSize = PageUtil.pageSize(limit);
+		filter.setAfterId(PageUtil.decodeCursor(cursor));
+		filter.setLimit(pageSize + 1);
+		
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+			List<Account> accountList = findAccounts(filter);
+			unitOfWork.commit();
+			return PageUtil.toPage(accountList, pageSize, Account::getId);
 		} catch (SQLException e) {
 			throw new DatabaseException("Something went wrong when trying to get a connection. "
 					+ "Exception message: " + e.getMessage());
@@ -52,26 +89,21 @@ public class AccountService {
 		
 	}
 	
-	public List<Account> getAllAccountsOfClientLessThan(String stringId, String amtLessThanStr) throws DatabaseException, BadParameterException {
-
-		try {
-			Connection connection = ConnectionUtil.getConnection(); // Have control over a connection object here
-			this.accountRepository.setConnection(connection); // pass the connection into the DAO
-			connection.setAutoCommit(false); // Turn off autocommit so we have control over commit v. not committing
-			
-			try {
-				int clientId = Integer.parseInt(stringId);
-				int amtLessThan = Integer.parseInt(amtLessThanStr);
-				
-				List<Account> accountList = accountRepository.getAllAccountsOfClientLessThan(clientId, amtLessThan);
-				
-				connection.commit(); // This is when changes will actually be persisted
-				return accountList;
-			} catch (NumberFormatException e) {
-				throw new BadParameterException("Account id, amount greater than and amount less than values, must all be ints. User provided \nid: "
-						+ stringId + " amount less than: " + amtLessThanStr);
+	// All of a client's accounts without building the whole list, each one goes to the callback as it comes off the connection
+	public void streamAccountsOfClient(String stringId, AccountQueryDTO query, RowCallback<Account> callback) throws DatabaseException, BadParameterException, IOException {
+		
+		AccountFilter filter = toFilter(stringId, query);
+		
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+			List<Account> cached = accountCache.get(filter.getClientId());
+			if (cached != null) {
+				for (Account account : filter.apply(cached)) {
+					callback.accept(account);
+				}
+			} else {
+				accountRepository.streamAccounts(filter, callback);
 			}
-			
+			unitOfWork.commit();
 		} catch (SQLException e) {
 			throw new DatabaseException("Something went wrong when trying to get a connection. "
 					+ "Exception message: " + e.getMessage());
@@ -79,81 +111,103 @@ public class AccountService {
 		
 	}
 	
-	public List<Account> getAllAccountsOfClientGreaterThan(String stringId, String amtGreaterThanStr) throws DatabaseException, BadParameterException {
-
+	// Checks the query parameters and turns them into a filter
+	private AccountFilter toFilter(String stringId, AccountQueryDTO query) throws BadParameterException {
+		
+		AccountFilter filter;
 		try {
-			Connection connection = ConnectionUtil.getConnection(); // Have control over a connection object here
-			this.accountRepository.setConnection(connection); // pass the connection into the DAO
-			connection.setAutoCommit(false); // Turn off autocommit so we have control over commit v. not committing
-			
-			try {
-				int clientId = Integer.parseInt(stringId);
-				int amtGreaterThan = Integer.parseInt(amtGreaterThanStr);
-				
-				List<Account> accountList = accountRepository.getAllAccountsOfClientGreaterThan(clientId, amtGreaterThan);
-				
-				connection.commit(); // This is when changes will actually be persisted
-				return accountList;
-			} catch (NumberFormatException e) {
-				throw new BadParameterException("Account id, amount greater than and amount less than values, must all be ints. User provided \nid: "
-						+ stringId + " amount greater than: " + amtGreaterThanStr);
+			filter = new AccountFilter(Integer.parseInt(stringId));
+		} catch (NumberFormatException e) {
+			throw new BadParameterException("Client id must be an int. User provided: " + stringId);
+		}
+		
+		Integer amtGreaterThan = parseAmount("amountGreaterThan", query.getAmountGreaterThan());
+		Integer amtAtLeast = parseAmount("amountAtLeast", query.getAmountAtLeast());
+		if (amtGreaterThan != null && amtAtLeast != null) {
+			throw new BadParameterException("Use either amountGreaterThan or amountAtLeast, not both");
+		}
+		if (amtGreaterThan != null) {
+			filter.setMinAmount(amtGreaterThan, false);
+		} else if (amtAtLeast != null) {
+			filter.setMinAmount(amtAtLeast, true);
+		}
+		
+		Integer amtLessThan = parseAmount("amountLessThan", query.getAmountLessThan());
+		Integer amtAtMost = parseAmount("amountAtMost", query.getAmountAtMost());
+		if (amtLessThan != null && amtAtMost != null) {
+			throw new BadParameterException("Use either amountLessThan or amountAtMost, not both");
+		}
+		if (amtLessThan != null) {
+			filter.setMaxAmount(amtLessThan, false);
+		} else if (amtAtMost != null) {
+			filter.setMaxAmount(amtAtMost, true);
+		}
+		
+		if (query.getAccountType() != null && !query.getAccountType().trim().equals("")) {
+			filter.setAccountType(query.getAccountType().trim());
+		}
+		
+		if (query.getSort() != null) {
+			AccountFilter.Sort sort = AccountFilter.Sort.fromParam(query.getSort());
+			if (sort == null) {
+				throw new BadParameterException("Sort must be one of id, -id, amount or -amount. User provided: " + query.getSort());
 			}
-			
-		} catch (SQLException e) {
-			throw new DatabaseException("Something went wrong when trying to get a connection. "
-					+ "Exception message: " + e.getMessage());
+			filter.setSort(sort);
 		}
 		
+		return filter;
 	}
 	
-	// Overloaded Version of the generic getAllAccountsOfClient with query params accounted for
-	public List<Account> getAllAccountsOfClient(String stringId, String amtGreaterThanStr, String amtLessThanStr) throws DatabaseException, BadParameterException {
-
-		try {
-			Connection connection = ConnectionUtil.getConnection(); // Have control over a connection object here
-			this.accountRepository.setConnection(connection); // pass the connection into the DAO
-			connection.setAutoCommit(false); // Turn off autocommit so we have control over commit v. not committing
-			
-			try {
-				int clientId = Integer.parseInt(stringId);
-				int amtGreaterThan = Integer.parseInt(amtGreaterThanStr);
-				int amtLessThan = Integer.parseInt(amtLessThanStr);
-				
-				List<Account> accountList = accountRepository.getAllAccountsOfClient(clientId, amtGreaterThan, amtLessThan);
-				
-				connection.commit(); // This is when changes will actually be persisted
-				return accountList;
-			} catch (NumberFormatException e) {
-				throw new BadParameterException("Account id, amount greater than and amount less than values, must all be ints. User provided \nid: "
-						+ stringId + " amount greater than: " + amtGreaterThanStr + " amount less than: " + amtLessThanStr);
-			}
-			
-		} catch (SQLException e) {
-			throw new DatabaseException("Something went wrong when trying to get a connection. "
-					+ "Exception message: " + e.getMessage());
+	private Integer parseAmount(String name, String value) throws BadParameterException {
+		if (value == null) {
+			return null;
 		}
 		
+		try {
+			return Integer.valueOf(value);
+		} catch (NumberFormatException e) {
+			throw new BadParameterException(name + " must be an int. User provided: " + value);
+		}
 	}
-
+	
 	public Account getAccountById(String clientStringId, String accountStringId) throws DatabaseException, AccountNotFoundException, BadParameterException, NotClientsAccountException {
 
-		try {
-			Connection connection = ConnectionUtil.getConnection(); // Have control over a connection object here
-			this.accountRepository.setConnection(connection); // pass the connection into the DAO
-			connection.setAutoCommit(false); // Turn off autocommit so we have control over commit v. not committing
-			
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
 			try {
 				int clientId = Integer.parseInt(clientStringId);
 				int accountId = Integer.parseInt(accountStringId);
 				
-				int clientIdOfAccount = accountRepository.whosAccount(accountId);
-				if (clientIdOfAccount != clientId) {
-					throw new NotClientsAccountException("That account belongs to client with id: " + clientIdOfAccount);
+				throwIfNoSuchAccount(accountId); // Made up ids don't cost a query
+				
+				// Already in memory if the client's account list is cached
+				List<Account> cached = accountCache.get(clientId);
+				Account cachedAccount = cached == null ? null : findById(cached, accountId);
+				if (cachedAccount != null) {
+					unitOfWork.commit();
+					return cachedAccount;
 				}
 				
-				Account account = accountRepository.getAccountById(clientId, accountId);
+				// One query that only matches if the account exists *and* belongs to this client
+				long ownersVersion = ownerIndex.version();
+				Account account;
+				try {
+					account = accountRepository.getAccountById(clientId, accountId);
+				} catch (DatabaseException e) {
+					// The database is down or too slow, an older copy of the client's accounts beats an error
+					CachedValue<List<Account>> stale = accountCache.getStale(clientId);
+					Account staleAccount = stale == null ? null : findById(stale.getValue(), accountId);
+					if (staleAccount == null) {
+						throw e;
+					}
+					staleRefresher.serveStale(stale, e, "accounts:" + clientId, () -> refreshAccounts(clientId));
+					return staleAccount;
+				}
+				if (account == null) {
+					throwWhyAccountNotFound(clientId, accountId);
+				}
+				ownerIndex.putLoaded(accountId, clientId, ownersVersion);
 				
-				connection.commit(); // This is when changes will actually be persisted
+				unitOfWork.commit(); // This is when changes will actually be persisted
 				return account;
 			} catch (NumberFormatException e) {
 				throw new BadParameterException("Client id and Account id must be ints. User provided " + clientStringId + " and " + accountStringId);
@@ -172,17 +226,19 @@ public class AccountService {
 			throw new AddAccountException("User tried to add an account without an account type.");
 		}
 		
-		try {
-			Connection connection = ConnectionUtil.getConnection();
-			this.accountRepository.setConnection(connection);
-			connection.setAutoCommit(false);
-			
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
 			try {
 				int clientId = Integer.parseInt(stringId);
 				
 				Account account = accountRepository.addAccount(clientId, accDTO);
+				accountIds.add(account.getId());
+				accountCache.accountChanging();
+				UnitOfWork.afterCommit(() -> {
+					accountCache.added(clientId, account);
+					ownerIndex.put(account.getId(), clientId);
+				});
 				
-				connection.commit(); // This is when changes will actually be persisted
+				unitOfWork.commit(); // This is when changes will actually be persisted
 				return account;
 			} catch (NumberFormatException e) {
 				throw new BadParameterException("Account id must be an int. User provided " + stringId);
@@ -201,23 +257,21 @@ public class AccountService {
 			throw new UpdateAccountException("User tried to update an account without an account type.");
 		}
 		
-		try {
-			Connection connection = ConnectionUtil.getConnection(); // Have control over a connection object here
-			this.accountRepository.setConnection(connection); // pass the connection into the DAO
-			connection.setAutoCommit(false); // Turn off autocommit so we have control over commit v. not committing
-			
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
 			try {
 				int clientId = Integer.parseInt(clientStringId);
 				int accountId = Integer.parseInt(accountStringId);
 				
-				int clientIdOfAccount = accountRepository.whosAccount(accountId);
-				if (clientIdOfAccount != clientId) {
-					throw new NotClientsAccountException("That account belongs to client with id: " + clientIdOfAccount);
-				}
+				throwIfNoSuchAccount(accountId); // Made up ids don't cost a query
 				
 				Account account = accountRepository.updateAccount(clientId, accountId, accDTO);
+				if (account == null) {
+					throwWhyAccountNotFound(clientId, accountId);
+				}
+				accountCache.accountChanging();
+				UnitOfWork.afterCommit(() -> accountCache.updated(clientId, account));
 				
-				connection.commit(); // This is when changes will actually be persisted
+				unitOfWork.commit(); // This is when changes will actually be persisted
 				return account;
 			} catch (NumberFormatException e) {
 				throw new BadParameterException("Client id and Account id must be ints. User provided " + clientStringId + " and " + accountStringId);
@@ -232,23 +286,26 @@ public class AccountService {
 
 	public boolean deleteAccount(String clientStringId, String accountStringId) throws DatabaseException, NotClientsAccountException, BadParameterException, AccountNotFoundException {
 
-		try {
-			
-			Connection connection = ConnectionUtil.getConnection();
-			accountRepository.setConnection(connection);
-			connection.setAutoCommit(false);
-			
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
 			try {
 				int clientId = Integer.parseInt(clientStringId);
 				int accountId = Integer.parseInt(accountStringId);
 				
-				int clientIdOfAccount = accountRepository.whosAccount(accountId);
-				if (clientIdOfAccount != clientId) {
-					throw new NotClientsAccountException("That account belongs to client with id: " + clientIdOfAccount);
-				}
+				throwIfNoSuchAccount(accountId); // Made up ids don't cost a query
 				
 				boolean didUpdate = accountRepository.deleteAccount(clientId, accountId);
-				connection.commit();
+				if (!didUpdate) {
+					throwWhyAccountNotFound(clientId, accountId);
+				}
+				accountCache.accountChanging();
+				// Again after the commit, in case a read put it back in between. Worst case (a rollback) it just gets
+				// looked up again
+				ownerIndex.remove(accountId);
+				UnitOfWork.afterCommit(() -> {
+					ownerIndex.remove(accountId);
+					accountCache.removed(clientId, accountId);
+				});
+				unitOfWork.commit();
 				return didUpdate;
 			} catch (NumberFormatException e) {
 				throw new BadParameterException("Client id and Account id must be ints. User provided " + clientStringId + " and " + accountStringId);
@@ -261,4 +318,91 @@ public class AccountService {
 		
 	}
 	
+	/*
+	 * The accounts matching the filter, answered from the client's cached account list when there is one. When the
+	 * query happens to return every account the client has (no filters, fewer rows than the limit) that list is
+	 * cached for next time. Callers asking for the same filter at the same time share the query
+	 */
+	private List<Account> findAccounts(AccountFilter filter) throws DatabaseException {
+		
+		List<Account> cached = accountCache.get(filter.getClientId());
+		if (cached != null) {
+			return filter.apply(cached);
+		}
+		
+		try {
+			return accountLoads.<DatabaseException, RuntimeException>run(filter, () -> loadAccounts(filter));
+		} catch (DatabaseException e) {
+			// The database is down or too slow, answer from an older copy of the client's accounts if there is one
+			int clientId = filter.getClientId();
+			CachedValue<List<Account>> stale = accountCache.getStale(clientId);
+			if (stale == null) {
+				throw e;
+			}
+			return filter.apply(staleRefresher.serveStale(stale, e, "accounts:" + clientId, () -> refreshAccounts(clientId)));
+		}
+	}
+	
+	// Runs the filter's query, caching the result when it's every account the client has. Needs a unit of work
+	private List<Account> loadAccounts(AccountFilter filter) throws DatabaseException {
+		long version = accountCache.version();
+		List<Account> accountList = accountRepository.getAccounts(filter);
+		if (filter.coversWholeClient() && (filter.getLimit() == null || accountList.size() < filter.getLimit())) {
+			accountCache.putLoaded(filter.getClientId(), accountList, version);
+		}
+		return accountList;
+	}
+	
+	// Background reload of a client's accounts that were served stale
+	private void refreshAccounts(int clientId) throws SQLException, DatabaseException {
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+			loadAccounts(new AccountFilter(clientId));
+			unitOfWork.commit();
+		}
+	}
+	
+	private static Account findById(List<Account> accounts, int accountId) {
+		for (Account account : accounts) {
+			if (account.getId() == accountId) {
+				return account;
+			}
+		}
+		return null;
+	}
+	
+	// Without a query, but only for ids the id filter knows were never created
+	private void throwIfNoSuchAccount(int accountId) throws AccountNotFoundException {
+		if (!accountIds.mightContain(accountId)) {
+			throw new AccountNotFoundException("Couldn't find account with id " + accountId);
+		}
+	}
+	
+	/*
+	 * Only runs after a lookup/update/delete matched no row for (clientId, accountId), to work out whether the account
+	 * doesn't exist at all (404) or just belongs to another client (400). The owner index usually knows without a
+	 * second query
+	 */
+	private void throwWhyAccountNotFound(int clientId, int accountId) throws AccountNotFoundException, NotClientsAccountException, DatabaseException {
+		
+		int clientIdOfAccount = ownerIndex.get(accountId);
+		if (clientIdOfAccount == AccountOwnerIndex.UNKNOWN || clientIdOfAccount == clientId) {
+			// Not indexed, or indexed as this client's even though the query didn't find it here: ask the database
+			long ownersVersion = ownerIndex.version();
+			try {
+				clientIdOfAccount = accountRepository.whosAccount(accountId); // Throws AccountNotFoundException if there's no such account
+			} catch (AccountNotFoundException e) {
+				ownerIndex.remove(accountId);
+				throw e;
+			}
+			ownerIndex.putLoaded(accountId, clientIdOfAccount, ownersVersion);
+		}
+		
+		if (clientIdOfAccount != clientId) {
+			throw new NotClientsAccountException("That account belongs to client with id: " + clientIdOfAccount);
+		}
+		
+		// It does belong to this client, so it must have been changed in between the two queries
+		throw new AccountNotFoundException("Couldn't find account with id " + accountId);
+	}
+	
 }
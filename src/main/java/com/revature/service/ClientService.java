@@ -1,49 +1,211 @@
 package com.revature.service;
 
-import java.sql.Connection;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 
 import com.revature.dao.ClientRepository;
+import com.revature.dao.RowCallback;
 import com.revature.dto.GetClientDTO;
+import com.revature.dto.PageDTO;
 import com.revature.dto.PostClientDTO;
 import com.revature.exceptions.AddClientException;
 import com.revature.exceptions.BadParameterException;
 import com.revature.exceptions.ClientNotFoundException;
 import com.revature.exceptions.DatabaseException;
 import com.revature.exceptions.UpdateClientException;
+import com.revature.model.Account;
 import com.revature.model.Client;
-import com.revature.util.ConnectionUtil;
+import com.revature.util.AccountListCache;
+import com.revature.util.AccountOwnerIndex;
+import com.revature.util.CachedValue;
+import com.revature.util.ClientCache;
+import com.revature.util.IdFilter;
+import com.revature.util.PageUtil;
+import com.revature.util.SingleFlight;
+import com.revature.util.StaleRefresher;
+import com.revature.util.UnitOfWork;
 
 public class ClientService {
 
 	private ClientRepository clientRepository;
+	private ClientCache clientCache;
+	private AccountListCache accountCache;
+	private AccountOwnerIndex ownerIndex;
+	private IdFilter clientIds;
+	private StaleRefresher staleRefresher;
+	
+	// Concurrent identical reads share one query, see SingleFlight
+	private SingleFlight<String, List<GetClientDTO>> clientPageLoads;
+	private SingleFlight<Integer, GetClientDTO> clientLoads;
+	private SingleFlight<Integer, Client> clientWithAccountsLoads;
 	
 	public ClientService() {
 		this.clientRepository = new ClientRepository();
+		this.clientCache = ClientCache.shared();
+		this.accountCache = AccountListCache.shared();
+		this.ownerIndex = AccountOwnerIndex.shared();
+		this.clientIds = IdFilter.clients();
+		this.staleRefresher = StaleRefresher.shared();
+		this.clientPageLoads = SingleFlight.shared("clientsPage");
+		this.clientLoads = SingleFlight.shared("clientById");
+		this.clientWithAccountsLoads = SingleFlight.shared("clientWithAccounts");
 	}
 	
 	public ClientService(ClientRepository clientRepository) {
 		this.clientRepository = clientRepository;
+		this.clientCache = new ClientCache(100, 60); // Its own cache, so nothing leaks between services (tests)
+		this.accountCache = new AccountListCache(1000, 60);
+		this.ownerIndex = new AccountOwnerIndex(1000);
+		this.clientIds = new IdFilter("clientIds", 10); // Never built, so it never short-circuits anything
+		this.staleRefresher = new StaleRefresher(1, 10, 1000);
+		this.clientPageLoads = new SingleFlight<>("clientsPage");
+		this.clientLoads = new SingleFlight<>("clientById");
+		this.clientWithAccountsLoads = new SingleFlight<>("clientWithAccounts");
 	}
 	
-	public List<GetClientDTO> getAllClients() throws DatabaseException {
-
-		return clientRepository.getAllClients();
+	// Reloads the client id filter from the database, see IdFilter
+	public void rebuildIdFilter() {
+		clientIds.rebuild(consumer -> {
+			try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+				clientRepository.scanClientIds(consumer);
+				unitOfWork.commit();
+			} catch (SQLException e) {
+				throw new DatabaseException("Something went wrong when trying to get a connection. "
+						+ "Exception message: " + e.getMessage());
+			}
+		});
+	}
+	
+	// Every client without building the whole list, each one goes to the callback as it comes off the connection
+	public void streamAllClients(RowCallback<GetClientDTO> callback) throws DatabaseException, IOException {
+		
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+			clientRepository.streamAllClients(callback);
+			unitOfWork.commit();
+		} catch (SQLException e) {
+			throw new DatabaseException("Something went wrong when trying to get a connection. "
+					+ "Exception message: " + e.getMessage());
+		}
+		
+	}
+	
+	// One page of clients. cursor is the nextCursor of the previous page (null for the first page)
+	public PageDTO<GetClientDTO> getClientsPage(String cursor, String limit) throws DatabaseException, BadParameterException {
+		
+		Integer afterId = PageUtil.decodeCursor(cursor);
+		int pageSize = PageUtil.pageSize(limit);
+		
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+			int after = afterId == null ? 0 : afterId;
+			List<GetClientDTO> clientList = clientPageLoads.<DatabaseException, RuntimeException>run(after + "/" + pageSize,
+					() -> clientRepository.getClientsPage(after, pageSize + 1));
+			unitOfWork.commit();
+			return PageUtil.toPage(clientList, pageSize, GetClientDTO::getId);
+		} catch (SQLException e) {
+			throw new DatabaseException("Something went wrong when trying to get a connection. "
+					+ "Exception message: " + e.getMessage());
+		}
 		
 	}
 	
 	public GetClientDTO getClientById(String stringId) throws ClientNotFoundException, DatabaseException, BadParameterException {
 		
-		try {
-			int clientId = Integer.parseInt(stringId);
-			return clientRepository.getClientById(clientId);
-		} catch (NumberFormatException e) {
-			throw new BadParameterException("Client id must be an int. User Provided: " + stringId);
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+			try {
+				int clientId = Integer.parseInt(stringId);
+				
+				// Read through the cache, most calls are just checking the client exists
+				GetClientDTO client = clientCache.get(clientId);
+				if (client == null) {
+					throwIfNoSuchClient(clientId);
+					try {
+						client = clientLoads.<ClientNotFoundException, DatabaseException>run(clientId, () -> loadClient(clientId));
+					} catch (DatabaseException e) {
+						// The database is down or too slow, an older copy beats an error
+						CachedValue<GetClientDTO> stale = clientCache.getStale(clientId);
+						if (stale == null) {
+							throw e;
+						}
+						return staleRefresher.serveStale(stale, e, "client:" + clientId, () -> refresh(clientId, () -> loadClient(clientId)));
+					}
+				}
+				
+				unitOfWork.commit();
+				return client;
+			} catch (NumberFormatException e) {
+				throw new BadParameterException("Client id must be an int. User Provided: " + stringId);
+			}
+		} catch (SQLException e) {
+			throw new DatabaseException("Something went wrong when trying to get a connection. "
+					+ "Exception message: " + e.getMessage());
 		}
 		
 	}
 	
+	public Client getClientWithAccounts(String stringId) throws ClientNotFoundException, DatabaseException, BadParameterException {
+		
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+			try {
+				int clientId = Integer.parseInt(stringId);
+				
+				// Both halves of the answer may already be in memory
+				GetClientDTO cachedClient = UnitOfWork.hasPendingWrites() ? null : clientCache.get(clientId);
+				List<Account> cachedAccounts = accountCache.get(clientId);
+				if (cachedClient != null && cachedAccounts != null) {
+					Client client = new Client(clientId, cachedClient.getFirstName(), cachedClient.getLastName());
+					client.setAccounts(cachedAccounts);
+					unitOfWork.commit();
+					return client;
+				}
+				
+				throwIfNoSuchClient(clientId);
+				Client client;
+				try {
+					client = clientWithAccountsLoads.<ClientNotFoundException, DatabaseException>run(clientId, () -> loadClientWithAccounts(clientId));
+				} catch (DatabaseException e) {
+					CachedValue<GetClientDTO> staleClient = clientCache.getStale(clientId);
+					CachedValue<List<Account>> staleAccounts = accountCache.getStale(clientId);
+					if (staleClient == null || staleAccounts == null) {
+						throw e;
+					}
+					
+					// Reported as old as the older of the two
+					CachedValue<?> older = staleClient.getLoadedAtNanos() - staleAccounts.getLoadedAtNanos() < 0 ? staleClient : staleAccounts;
+					staleRefresher.serveStale(older, e, "clientWithAccounts:" + clientId, () -> refresh(clientId, () -> loadClientWithAccounts(clientId)));
+					
+					client = new Client(clientId, staleClient.getValue().getFirstName(), staleClient.getValue().getLastName());
+					client.setAccounts(staleAccounts.getValue());
+					return client;
+				}
+				
+				unitOfWork.commit();
+				return client;
+			} catch (NumberFormatException e) {
+				throw new BadParameterException("Client id must be an int. User Provided: " + stringId);
+			}
+		} catch (SQLException e) {
+			throw new DatabaseException("Something went wrong when trying to get a connection. "
+					+ "Exception message: " + e.getMessage());
+		}
+		
+	}
+	
+	// The next `limit` clients after afterId, each with its accounts. Callers walk the whole table by passing
+	// the last id of one chunk as afterId of the next
+	public List<Client> getClientsWithAccounts(int afterId, int limit) throws DatabaseException {
+
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+			List<Client> clientList = clientRepository.getClientsWithAccounts(afterId, limit);
+			unitOfWork.commit();
+			return clientList;
+		} catch (SQLException e) {
+			throw new DatabaseException("Something went wrong when trying to get a connection. "
+					+ "Exception message: " + e.getMessage());
+		}
+
+	}
+
 	// Add a client
 	public Client addClient(PostClientDTO clientDTO) throws DatabaseException, AddClientException {
 		
@@ -51,14 +213,13 @@ public class ClientService {
 			throw new AddClientException("User tried to add a client without a first or last name");
 		}
 		
-		try {
-			
-			Connection connection = ConnectionUtil.getConnection(); // Have control over a connection object here
-			this.clientRepository.setConnection(connection); // pass the connection into the DAO
-			connection.setAutoCommit(false); // Turn off autocommit so we have control over commit v. not committing
-			
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) { // Joins the request's connection and transaction
 			Client client = clientRepository.addClient(clientDTO);
-			connection.commit(); // This is when changes will actually be persisted
+			clientIds.add(client.getId());
+			GetClientDTO newClient = new GetClientDTO(client.getId(), client.getFirstName(), client.getLastName());
+			UnitOfWork.afterCommit(() -> clientCache.put(newClient.getId(), newClient));
+			
+			unitOfWork.commit(); // This is when changes will actually be persisted
 			return client;
 			
 		} catch (SQLException e) {
@@ -74,16 +235,16 @@ public class ClientService {
 			throw new UpdateClientException("User tried to update a client without giving a first and last name to update");
 		}
 		
-		try {
-			
-			Connection connection = ConnectionUtil.getConnection();
-			this.clientRepository.setConnection(connection);
-			connection.setAutoCommit(false);
-			
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
 			try {
 				int id = Integer.parseInt(clientId);
 				GetClientDTO updatedClient = clientRepository.updateClient(id, clientDTO);
-				connection.commit();
+				
+				// Gone now so nobody reads the old name from the cache, back with the new one once it's committed
+				clientCache.invalidate(id);
+				UnitOfWork.afterCommit(() -> clientCache.put(id, updatedClient));
+				
+				unitOfWork.commit();
 				return updatedClient;
 			} catch (NumberFormatException e) {
 				throw new BadParameterException("Client id must be an int. User provided: " + clientId);
@@ -97,16 +258,21 @@ public class ClientService {
 
 	public boolean deleteClient(String clientId) throws ClientNotFoundException, DatabaseException, BadParameterException {
 
-		try {
-			
-			Connection connection = ConnectionUtil.getConnection();
-			this.clientRepository.setConnection(connection);
-			connection.setAutoCommit(false);
-			
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
 			try {
 				int id = Integer.parseInt(clientId);
 				boolean didUpdate = clientRepository.deleteClient(id);
-				connection.commit();
+				
+				// Again after the commit, in case a read put it back in between
+				clientCache.invalidate(id);
+				accountCache.invalidate(id); // The accounts go with the client (ON DELETE CASCADE)
+				UnitOfWork.afterCommit(() -> {
+					clientCache.invalidate(id);
+					accountCache.invalidate(id);
+					ownerIndex.removeClient(id);
+				});
+				
+				unitOfWork.commit();
 				return didUpdate;
 			} catch (NumberFormatException e) {
 				throw new BadParameterException("Client id must be an int. User provided: " + clientId);
@@ -118,4 +284,41 @@ public class ClientService {
 		
 	}
 
+	// Reads the client and puts it in the cache. Needs a unit of work
+	private GetClientDTO loadClient(int clientId) throws ClientNotFoundException, DatabaseException {
+		long version = clientCache.version();
+		GetClientDTO client = clientRepository.getClientById(clientId);
+		clientCache.putLoaded(clientId, client, version);
+		return client;
+	}
+	
+	// Reads the client with its accounts and puts both in the caches. Needs a unit of work
+	private Client loadClientWithAccounts(int clientId) throws ClientNotFoundException, DatabaseException {
+		long clientVersion = clientCache.version();
+		long accountsVersion = accountCache.version();
+		Client client = clientRepository.getClientWithAccounts(clientId);
+		clientCache.putLoaded(clientId, new GetClientDTO(clientId, client.getFirstName(), client.getLastName()), clientVersion);
+		accountCache.putLoaded(clientId, client.getAccounts(), accountsVersion);
+		return client;
+	}
+	
+	// Background reload of something that was served stale, in its own unit of work
+	private void refresh(int clientId, StaleRefresher.Refresh load) throws Exception {
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+			load.run();
+			unitOfWork.commit();
+		} catch (ClientNotFoundException e) {
+			// Deleted while we couldn't see the database
+			clientCache.invalidate(clientId);
+			accountCache.invalidate(clientId);
+		}
+	}
+	
+	// Without a query, but only for ids the id filter knows were never created
+	private void throwIfNoSuchClient(int clientId) throws ClientNotFoundException {
+		if (!clientIds.mightContain(clientId)) {
+			throw new ClientNotFoundException("Couldn't find a client with that id. Id provided: " + clientId);
+		}
+	}
+
 }
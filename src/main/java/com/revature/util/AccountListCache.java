@@ -0,0 +1,179 @@
+package com.revature.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.revature.dto.CacheStatsDTO;
+import com.revature.model.Account;
+
+/*
+ * Every account of a client, by client id. With a client's full list in memory, any AccountFilter (amount ranges,
+ * type, sorting, paging) can be answered with AccountFilter.apply instead of a query.
+ *
+ * The size limit is the total number of accounts held (each client's list weighs its account count + 1), so a few
+ * clients with huge lists can't use up memory the way an entry count limit would allow.
+ *
+ * Lists are only ever put in whole, when a read happened to load a client's complete list anyway. Account changes
+ * bump a version as soon as they're written and again when they're applied to the cached list after commit, so a
+ * read that was loading the list at the same time (before or after the write, but before the commit) doesn't put a
+ * copy from before the change (same idea as ClientCache). A unit of work with uncommitted writes never reads from
+ * here, so it always sees its own changes.
+ *
+ * Like ClientCache, a list is fresh for account_cache_ttl_seconds after it was read, and getStale() can hand it out
+ * for another account_cache_max_stale_seconds when the database can't be reached. Applying a committed change
+ * doesn't make a list any fresher, it keeps the time it was read.
+ *
+ * Cached lists are unmodifiable and kept in id order.
+ */
+public class AccountListCache {
+
+	private static final long defaultMaxAccounts = ConfigUtil.getLong("account_cache_max_accounts", 100000);
+	private static final long defaultTtlSeconds = ConfigUtil.getLong("account_cache_ttl_seconds", 300);
+	private static final long defaultMaxStaleSeconds = ConfigUtil.getLong("account_cache_max_stale_seconds", 3600);
+
+	private static final AccountListCache shared = new AccountListCache(defaultMaxAccounts, defaultTtlSeconds, defaultMaxStaleSeconds);
+
+	private final Cache<Integer, CachedValue<List<Account>>> accountsByClient;
+	private final long maxAccounts;
+	private final long ttlSeconds;
+	private final long maxStaleSeconds;
+	private final AtomicLong version = new AtomicLong();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder staleServed = new LongAdder();
+
+	public AccountListCache(long maxAccounts, long ttlSeconds) {
+		this(maxAccounts, ttlSeconds, 0);
+	}
+
+	public AccountListCache(long maxAccounts, long ttlSeconds, long maxStaleSeconds) {
+		this.maxAccounts = maxAccounts;
+		this.ttlSeconds = ttlSeconds;
+		this.maxStaleSeconds = maxStaleSeconds;
+		this.accountsByClient = Caffeine.newBuilder()
+				.maximumWeight(maxAccounts)
+				.weigher((Integer clientId, CachedValue<List<Account>> accounts) -> accounts.getValue().size() + 1)
+				.expireAfterWrite(ttlSeconds + maxStaleSeconds, TimeUnit.SECONDS)
+				.recordStats()
+				.build();
+	}
+
+	// The cache every service made with its default constructor shares
+	public static AccountListCache shared() {
+		return shared;
+	}
+
+	// All of the client's accounts, or null if they aren't cached and fresh (or can't be trusted by this unit of work)
+	public List<Account> get(int clientId) {
+		if (UnitOfWork.hasPendingWrites()) {
+			return null;
+		}
+
+		CachedValue<List<Account>> cached = accountsByClient.getIfPresent(clientId);
+		if (cached == null || !cached.isYoungerThan(ttlSeconds)) {
+			misses.increment();
+			CacheAccessEvent.record("accounts", clientId, false);
+			return null;
+		}
+		hits.increment();
+		CacheAccessEvent.record("accounts", clientId, true);
+		return cached.getValue();
+	}
+
+	// The client's accounts even if they're past their ttl (up to the max staleness), for when the database can't
+	// be reached. null for requests that mustn't be served stale (see StaleRefresher.mayServeStale)
+	public CachedValue<List<Account>> getStale(int clientId) {
+		if (!StaleRefresher.mayServeStale()) {
+			return null;
+		}
+
+		CachedValue<List<Account>> cached = accountsByClient.getIfPresent(clientId);
+		if (cached == null || !cached.isYoungerThan(ttlSeconds + maxStaleSeconds)) {
+			return null;
+		}
+		staleServed.increment();
+		return cached;
+	}
+
+	// Take this before loading a client's accounts from the database and hand it to putLoaded afterwards
+	public long version() {
+		return version.get();
+	}
+
+	// accounts has to be every account the client has
+	public void putLoaded(int clientId, List<Account> accounts, long versionBeforeLoad) {
+		if (UnitOfWork.hasPendingWrites()) {
+			return;
+		}
+
+		CachedValue<List<Account>> loaded = new CachedValue<>(sortedCopy(accounts));
+		accountsByClient.asMap().merge(clientId, loaded, (old, ignored) -> old.isYoungerThan(ttlSeconds) ? old : loaded);
+		if (version.get() != versionBeforeLoad) {
+			accountsByClient.invalidate(clientId);
+		}
+	}
+
+	// Call as soon as one of the client's accounts is written, before the transaction commits
+	public void accountChanging() {
+		version.incrementAndGet();
+	}
+
+	// The rest are for changes that just got committed. Each bumps the version again, a read that took its version
+	// after accountChanging() may still have queried before the commit
+
+	public void added(int clientId, Account account) {
+		version.incrementAndGet();
+		accountsByClient.asMap().computeIfPresent(clientId, (id, cached) -> {
+			List<Account> changed = new ArrayList<>(cached.getValue());
+			changed.add(account);
+			return new CachedValue<>(sortedCopy(changed), cached.getLoadedAtNanos());
+		});
+	}
+
+	public void updated(int clientId, Account account) {
+		version.incrementAndGet();
+		accountsByClient.asMap().computeIfPresent(clientId, (id, cached) -> {
+			List<Account> changed = new ArrayList<>(cached.getValue());
+			changed.removeIf(existing -> existing.getId() == account.getId());
+			changed.add(account);
+			return new CachedValue<>(sortedCopy(changed), cached.getLoadedAtNanos());
+		});
+	}
+
+	public void removed(int clientId, int accountId) {
+		version.incrementAndGet();
+		accountsByClient.asMap().computeIfPresent(clientId, (id, cached) -> {
+			List<Account> changed = new ArrayList<>(cached.getValue());
+			changed.removeIf(existing -> existing.getId() == accountId);
+			return new CachedValue<>(Collections.unmodifiableList(changed), cached.getLoadedAtNanos());
+		});
+	}
+
+	public void invalidate(int clientId) {
+		version.incrementAndGet();
+		accountsByClient.invalidate(clientId);
+	}
+
+	public CacheStatsDTO getStats() {
+		long cachedAccounts = accountsByClient.policy().eviction().get().weightedSize().orElse(0);
+		CacheStatsDTO stats = new CacheStatsDTO("accounts", cachedAccounts, maxAccounts, hits.sum(), misses.sum(),
+				accountsByClient.stats().evictionCount());
+		stats.setStaleServed(staleServed.sum());
+		return stats;
+	}
+
+	private static List<Account> sortedCopy(List<Account> accounts) {
+		List<Account> copy = new ArrayList<>(accounts);
+		copy.sort(Comparator.comparingInt(Account::getId));
+		return Collections.unmodifiableList(copy);
+	}
+
+}
@@ -0,0 +1,207 @@
+package com.revature.util;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.revature.dto.CacheStatsDTO;
+
+/*
+ * Which client owns each account, accountId -> clientId, so working out why an account can't be found (doesn't exist
+ * or belongs to someone else) usually doesn't need a query.
+ *
+ * Ids are kept as plain ints in one open addressing table (linear probing), key and value side by side in an
+ * AtomicIntegerArray. That's 8 bytes a slot, around 11 bytes an entry at the 0.75 load factor, instead of the 60+
+ * a HashMap<Integer, Integer> entry costs with its node and two boxed Integers.
+ *
+ * Reads don't lock. A writer stores the value before the key, and both are volatile writes, so a reader that finds
+ * the key also sees its value. Removed keys become tombstones that are never reused for another key (a reader could
+ * otherwise match the old key and read the new value); they're dropped when the table is rebuilt. Writers take the
+ * object's lock, and a rebuilt table is swapped in whole.
+ *
+ * A read that was already running when an account was deleted can still see its row (REPEATABLE READ), so it mustn't
+ * put the owner back afterwards: every removal bumps a version, and putLoaded undoes its put if the version moved
+ * while the read ran (like ClientCache).
+ *
+ * Account and client ids come from AUTO_INCREMENT, so 0 and -1 are free to mean empty and removed. Once
+ * account_owner_index_max_entries accounts are held, new ones just aren't added (lookups fall back to the database).
+ */
+public class AccountOwnerIndex {
+
+	public static final int UNKNOWN = 0; // What get returns for an account that isn't in the index
+
+	private static final int EMPTY = 0;
+	private static final int REMOVED = -1;
+	private static final int MIN_CAPACITY = 16; // Slots, always a power of two
+
+	private static final int defaultMaxEntries = ConfigUtil.getInt("account_owner_index_max_entries", 2000000);
+
+	private static final AccountOwnerIndex shared = new AccountOwnerIndex(defaultMaxEntries);
+
+	private final int maxEntries;
+	private volatile AtomicIntegerArray table = new AtomicIntegerArray(MIN_CAPACITY * 2);
+	private int size; // Live keys, only touched while holding the lock
+	private int used; // Live keys and tombstones
+	private final AtomicLong version = new AtomicLong(); // Bumped by every removal
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public AccountOwnerIndex(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	// The index every service made with its default constructor shares
+	public static AccountOwnerIndex shared() {
+		return shared;
+	}
+
+	// The id of the client that owns the account, UNKNOWN if the index doesn't know
+	public int get(int accountId) {
+		AtomicIntegerArray slots = table;
+		int mask = slots.length() / 2 - 1;
+
+		for (int slot = mix(accountId) & mask; ; slot = (slot + 1) & mask) {
+			int key = slots.get(slot * 2);
+			if (key == accountId) {
+				hits.increment();
+				CacheAccessEvent.record("accountOwners", accountId, true);
+				return slots.get(slot * 2 + 1);
+			}
+			if (key == EMPTY) {
+				misses.increment();
+				CacheAccessEvent.record("accountOwners", accountId, false);
+				return UNKNOWN;
+			}
+		}
+	}
+
+	// Take this before reading an owner from the database and hand it to putLoaded afterwards
+	public long version() {
+		return version.get();
+	}
+
+	// Use for owners just read from the database, skipped when this unit of work has writes that may not commit
+	public void putLoaded(int accountId, int clientId, long versionBeforeLoad) {
+		if (UnitOfWork.hasPendingWrites()) {
+			return;
+		}
+
+		put(accountId, clientId);
+		if (version.get() != versionBeforeLoad) {
+			remove(accountId); // Something was removed while we were reading, it may have been this account
+		}
+	}
+
+	public synchronized void put(int accountId, int clientId) {
+		AtomicIntegerArray slots = table;
+		int mask = slots.length() / 2 - 1;
+
+		int slot = mix(accountId) & mask;
+		for (int key = slots.get(slot * 2); key != EMPTY; key = slots.get(slot * 2)) {
+			if (key == accountId) {
+				slots.set(slot * 2 + 1, clientId); // An account never changes owner, but keep the latest anyway
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		if (size >= maxEntries) {
+			return;
+		}
+
+		slots.set(slot * 2 + 1, clientId);
+		slots.set(slot * 2, accountId); // Key last, readers only look at the value after finding the key
+		size++;
+		used++;
+
+		if (used * 4L > (slots.length() / 2) * 3L) {
+			rebuild();
+		}
+	}
+
+	public synchronized void remove(int accountId) {
+		version.incrementAndGet();
+		AtomicIntegerArray slots = table;
+		int mask = slots.length() / 2 - 1;
+
+		for (int slot = mix(accountId) & mask; ; slot = (slot + 1) & mask) {
+			int key = slots.get(slot * 2);
+			if (key == accountId) {
+				slots.set(slot * 2, REMOVED);
+				size--;
+				return;
+			}
+			if (key == EMPTY) {
+				return;
+			}
+		}
+	}
+
+	// Every account of the client, for when the client is deleted (its accounts go with it). Walks the whole table,
+	// but deleting a client is rare
+	public synchronized void removeClient(int clientId) {
+		version.incrementAndGet();
+		AtomicIntegerArray slots = table;
+
+		for (int slot = 0; slot < slots.length() / 2; slot++) {
+			int key = slots.get(slot * 2);
+			if (key != EMPTY && key != REMOVED && slots.get(slot * 2 + 1) == clientId) {
+				slots.set(slot * 2, REMOVED);
+				size--;
+			}
+		}
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public CacheStatsDTO getStats() {
+		return new CacheStatsDTO("accountOwners", size(), maxEntries, hits.sum(), misses.sum(), 0);
+	}
+
+	/*
+	 * Copies the live keys into a fresh table, dropping the tombstones. Sized so the live keys fill at most half of
+	 * it, which leaves room to grow before the next rebuild (or the same size again when it was mostly tombstones)
+	 */
+	private void rebuild() {
+		AtomicIntegerArray old = table;
+
+		int capacity = MIN_CAPACITY;
+		while (capacity < size * 2L) {
+			capacity *= 2;
+		}
+
+		AtomicIntegerArray slots = new AtomicIntegerArray(capacity * 2);
+		int mask = capacity - 1;
+		for (int oldSlot = 0; oldSlot < old.length() / 2; oldSlot++) {
+			int key = old.get(oldSlot * 2);
+			if (key == EMPTY || key == REMOVED) {
+				continue;
+			}
+
+			int slot = mix(key) & mask;
+			while (slots.get(slot * 2) != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			slots.set(slot * 2 + 1, old.get(oldSlot * 2 + 1));
+			slots.set(slot * 2, key);
+		}
+
+		used = size;
+		table = slots; // Readers still on the old table finish there, it's just no longer written to
+	}
+
+	// Ids are sequential, spread them over the table (the finalizer of MurmurHash3)
+	private static int mix(int id) {
+		int h = id;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+}
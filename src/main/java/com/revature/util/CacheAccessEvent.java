@@ -0,0 +1,49 @@
+package com.revature.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Flight Recorder event for a lookup in one of the caches (clients, accounts, accountOwners, responses, statements):
+ * which cache, which key and whether it was there. An instant, it has no duration.
+ */
+@Name("com.revature.CacheAccess")
+@Label("Cache Access")
+@Category({ "Bank", "Cache" })
+@StackTrace(false)
+public class CacheAccessEvent extends Event {
+
+	@Label("Cache")
+	String cache;
+
+	@Label("Key")
+	String key;
+
+	@Label("Hit")
+	boolean hit;
+
+	public static void record(String cache, int key, boolean hit) {
+		CacheAccessEvent event = new CacheAccessEvent();
+		if (event.shouldCommit()) {
+			event.commit(cache, String.valueOf(key), hit);
+		}
+	}
+
+	public static void record(String cache, String key, boolean hit) {
+		CacheAccessEvent event = new CacheAccessEvent();
+		if (event.shouldCommit()) {
+			event.commit(cache, key, hit);
+		}
+	}
+
+	private void commit(String cache, String key, boolean hit) {
+		this.cache = cache;
+		this.key = key;
+		this.hit = hit;
+		commit();
+	}
+
+}
@@ -0,0 +1,39 @@
+package com.revature.util;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * A cached value and when it was read from the database, so the caches can tell a fresh value from one that's only
+ * good enough to serve while the database is unreachable
+ */
+public class CachedValue<V> {
+
+	private final V value;
+	private final long loadedAtNanos;
+
+	public CachedValue(V value) {
+		this(value, System.nanoTime());
+	}
+
+	public CachedValue(V value, long loadedAtNanos) {
+		this.value = value;
+		this.loadedAtNanos = loadedAtNanos;
+	}
+
+	public V getValue() {
+		return value;
+	}
+
+	public long getLoadedAtNanos() {
+		return loadedAtNanos;
+	}
+
+	public long getAgeSeconds() {
+		return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - loadedAtNanos);
+	}
+
+	public boolean isYoungerThan(long seconds) {
+		return System.nanoTime() - loadedAtNanos < TimeUnit.SECONDS.toNanos(seconds);
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.revature.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.revature.dto.CacheStatsDTO;
+import com.revature.dto.GetClientDTO;
+
+/*
+ * Clients by id, in front of ClientRepository.getClientById. Almost every account endpoint checks that the client
+ * exists first, and clients hardly ever change, so most of those checks can be answered from memory.
+ *
+ * Caffeine evicts using how often each client was used recently (W-TinyLFU), so a burst of one off lookups doesn't
+ * push out the clients that are asked for all the time. A client is fresh for client_cache_ttl_seconds after it was
+ * read, as a safety net for changes made to the database behind the application's back. After that get() treats it
+ * as missing, but it's kept for another client_cache_max_stale_seconds so getStale() can still serve it when the
+ * database can't be reached.
+ *
+ * Writes go through ClientService, which invalidates the client straight away and again once the change commits.
+ * A read that was already loading when a write happened can't put its (possibly old) copy back: every invalidation
+ * bumps a version, and a load only stays in the cache if the version didn't move while it was loading.
+ */
+public class ClientCache {
+
+	private static final long defaultMaxSize = ConfigUtil.getLong("client_cache_max_size", 10000);
+	private static final long defaultTtlSeconds = ConfigUtil.getLong("client_cache_ttl_seconds", 300);
+	private static final long defaultMaxStaleSeconds = ConfigUtil.getLong("client_cache_max_stale_seconds", 3600);
+
+	private static final ClientCache shared = new ClientCache(defaultMaxSize, defaultTtlSeconds, defaultMaxStaleSeconds);
+
+	private final Cache<Integer, CachedValue<GetClientDTO>> clients;
+	private final long maxSize;
+	private final long ttlSeconds;
+	private final long maxStaleSeconds;
+	private final AtomicLong version = new AtomicLong();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder staleServed = new LongAdder();
+
+	public ClientCache(long maxSize, long ttlSeconds) {
+		this(maxSize, ttlSeconds, 0);
+	}
+
+	public ClientCache(long maxSize, long ttlSeconds, long maxStaleSeconds) {
+		this.maxSize = maxSize;
+		this.ttlSeconds = ttlSeconds;
+		this.maxStaleSeconds = maxStaleSeconds;
+		this.clients = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttlSeconds + maxStaleSeconds, TimeUnit.SECONDS)
+				.recordStats()
+				.build();
+	}
+
+	// The cache every ClientService made with the default constructor shares
+	public static ClientCache shared() {
+		return shared;
+	}
+
+	// The client if it's cached and fresh
+	public GetClientDTO get(int clientId) {
+		CachedValue<GetClientDTO> cached = clients.getIfPresent(clientId);
+		if (cached == null || !cached.isYoungerThan(ttlSeconds)) {
+			misses.increment();
+			CacheAccessEvent.record("clients", clientId, false);
+			return null;
+		}
+		hits.increment();
+		CacheAccessEvent.record("clients", clientId, true);
+		return cached.getValue();
+	}
+
+	// The client even if it's past its ttl (up to the max staleness), for when the database can't be reached. null
+	// for requests that mustn't be served stale (see StaleRefresher.mayServeStale)
+	public CachedValue<GetClientDTO> getStale(int clientId) {
+		if (!StaleRefresher.mayServeStale()) {
+			return null;
+		}
+
+		CachedValue<GetClientDTO> cached = clients.getIfPresent(clientId);
+		if (cached == null || !cached.isYoungerThan(ttlSeconds + maxStaleSeconds)) {
+			return null;
+		}
+		staleServed.increment();
+		return cached;
+	}
+
+	// Take this before loading a client from the database and hand it to putLoaded afterwards
+	public long version() {
+		return version.get();
+	}
+
+	public void putLoaded(int clientId, GetClientDTO client, long versionBeforeLoad) {
+		if (UnitOfWork.hasPendingWrites()) {
+			return; // Read inside a transaction that changed things, might never be committed
+		}
+
+		// Doesn't replace a fresh value, that came from a write that committed while we were loading
+		CachedValue<GetClientDTO> loaded = new CachedValue<>(client);
+		clients.asMap().merge(clientId, loaded, (old, ignored) -> old.isYoungerThan(ttlSeconds) ? old : loaded);
+		if (version.get() != versionBeforeLoad) {
+			clients.invalidate(clientId); // Something was written while we were loading, what we read may be old
+		}
+	}
+
+	// For values that just got committed
+	public void put(int clientId, GetClientDTO client) {
+		clients.put(clientId, new CachedValue<>(client));
+	}
+
+	public void invalidate(int clientId) {
+		version.incrementAndGet();
+		clients.invalidate(clientId);
+	}
+
+	public CacheStatsDTO getStats() {
+		CacheStatsDTO stats = new CacheStatsDTO("clients", clients.estimatedSize(), maxSize, hits.sum(), misses.sum(),
+				clients.stats().evictionCount());
+		stats.setStaleServed(staleServed.sum());
+		return stats;
+	}
+
+}
@@ -0,0 +1,181 @@
+package com.revature.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.revature.dto.LimiterStatsDTO;
+import com.revature.exceptions.ServerBusyException;
+
+import io.javalin.http.Context;
+
+/*
+ * Admission control: how many requests may be in the server at once, learned from how long they take.
+ *
+ * Every finished request is a sample of its latency. The limiter keeps a short average (the last ten or so requests)
+ * and a long one (the last few hundred). While the short one stays within latency_tolerance of the long one, the
+ * limit creeps up by about its square root. Once requests start queueing somewhere (the executors, the connection
+ * pool, the database) the short average rises above the long one and the limit shrinks in proportion, down to half
+ * per sample at most. A 5xx (a full executor queue, a connection that couldn't be had) is overload whatever the
+ * latency, and cuts the limit by a tenth on top (the multiplicative decrease of AIMD). The limit only grows while
+ * at least half of it is in use, so a quiet hour doesn't teach it that anything goes.
+ *
+ * Requests over the limit are turned away before a handler runs, with a 503 and Retry-After, so the ones that are
+ * let in still finish in their usual time instead of everything slowing down until it all times out.
+ *
+ * Reads (GET and HEAD) and writes have separate limits, so a burst of one can't shut out the other. /admin and
+ * /metrics are never limited, they're how you see what's going on while overloaded.
+ */
+public class ConcurrencyLimiter {
+
+	private static final String limiterAttribute = "concurrencyLimiter";
+	private static final String startAttribute = "concurrencyLimiterStart";
+
+	private static final boolean enabled = ConfigUtil.getBoolean("concurrency_limiting", true);
+
+	private static final ConcurrencyLimiter reads = new ConcurrencyLimiter("reads",
+			ConfigUtil.getInt("read_limit_initial", 100),
+			ConfigUtil.getInt("read_limit_min", 10),
+			ConfigUtil.getInt("read_limit_max", 1000));
+	private static final ConcurrencyLimiter writes = new ConcurrencyLimiter("writes",
+			ConfigUtil.getInt("write_limit_initial", 25),
+			ConfigUtil.getInt("write_limit_min", 2),
+			ConfigUtil.getInt("write_limit_max", 250));
+
+	// How much slower than usual requests may get before the limit comes down, in percent
+	private static final double tolerance = ConfigUtil.getInt("latency_tolerance_percent", 150) / 100.0;
+
+	private static final double shortWeight = 2.0 / (10 + 1);
+	private static final double longWeight = 2.0 / (500 + 1);
+	private static final double smoothing = 0.2;
+
+	private final String name;
+	private final int minLimit;
+	private final int maxLimit;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final LongAdder accepted = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+
+	// Written under the lock in release(), read without it by tryAcquire()
+	private volatile double limit;
+
+	// Average latencies in nanoseconds, 0 until the first sample
+	private double shortRtt;
+	private double longRtt;
+
+	public ConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+		this.name = name;
+		this.minLimit = Math.max(1, minLimit);
+		this.maxLimit = Math.max(this.minLimit, maxLimit);
+		this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+	}
+
+	public static ConcurrencyLimiter reads() {
+		return reads;
+	}
+
+	public static ConcurrencyLimiter writes() {
+		return writes;
+	}
+
+	public static List<LimiterStatsDTO> getAllStats() {
+		return Arrays.asList(reads.getStats(), writes.getStats());
+	}
+
+	// From the before handler. Lets the request in or throws
+	public static void admit(Context ctx) throws ServerBusyException {
+		if (!enabled || ctx.path().startsWith("/admin") || ctx.path().equals("/metrics")) {
+			return;
+		}
+
+		String method = ctx.method();
+		ConcurrencyLimiter limiter = method.equals("GET") || method.equals("HEAD") ? reads : writes;
+		if (!limiter.tryAcquire()) {
+			throw new ServerBusyException("The server is too busy to handle this request right now, try again shortly");
+		}
+		ctx.attribute(limiterAttribute, limiter);
+		ctx.attribute(startAttribute, System.nanoTime());
+	}
+
+	// From the after handler, on whichever thread finished the request. Only the first call for a request counts
+	public static void release(Context ctx) {
+		ConcurrencyLimiter limiter = ctx.attribute(limiterAttribute);
+		if (limiter == null) {
+			return;
+		}
+		ctx.attribute(limiterAttribute, null);
+
+		long start = ctx.attribute(startAttribute);
+		limiter.release(System.nanoTime() - start, ctx.status() >= 500);
+	}
+
+	public boolean tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= (int) limit) {
+				rejected.increment();
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				accepted.increment();
+				return true;
+			}
+		}
+	}
+
+	// A request let in by tryAcquire() finished after rttNanos. overloaded if it failed because something was full
+	public void release(long rttNanos, boolean overloaded) {
+		int wasInFlight = inFlight.getAndDecrement();
+		if (overloaded) {
+			dropped.increment();
+		}
+
+		// Only in memory arithmetic under the lock, nothing here blocks
+		synchronized (this) {
+			if (shortRtt == 0) {
+				shortRtt = rttNanos;
+				longRtt = rttNanos;
+			} else {
+				shortRtt += (rttNanos - shortRtt) * shortWeight;
+				longRtt += (rttNanos - longRtt) * longWeight;
+			}
+
+			// After latency has shifted for good (a bigger table, a slower disk), let the long average catch up
+			if (longRtt > shortRtt * 2) {
+				longRtt *= 0.95;
+			}
+
+			double newLimit = limit;
+			if (overloaded) {
+				newLimit = limit * 0.9;
+			} else if (wasInFlight >= limit / 2) {
+				double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+				newLimit = limit * (1 - smoothing) + (limit * gradient + Math.sqrt(limit)) * smoothing;
+			}
+			limit = Math.min(maxLimit, Math.max(minLimit, newLimit));
+		}
+	}
+
+	public int getLimit() {
+		return (int) limit;
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public LimiterStatsDTO getStats() {
+		double shortMillis;
+		double longMillis;
+		synchronized (this) {
+			shortMillis = shortRtt / 1_000_000;
+			longMillis = longRtt / 1_000_000;
+		}
+		return new LimiterStatsDTO(name, getLimit(), minLimit, maxLimit, getInFlight(), shortMillis, longMillis,
+				accepted.sum(), rejected.sum(), dropped.sum());
+	}
+
+}
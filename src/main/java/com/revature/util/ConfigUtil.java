@@ -0,0 +1,53 @@
+package com.revature.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Reads optional tuning settings from environment variables, falling back to a default
+ * when the variable is missing or isn't a valid number
+ */
+public class ConfigUtil {
+
+	private static Logger logger = LoggerFactory.getLogger(ConfigUtil.class);
+
+	private ConfigUtil() {
+	}
+
+	public static int getInt(String name, int defaultValue) {
+		String value = System.getenv(name);
+		if (value == null || value.trim().equals("")) {
+			return defaultValue;
+		}
+
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			logger.warn("Environment variable " + name + " should be an int but was " + value + ", using " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	public static long getLong(String name, long defaultValue) {
+		String value = System.getenv(name);
+		if (value == null || value.trim().equals("")) {
+			return defaultValue;
+		}
+
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			logger.warn("Environment variable " + name + " should be a number but was " + value + ", using " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	public static boolean getBoolean(String name, boolean defaultValue) {
+		String value = System.getenv(name);
+		if (value == null || value.trim().equals("")) {
+			return defaultValue;
+		}
+		return Boolean.parseBoolean(value.trim());
+	}
+
+}
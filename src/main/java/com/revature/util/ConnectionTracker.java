@@ -0,0 +1,199 @@
+package com.revature.util;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revature.dto.ConnectionLeaseDTO;
+import com.revature.dto.ConnectionStatsDTO;
+
+/*
+ * Wraps every connection ConnectionUtil hands out so we can see who is holding connections and for how long.
+ *
+ * - Remembers the stack trace and request that borrowed each connection (the trace is only in /admin/connections
+ *   with admin_stack_traces=true)
+ * - Logs a warning (once) for any connection held longer than db_leak_threshold_ms
+ * - Counts how many connections each request borrows and warns when it goes over db_connection_budget
+ *   (with db_connection_budget_strict=true the extra borrow fails instead, handy for catching regressions)
+ */
+public class ConnectionTracker {
+
+	private static Logger logger = LoggerFactory.getLogger(ConnectionTracker.class);
+
+	private static final long leakThresholdMillis = ConfigUtil.getLong("db_leak_threshold_ms", 10000);
+	private static final int connectionBudget = ConfigUtil.getInt("db_connection_budget", 1);
+	private static final boolean strictBudget = ConfigUtil.getBoolean("db_connection_budget_strict", false);
+
+	// Where each open connection was borrowed, in /admin/connections. Off unless asked for, it names internal classes
+	private static final boolean showStackTraces = ConfigUtil.getBoolean("admin_stack_traces", false);
+
+	private static final Map<Long, Lease> openLeases = new ConcurrentHashMap<>();
+	private static final AtomicLong nextId = new AtomicLong();
+	private static final AtomicLong acquired = new AtomicLong();
+	private static final AtomicLong released = new AtomicLong();
+	private static final AtomicLong longHeld = new AtomicLong();
+	private static final AtomicLong budgetExceeded = new AtomicLong();
+
+	private static ScheduledExecutorService leakChecker;
+
+	private ConnectionTracker() {
+	}
+
+	// Starts the background check for connections that were borrowed and never given back
+	public static synchronized void start() {
+		if (leakChecker != null) {
+			return;
+		}
+
+		leakChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "connection-leak-checker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = Math.max(1000, leakThresholdMillis / 2);
+		leakChecker.scheduleAtFixedRate(ConnectionTracker::checkForLeaks, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	public static synchronized void stop() {
+		if (leakChecker != null) {
+			leakChecker.shutdownNow();
+			leakChecker = null;
+		}
+	}
+
+	public static Connection track(Connection connection) throws SQLException {
+
+		RequestContext request = RequestContext.current();
+		if (request != null && request.connectionAcquired() > connectionBudget) {
+			budgetExceeded.incrementAndGet();
+			String message = request + " has borrowed " + request.getConnectionsAcquired()
+					+ " connections, the budget is " + connectionBudget;
+			if (strictBudget) {
+				connection.close();
+				throw new SQLException(message);
+			}
+			logger.warn(message, new Throwable("Borrowed here"));
+		}
+
+		Lease lease = new Lease(nextId.incrementAndGet(), request == null ? "(no request)" : request.toString());
+		openLeases.put(lease.id, lease);
+		acquired.incrementAndGet();
+
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+				new TrackingHandler(connection, lease));
+	}
+
+	public static ConnectionStatsDTO getStats() {
+		ConnectionStatsDTO stats = new ConnectionStatsDTO();
+		stats.setAcquired(acquired.get());
+		stats.setReleased(released.get());
+		stats.setLongHeld(longHeld.get());
+		stats.setBudgetExceeded(budgetExceeded.get());
+		stats.setConnectionBudget(connectionBudget);
+		stats.setLeakThresholdMillis(leakThresholdMillis);
+
+		List<ConnectionLeaseDTO> leases = new ArrayList<>();
+		for (Lease lease : openLeases.values()) {
+			leases.add(new ConnectionLeaseDTO(lease.id, lease.request, lease.thread, lease.heldMillis(),
+					showStackTraces ? lease.stackTrace() : null));
+		}
+		stats.setOpenConnections(leases);
+		return stats;
+	}
+
+	private static void checkForLeaks() {
+		for (Lease lease : openLeases.values()) {
+			if (!lease.reported && lease.heldMillis() > leakThresholdMillis) {
+				lease.reported = true;
+				longHeld.incrementAndGet();
+				logger.warn("Connection " + lease.id + " borrowed by " + lease.request + " on thread " + lease.thread
+						+ " has been held for " + lease.heldMillis() + "ms and was not returned yet", lease.acquiredAt);
+			}
+		}
+	}
+
+	private static void release(Lease lease) {
+		if (openLeases.remove(lease.id) == null) {
+			return; // Already closed once
+		}
+		released.incrementAndGet();
+
+		long heldMillis = lease.heldMillis();
+		if (!lease.reported && heldMillis > leakThresholdMillis) {
+			longHeld.incrementAndGet();
+			logger.warn("Connection " + lease.id + " borrowed by " + lease.request + " was held for " + heldMillis + "ms",
+					lease.acquiredAt);
+		}
+	}
+
+	private static class Lease {
+
+		private final long id;
+		private final String request;
+		private final String thread;
+		private final long acquiredNanos;
+		private final Throwable acquiredAt;
+		private volatile boolean reported;
+
+		private Lease(long id, String request) {
+			this.id = id;
+			this.request = request;
+			this.thread = Thread.currentThread().getName();
+			this.acquiredNanos = System.nanoTime();
+			this.acquiredAt = new Throwable("Connection " + id + " borrowed here");
+		}
+
+		private long heldMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - acquiredNanos);
+		}
+
+		private String stackTrace() {
+			StringWriter writer = new StringWriter();
+			acquiredAt.printStackTrace(new PrintWriter(writer));
+			return writer.toString();
+		}
+
+	}
+
+	private static class TrackingHandler implements InvocationHandler {
+
+		private final Connection connection;
+		private final Lease lease;
+
+		private TrackingHandler(Connection connection, Lease lease) {
+			this.connection = connection;
+			this.lease = lease;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getName().equals("close")) {
+				release(lease);
+			}
+
+			try {
+				return method.invoke(connection, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+
+	}
+
+}
@@ -1,38 +1,121 @@
 package com.revature.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
-import org.mariadb.jdbc.Driver;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 
 public class ConnectionUtil {
 
+	private static Logger logger = LoggerFactory.getLogger(ConnectionUtil.class);
+
+	// Volatile so a request thread never sees a pool that configure() is still building
+	private static volatile HikariDataSource dataSource;
+
 	private ConnectionUtil() {
 	}
-	
-	public static Connection getConnection() throws SQLException {
-		
-		Driver mariaDBDriver = new Driver();
-		DriverManager.registerDriver(mariaDBDriver);
-		
+
+	/*
+	 * Sets up the connection pool. Application calls this once at startup, so every request after that
+	 * borrows an already open connection instead of doing a fresh TCP connect + login each time
+	 */
+	public static synchronized void configure() {
+
+		if (dataSource != null) {
+			return;
+		}
+
 		// It's better to not hardcode your credentials
 		// Instead, there are two good alternative options:
 		// 1. Using a properties file stored locally on your server (make sure not to push)
 		// 2. Use environment variables
-		
+
 //		String username = "root";
 //		String password = "password";
 //		String connectionString = "jdbc:mariadb://localhost:3307/my_first_database";
-		
+
 		/*
 		 * Environment variable approach
 		 */
-		String username = System.getenv("db_username");
-		String password = System.getenv("db_password");
-		String connectionString = System.getenv("db_url");
+		HikariConfig config = new HikariConfig();
+		config.setPoolName("project0-pool");
+		config.setDriverClassName("org.mariadb.jdbc.Driver");
+		config.setJdbcUrl(System.getenv("db_url"));
+		config.setUsername(System.getenv("db_username"));
+		config.setPassword(System.getenv("db_password"));
+
+		// Pool sizing, all of these can be overridden with environment variables
+		config.setMaximumPoolSize(getMaximumPoolSize()); // Hard cap on open connections
+		config.setMinimumIdle(ConfigUtil.getInt("db_pool_min_idle", 2)); // Warm connections kept around even when idle
+		config.setConnectionTimeout(ConfigUtil.getInt("db_pool_acquire_timeout_ms", 5000)); // How long a caller waits for a free connection
+		config.setIdleTimeout(ConfigUtil.getInt("db_pool_idle_timeout_ms", 600000)); // Idle connections above min idle get evicted after this
+		config.setMaxLifetime(ConfigUtil.getInt("db_pool_max_lifetime_ms", 1800000));
+
+		// Connections are checked with Connection.isValid() when they are borrowed, so a dead connection
+		// (database restart, network blip) gets thrown away instead of handed to a repository
+		config.setValidationTimeout(ConfigUtil.getInt("db_pool_validation_timeout_ms", 1000));
+
+		// A query that gets no answer from the server fails after this instead of hanging the request forever,
+		// so reads can fall back to the cache (see StaleRefresher) when the database hangs during a failover
+		config.addDataSourceProperty("socketTimeout", String.valueOf(ConfigUtil.getInt("db_socket_timeout_ms", 10000)));
+
+		// Have the server parse and plan each statement once per connection. StatementCache keeps the
+		// PreparedStatement objects around so those server side statements actually get reused
+		if (ConfigUtil.getBoolean("db_server_prepare", true)) {
+			config.addDataSourceProperty("useServerPrepStmts", "true");
+			config.addDataSourceProperty("cachePrepStmts", "true");
+		}
+
+		// Don't refuse to start if the database isn't up yet, the pool keeps trying in the background
+		config.setInitializationFailTimeout(-1);
+
+		start(config);
+	}
+
+	// Starts the pool on these settings. ThreadModeBenchmark uses it to put a stand-in database behind the pool
+	static synchronized void start(HikariConfig config) {
+		if (dataSource != null) {
+			return;
+		}
+
+		dataSource = new HikariDataSource(config);
+		logger.info("Connection pool started with max size " + config.getMaximumPoolSize() + " and min idle " + config.getMinimumIdle());
+	}
+
+	// Hard cap on open connections, also what JdbcExecutor sizes its threads by
+	public static int getMaximumPoolSize() {
+		return ConfigUtil.getInt("db_pool_max_size", 10);
+	}
+
+	public static DataSource getDataSource() {
+		HikariDataSource current = dataSource;
+		if (current == null) {
+			configure(); // Synchronized, so only one caller builds the pool
+			current = dataSource;
+		}
+		return current;
+	}
+
+	public static Connection getConnection() throws SQLException {
+		long start = System.nanoTime();
+		Connection connection = getDataSource().getConnection();
+		QueryMetrics.connectionAcquired(System.nanoTime() - start);
 		
-		return DriverManager.getConnection(connectionString, username, password);
+		return ConnectionTracker.track(connection); // Wrapped so leaks show up in the logs and /admin/connections
+	}
+
+	public static synchronized void shutdown() {
+		if (dataSource != null) {
+			dataSource.close();
+			dataSource = null;
+			logger.info("Connection pool closed");
+		}
 	}
 
 }
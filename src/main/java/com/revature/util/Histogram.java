@@ -0,0 +1,128 @@
+package com.revature.util;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Latency histogram in the style of HdrHistogram: every power of two of microseconds is split into 16 equal
+ * buckets, so any recorded time is known to within 1/16 (about 6%) from a microsecond up to hours, in a fixed
+ * array of 560 counters. record() is an index calculation and three atomic adds: no locks and no allocation, so it
+ * can be called for every request.
+ *
+ * Reading while others record gives a view that may be a few samples behind in places, which is fine for metrics.
+ */
+public class Histogram {
+
+	private static final int subBucketBits = 4;
+	private static final int subBuckets = 1 << subBucketBits;
+
+	// Anything longer than 2^38 microseconds (about 3 days) is counted as that
+	private static final int maxExponent = 38;
+	private static final long maxMicros = (1L << maxExponent) - 1;
+
+	private static final int bucketCount = (maxExponent - subBucketBits + 1) * subBuckets;
+
+	// Upper bounds of the buckets written out for Prometheus, in seconds
+	private static final double[] exportedBounds = { 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5,
+			1, 2.5, 5, 10 };
+	private static final String[] exportedLabels = new String[exportedBounds.length];
+
+	static {
+		for (int i = 0; i < exportedBounds.length; i++) {
+			exportedLabels[i] = BigDecimal.valueOf(exportedBounds[i]).stripTrailingZeros().toPlainString(); // 0.0005, not 5.0E-4
+		}
+	}
+
+	private final AtomicLongArray counts = new AtomicLongArray(bucketCount);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sumNanos = new LongAdder();
+
+	public void record(long nanos) {
+		long micros = Math.min(maxMicros, Math.max(0, nanos / 1000));
+		counts.incrementAndGet(index(micros));
+		count.increment();
+		sumNanos.add(Math.max(0, nanos));
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getSumNanos() {
+		return sumNanos.sum();
+	}
+
+	/*
+	 * How many recorded times were at most the given one. The bucket the time falls in counts if the time is past
+	 * its middle, so this is out by at most half a bucket (1/32)
+	 */
+	public long countBelow(long nanos) {
+		long micros = nanos / 1000;
+		long below = 0;
+		for (int i = 0; i < bucketCount; i++) {
+			long lower = i == 0 ? 0 : upperBound(i - 1);
+			if (lower + upperBound(i) > 2 * micros) {
+				break;
+			}
+			below += counts.get(i);
+		}
+		return below;
+	}
+
+	// The time below which the given fraction (0.99 for the 99th percentile) of recorded times were, in nanoseconds
+	public long valueAtPercentile(double fraction) {
+		long total = 0;
+		for (int i = 0; i < bucketCount; i++) {
+			total += counts.get(i);
+		}
+
+		long wanted = (long) Math.ceil(total * fraction);
+		long seen = 0;
+		for (int i = 0; i < bucketCount; i++) {
+			seen += counts.get(i);
+			if (seen >= wanted && seen > 0) {
+				return upperBound(i) * 1000;
+			}
+		}
+		return 0;
+	}
+
+	/*
+	 * Writes this histogram as a Prometheus histogram in seconds: name_bucket{labels,le="..."} lines, then name_sum
+	 * and name_count. labels is what goes between the braces, e.g. method="GET"
+	 */
+	public void writeTo(StringBuilder out, String name, String labels) {
+		long total = getCount();
+		String prefix = labels.isEmpty() ? "" : labels + ",";
+
+		for (int i = 0; i < exportedBounds.length; i++) {
+			out.append(name).append("_bucket{").append(prefix).append("le=\"").append(exportedLabels[i]).append("\"} ")
+					.append(Math.min(total, countBelow((long) (exportedBounds[i] * 1_000_000_000)))).append('\n');
+		}
+		out.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(total).append('\n');
+		out.append(name).append("_sum{").append(labels).append("} ").append(getSumNanos() / 1e9).append('\n');
+		out.append(name).append("_count{").append(labels).append("} ").append(total).append('\n');
+	}
+
+	// Values under 16 microseconds get a bucket each, after that 16 buckets per power of two
+	static int index(long micros) {
+		if (micros < subBuckets) {
+			return (int) micros;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		int subBucket = (int) (micros >>> (exponent - subBucketBits)) & (subBuckets - 1);
+		return (exponent - subBucketBits + 1) * subBuckets + subBucket;
+	}
+
+	// The first value (in microseconds) past bucket i
+	static long upperBound(int i) {
+		if (i < subBuckets) {
+			return i + 1;
+		}
+		int exponent = i / subBuckets + subBucketBits - 1;
+		long subBucket = i % subBuckets;
+		return (subBuckets + subBucket + 1) << (exponent - subBucketBits);
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.revature.util;
+
+import io.javalin.http.Context;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Flight Recorder event for a whole HTTP request, from Application's before handler to its after handler. With
+ * QueryEvent and CacheAccessEvent (and the JDK's own GC, lock and socket events) in the same recording, a slow
+ * request can be lined up with what was going on in the JVM at the time. See src/main/resources/jfr/bank.jfc.
+ *
+ * Begun on the Jetty thread and committed on whichever thread finished the request, so in a recording it shows up
+ * on that thread. Stack traces are off unless the settings turn them on: they'd only ever show the after handler.
+ */
+@Name("com.revature.HttpRequest")
+@Label("HTTP Request")
+@Category({ "Bank", "HTTP" })
+@Description("An HTTP request, from the before handler to the after handler")
+@StackTrace(false)
+public class HttpRequestEvent extends Event {
+
+	private static final String eventAttribute = "httpRequestEvent";
+
+	@Label("Method")
+	String method;
+
+	@Label("Path")
+	String path;
+
+	@Label("Route")
+	@Description("The route template that matched, empty when no handler ran")
+	String route;
+
+	@Label("Status")
+	int status;
+
+	// From the before handler. Does nothing unless a recording wants these events
+	public static void begin(Context ctx) {
+		HttpRequestEvent event = new HttpRequestEvent();
+		if (!event.isEnabled()) {
+			return;
+		}
+		event.method = ctx.method();
+		event.path = ctx.path();
+		event.begin();
+		ctx.attribute(eventAttribute, event);
+	}
+
+	// From the after handler
+	public static void end(Context ctx) {
+		HttpRequestEvent event = ctx.attribute(eventAttribute);
+		if (event == null) {
+			return;
+		}
+		ctx.attribute(eventAttribute, null);
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.route = RequestMetrics.route(ctx);
+			event.status = ctx.status();
+			event.commit();
+		}
+	}
+
+}
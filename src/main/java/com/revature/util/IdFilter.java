@@ -0,0 +1,261 @@
+package com.revature.util;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revature.dto.CacheStatsDTO;
+import com.revature.exceptions.DatabaseException;
+
+/*
+ * A Bloom filter over the ids in a table, so lookups of ids that were never created (scrapers, typos, buggy
+ * integrations) can be answered with a 404 without a query. mightContain never says no for an id that exists, and
+ * says yes for an id that doesn't about 1% of the time with the default id_filter_bits_per_id of 10.
+ *
+ * The filter is built from a scan of every id, sized for twice the ids found so there's room for the ones added
+ * before the next rebuild. New ids are added as soon as they're inserted (a rolled back insert just leaves an extra
+ * bit set, which is harmless). A scan can't see an insert that hasn't committed yet, so every id added since the
+ * previous build started is added to the new filter too. Deleted ids can't be taken out of a Bloom filter, so they keep costing a query until
+ * the filter is rebuilt, every id_filter_rebuild_minutes.
+ *
+ * Until the first build finishes (and when a build fails) everything might exist, so nothing is short-circuited.
+ * Lookups don't lock: each bit is set with a compare-and-set and a rebuilt filter is swapped in whole.
+ */
+public class IdFilter {
+
+	// Hands every id to the consumer, e.g. a repository scanning its table
+	public interface IdSource {
+		void scanIds(IntConsumer consumer) throws DatabaseException;
+	}
+
+	private static Logger logger = LoggerFactory.getLogger(IdFilter.class);
+
+	private static final int defaultBitsPerId = ConfigUtil.getInt("id_filter_bits_per_id", 10);
+	private static final long rebuildMinutes = ConfigUtil.getLong("id_filter_rebuild_minutes", 15);
+	private static final int MIN_BITS = 1024;
+
+	private static final IdFilter clients = new IdFilter("clientIds", defaultBitsPerId);
+	private static final IdFilter accounts = new IdFilter("accountIds", defaultBitsPerId);
+
+	private static ScheduledExecutorService rebuilder;
+
+	private final String name;
+	private final int bitsPerId;
+	private final int hashCount;
+	private volatile Bits bits; // null until the first build
+	private IdBuffer addedSinceBuildStarted = new IdBuffer(); // Guarded by this
+	private boolean rebuilding; // Guarded by this
+
+	private final LongAdder absent = new LongAdder();
+	private final LongAdder mightExist = new LongAdder();
+
+	public IdFilter(String name, int bitsPerId) {
+		this.name = name;
+		this.bitsPerId = Math.max(1, bitsPerId);
+		this.hashCount = Math.max(1, (int) Math.round(this.bitsPerId * Math.log(2))); // The best k for m/n bits per id
+	}
+
+	// The filters every service made with its default constructor shares
+	public static IdFilter clients() {
+		return clients;
+	}
+
+	public static IdFilter accounts() {
+		return accounts;
+	}
+
+	/*
+	 * Runs rebuildAll once straight away (so the filters are ready before we take requests) and then every
+	 * id_filter_rebuild_minutes in the background
+	 */
+	public static synchronized void startRebuilding(Runnable rebuildAll) {
+		if (rebuilder != null) {
+			return;
+		}
+
+		rebuildAll.run();
+		rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "id-filter-rebuilder");
+			thread.setDaemon(true);
+			return thread;
+		});
+		rebuilder.scheduleWithFixedDelay(rebuildAll, rebuildMinutes, rebuildMinutes, TimeUnit.MINUTES);
+	}
+
+	public static synchronized void stopRebuilding() {
+		if (rebuilder != null) {
+			rebuilder.shutdownNow();
+			rebuilder = null;
+		}
+	}
+
+	// false only when the id definitely doesn't exist
+	public boolean mightContain(int id) {
+		Bits current = bits;
+		if (current == null || current.mightContain(id, hashCount)) {
+			mightExist.increment();
+			return true;
+		}
+		absent.increment();
+		return false;
+	}
+
+	// Call as soon as the id is inserted, before the transaction commits
+	public synchronized void add(int id) {
+		if (bits != null) {
+			bits.add(id, hashCount);
+		}
+		addedSinceBuildStarted.accept(id); // A scan may miss it until it commits, the next filters get it too
+	}
+
+	// Builds a new filter from every id the source scans. Keeps the old one (logging why) if the scan fails
+	public void rebuild(IdSource source) {
+		IdBuffer addedBefore; // Since the previous build started, some may not have committed in time for this scan
+		synchronized (this) {
+			if (rebuilding) {
+				return;
+			}
+			rebuilding = true;
+			addedBefore = addedSinceBuildStarted;
+			addedSinceBuildStarted = new IdBuffer();
+		}
+
+		Bits rebuilt = null;
+		try {
+			IdBuffer ids = new IdBuffer();
+			source.scanIds(ids);
+
+			long size = Math.max(MIN_BITS, (long) ids.count * 2 * bitsPerId);
+			rebuilt = new Bits(size);
+			ids.addTo(rebuilt, hashCount);
+			logger.info("Built the " + name + " filter from " + ids.count + " ids (" + rebuilt.size + " bits)");
+		} catch (DatabaseException | RuntimeException e) {
+			logger.warn("Couldn't build the " + name + " filter, keeping the old one. " + e.getMessage());
+		} finally {
+			synchronized (this) {
+				if (rebuilt != null) {
+					addedBefore.addTo(rebuilt, hashCount);
+					addedSinceBuildStarted.addTo(rebuilt, hashCount);
+					bits = rebuilt;
+				} else {
+					addedBefore.addTo(addedSinceBuildStarted); // Still needed by the next build
+				}
+				rebuilding = false;
+			}
+		}
+	}
+
+	/*
+	 * hits are lookups the filter answered (the id doesn't exist), misses the ones that still went to the database.
+	 * size is the number of bits set, maxSize the number of bits
+	 */
+	public CacheStatsDTO getStats() {
+		Bits current = bits;
+		long setBits = current == null ? 0 : current.countSet();
+		long size = current == null ? 0 : current.size;
+		return new CacheStatsDTO(name, setBits, size, absent.sum(), mightExist.sum(), 0);
+	}
+
+	private static final class Bits {
+
+		private final AtomicLongArray words;
+		private final long size;
+
+		private Bits(long size) {
+			this.words = new AtomicLongArray((int) ((size + 63) / 64));
+			this.size = words.length() * 64L;
+		}
+
+		void add(int id, int hashCount) {
+			long hash = mix(id);
+			int hash1 = (int) hash;
+			int hash2 = (int) (hash >>> 32);
+			for (int i = 1; i <= hashCount; i++) {
+				long bit = index(hash1 + i * hash2);
+				int word = (int) (bit >>> 6);
+				long mask = 1L << bit;
+				long old;
+				do {
+					old = words.get(word);
+					if ((old & mask) != 0) {
+						break;
+					}
+				} while (!words.compareAndSet(word, old, old | mask));
+			}
+		}
+
+		boolean mightContain(int id, int hashCount) {
+			long hash = mix(id);
+			int hash1 = (int) hash;
+			int hash2 = (int) (hash >>> 32);
+			for (int i = 1; i <= hashCount; i++) {
+				long bit = index(hash1 + i * hash2);
+				if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		long countSet() {
+			long count = 0;
+			for (int i = 0; i < words.length(); i++) {
+				count += Long.bitCount(words.get(i));
+			}
+			return count;
+		}
+
+		// Two hashes combined as hash1 + i * hash2 act like k independent ones (Kirsch and Mitzenmacher)
+		private long index(int combined) {
+			return (combined < 0 ? ~combined : combined) % size;
+		}
+
+		// Ids are sequential, spread them out (the finalizer of MurmurHash3's 64 bit version)
+		private static long mix(int id) {
+			long h = id;
+			h ^= h >>> 33;
+			h *= 0xff51afd7ed558ccdL;
+			h ^= h >>> 33;
+			h *= 0xc4ceb9fe1a85ec53L;
+			h ^= h >>> 33;
+			return h;
+		}
+
+	}
+
+	// Collects ids as plain ints, to size the filter before adding them
+	private static final class IdBuffer implements IntConsumer {
+
+		private int[] ids = new int[1024];
+		private int count;
+
+		@Override
+		public void accept(int id) {
+			if (count == ids.length) {
+				ids = Arrays.copyOf(ids, ids.length * 2);
+			}
+			ids[count++] = id;
+		}
+
+		void addTo(Bits bits, int hashCount) {
+			for (int i = 0; i < count; i++) {
+				bits.add(ids[i], hashCount);
+			}
+		}
+
+		void addTo(IdBuffer other) {
+			for (int i = 0; i < count; i++) {
+				other.accept(ids[i]);
+			}
+		}
+
+	}
+
+}
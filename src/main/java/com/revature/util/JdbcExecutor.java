@@ -0,0 +1,178 @@
+package com.revature.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.revature.dto.ExecutorStatsDTO;
+import com.revature.exceptions.ServerBusyException;
+
+import io.javalin.http.Context;
+
+/*
+ * Bulkheads for the handlers' database work, so a slow query holds one of these threads instead of one of Jetty's.
+ *
+ * Reads, writes and the streamed exports get their own pools, sized so that together they never want more
+ * connections than the pool has: jdbc_export_threads (a tenth of db_pool_max_size by default, at least one) for
+ * exports, jdbc_write_threads (a quarter) for writes and jdbc_read_threads (the rest) for reads. An export holds its
+ * connection for the whole download, so a few slow ones can keep every export thread busy, but never the
+ * connections the reads and writes need. Each pool has a bounded queue (jdbc_read_queue_size / jdbc_write_queue_size
+ * / jdbc_export_queue_size), and work that doesn't fit is turned away with a 503 straight away instead of waiting
+ * behind everything else.
+ *
+ * respond() hands the work to the pool and gives Javalin a CompletableFuture for the response. The request's unit
+ * of work and RequestContext go along to the pool thread (see RequestScope). The unit of work is committed there as
+ * soon as the work is done, so the connection is back in the pool before the response is written.
+ *
+ * Javalin carries on with the request (the response cache, the after handler, writing to the client) on whichever
+ * thread completes that future, so it's completed from a separate responder pool (up to jdbc_responder_threads,
+ * when that's full the worker does it itself). A slow client or a big response never holds a database thread.
+ *
+ * stream() is for handlers that write the response themselves while the rows come in. The work runs on the pool
+ * and the request thread waits for it.
+ */
+public class JdbcExecutor {
+
+	// A handler's database work. What it returns is sent as JSON (a byte[] is taken to be JSON already)
+	public interface Work {
+		Object run() throws Exception;
+	}
+
+	private static final int poolSize = ConnectionUtil.getMaximumPoolSize();
+	private static final int exportThreads = ConfigUtil.getInt("jdbc_export_threads", Math.max(1, poolSize / 10));
+	private static final int writeThreads = ConfigUtil.getInt("jdbc_write_threads", Math.max(1, poolSize / 4));
+	private static final int readThreads = ConfigUtil.getInt("jdbc_read_threads", Math.max(1, poolSize - writeThreads - exportThreads));
+
+	private static final JdbcExecutor reads = new JdbcExecutor("jdbc-read", readThreads, ConfigUtil.getInt("jdbc_read_queue_size", 200));
+	private static final JdbcExecutor writes = new JdbcExecutor("jdbc-write", writeThreads, ConfigUtil.getInt("jdbc_write_queue_size", 100));
+	private static final JdbcExecutor exports = new JdbcExecutor("jdbc-export", exportThreads, ConfigUtil.getInt("jdbc_export_queue_size", 10));
+
+	// Finishes requests once their database work is done, as many threads as Jetty has by default
+	private static final ThreadPoolExecutor responder = new ThreadPoolExecutor(0,
+			ConfigUtil.getInt("jdbc_responder_threads", 200), 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+			Threads.factory("jdbc-responder"), new ThreadPoolExecutor.CallerRunsPolicy());
+
+	private final String name;
+	private final int queueSize;
+	private final ThreadPoolExecutor executor;
+	private final LongAdder rejected = new LongAdder();
+
+	public JdbcExecutor(String name, int threads, int queueSize) {
+		this.name = name;
+		this.queueSize = queueSize;
+
+		// Platform threads even with virtual_threads on: a fixed number of them runs at once anyway, and the driver pins
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+				Threads.platformFactory(name));
+	}
+
+	public static JdbcExecutor reads() {
+		return reads;
+	}
+
+	public static JdbcExecutor writes() {
+		return writes;
+	}
+
+	public static JdbcExecutor exports() {
+		return exports;
+	}
+
+	public static List<ExecutorStatsDTO> getAllStats() {
+		return Arrays.asList(reads.getStats(), writes.getStats(), exports.getStats());
+	}
+
+	/*
+	 * Runs the work on this pool and sends what it returns. Call from a handler, after anything that only looks at
+	 * the request (path params, parsing the body), and don't touch ctx from the handler afterwards
+	 */
+	public void respond(Context ctx, Work work) throws ServerBusyException {
+		CompletableFuture<InputStream> response = new CompletableFuture<>();
+
+		RequestScope.suspend();
+		try {
+			executor.execute(() -> run(ctx, work, response));
+		} catch (RejectedExecutionException e) {
+			RequestScope.resume(ctx); // Still ours, the after handler finishes it like any failed request
+			rejected.increment();
+			throw new ServerBusyException("The server is too busy to handle this request right now, try again shortly");
+		}
+
+		ctx.contentType("application/json");
+		ctx.result(response);
+	}
+
+	/*
+	 * Runs work that writes the response itself (see JsonArrayStream) on this pool, and waits for it. The request's
+	 * unit of work is finished on the pool thread too, so the connection never does anything on the request thread
+	 */
+	public void stream(Context ctx, Work work) throws Exception {
+		RequestScope.suspend();
+		Future<?> done;
+		try {
+			done = executor.submit(() -> {
+				RequestScope.resume(ctx);
+				try {
+					work.run();
+					RequestScope.finish(ctx);
+				} catch (Throwable e) {
+					RequestScope.abandon(ctx);
+					throw e;
+				} finally {
+					RequestScope.suspend();
+				}
+				return null;
+			});
+		} catch (RejectedExecutionException e) {
+			RequestScope.resume(ctx); // Still ours, the after handler finishes it like any failed request
+			rejected.increment();
+			throw new ServerBusyException("Too many exports are running right now, try again shortly");
+		}
+
+		try {
+			done.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw (Exception) e.getCause();
+		} catch (InterruptedException e) {
+			done.cancel(true);
+			throw e;
+		} finally {
+			RequestScope.resume(ctx); // For the after handler, there's nothing left in the unit of work
+		}
+	}
+
+	public ExecutorStatsDTO getStats() {
+		return new ExecutorStatsDTO(name, executor.getMaximumPoolSize(), executor.getActiveCount(),
+				executor.getQueue().size(), queueSize, executor.getCompletedTaskCount(), rejected.sum());
+	}
+
+	private static void run(Context ctx, Work work, CompletableFuture<InputStream> response) {
+		RequestScope.resume(ctx);
+		try {
+			Object value = work.run();
+			RequestScope.finish(ctx);
+
+			byte[] json = value instanceof byte[] ? (byte[]) value : JsonUtil.toJsonBytes(value);
+			responder.execute(() -> response.complete(new ByteArrayInputStream(json)));
+		} catch (Throwable e) {
+			RequestScope.abandon(ctx);
+			responder.execute(() -> response.completeExceptionally(e)); // Javalin hands it to the exception handlers
+		} finally {
+			RequestScope.suspend();
+		}
+	}
+
+}
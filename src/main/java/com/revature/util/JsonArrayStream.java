@@ -0,0 +1,51 @@
+package com.revature.util;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import io.javalin.http.Context;
+
+/*
+ * Writes a JSON array to the response one element at a time.
+ *
+ * Nothing is sent until the first element (or finish() for an empty array), so if the query fails before
+ * producing a row the exception handlers can still send a normal error response. The first element is flushed
+ * right away so the client starts receiving data while the rest of the rows are still being read.
+ */
+public class JsonArrayStream {
+
+	private final Context ctx;
+	private JsonGenerator generator;
+
+	public JsonArrayStream(Context ctx) {
+		this.ctx = ctx;
+	}
+
+	public void write(Object element) throws IOException {
+		boolean first = generator == null;
+		if (first) {
+			start();
+		}
+
+		JsonUtil.writeValue(generator, element);
+		if (first) {
+			generator.flush();
+		}
+	}
+
+	public void finish() throws IOException {
+		if (generator == null) {
+			start();
+		}
+
+		generator.writeEndArray();
+		generator.close(); // Flushes what's left, the response stream itself is left to Jetty
+	}
+
+	private void start() throws IOException {
+		generator = JsonStreamUtil.start(ctx, 200);
+		generator.writeStartArray();
+	}
+
+}
@@ -0,0 +1,36 @@
+package com.revature.util;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import io.javalin.http.Context;
+import io.javalin.plugin.json.JavalinJackson;
+
+/*
+ * For responses too big to build as one object first. The handler writes the JSON piece by piece
+ * and it goes out to the client as it's written, instead of ctx.json() serializing the whole thing in memory.
+ *
+ * Once the first bytes are flushed the status can't change anymore, so handlers should do anything that
+ * might fail with a normal error response (parsing parameters, the first query) before calling start().
+ */
+public class JsonStreamUtil {
+
+	private JsonStreamUtil() {
+	}
+
+	public static JsonGenerator start(Context ctx, int status) throws IOException {
+		ctx.status(status);
+		ctx.contentType("application/json");
+
+		// Same ObjectMapper ctx.json() uses, so streamed objects look exactly like non streamed ones
+		JsonGenerator generator = JavalinJackson.getObjectMapper().getFactory().createGenerator(ctx.res.getOutputStream());
+
+		// If the handler fails half way we don't want close() to add the missing brackets and
+		// make a cut off response look like a complete one. Jetty closes the stream itself
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		return generator;
+	}
+
+}
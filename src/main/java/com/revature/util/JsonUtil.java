@@ -0,0 +1,170 @@
+package com.revature.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.revature.dto.GetClientDTO;
+import com.revature.dto.MessageDTO;
+import com.revature.model.Account;
+import com.revature.model.Client;
+
+import io.javalin.http.Context;
+import io.javalin.plugin.json.JavalinJackson;
+import io.javalin.plugin.json.JavalinJson;
+
+/*
+ * Response JSON without going through Jackson's bean serializers for the types almost every response is made of.
+ * Account, Client, GetClientDTO and MessageDTO (and lists of them) are written field by field straight onto a
+ * JsonGenerator, in the same field order and format Jackson would use, so the JSON is byte for byte what it was.
+ * Anything else goes through an ObjectWriter that is made once per class and reused.
+ *
+ * json() writes into a byte buffer from a small shared pool, and hands the bytes to Javalin as they are.
+ * ctx.json() would build a String first and encode it to UTF-8 again. ctx.json() still works (configure() installs
+ * this as Javalin's mapper), it just makes that one extra copy.
+ *
+ * Error messages are mostly fixed strings. message() keeps the encoded body of the ones that keep coming up, so
+ * sending them is just handing over the same bytes again.
+ */
+public class JsonUtil {
+
+	// A buffer grows to fit the biggest response written into it. Past this it's dropped instead of kept around
+	private static final int maxPooledBytes = ConfigUtil.getInt("json_buffer_max_pooled_bytes", 64 * 1024);
+	private static final int maxPooledBuffers = ConfigUtil.getInt("json_buffer_pool_size", 64);
+
+	private static final ObjectMapper mapper = JavalinJackson.getObjectMapper();
+	private static final JsonFactory factory = mapper.getFactory();
+
+	private static final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+	// Shared rather than one per thread: virtual threads live for one request, a thread local would never be reused
+	private static final Queue<ByteArrayBuilder> buffers = new ArrayBlockingQueue<>(maxPooledBuffers);
+
+	// Size based on how often each message is sent, so messages with an id in them don't push out the fixed ones
+	private static final Cache<String, byte[]> messageBodies = Caffeine.newBuilder()
+			.maximumSize(1000)
+			.build();
+
+	private JsonUtil() {
+	}
+
+	// Makes ctx.json() use the writers below too, call before Javalin starts
+	public static void configure() {
+		JavalinJson.setToJsonMapper(JsonUtil::toJson);
+	}
+
+	public static void json(Context ctx, Object value) {
+		send(ctx, toJsonBytes(value));
+	}
+
+	// For a body that was encoded ahead of time (it is sent as is, so it mustn't be changed afterwards)
+	public static void send(Context ctx, byte[] json) {
+		ctx.contentType("application/json");
+		ctx.result(json);
+	}
+
+	// {"message": ...}, the body of every error response
+	public static void message(Context ctx, String message) {
+		send(ctx, message == null ? toJsonBytes(new MessageDTO()) : messageBodies.get(message, m -> toJsonBytes(new MessageDTO(m))));
+	}
+
+	public static byte[] toJsonBytes(Object value) {
+		long start = System.nanoTime();
+		ByteArrayBuilder buffer = buffers.poll();
+		if (buffer == null) {
+			buffer = new ByteArrayBuilder();
+		}
+
+		boolean keep = true;
+		try {
+			try (JsonGenerator generator = factory.createGenerator(buffer)) {
+				writeValue(generator, value);
+			}
+			byte[] json = buffer.toByteArray();
+			keep = json.length <= maxPooledBytes;
+			return json;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // Nothing in memory can fail to write, only unserializable values
+		} finally {
+			buffer.reset();
+			if (keep) {
+				buffers.offer(buffer); // Dropped if the pool is full
+			}
+
+			RequestContext request = RequestContext.current();
+			if (request != null) {
+				request.serializationTime(System.nanoTime() - start);
+			}
+		}
+	}
+
+	public static String toJson(Object value) {
+		return new String(toJsonBytes(value), StandardCharsets.UTF_8);
+	}
+
+	// Also for streamed responses (see JsonArrayStream), so those look the same as everything else
+	public static void writeValue(JsonGenerator generator, Object value) throws IOException {
+		if (value == null) {
+			generator.writeNull();
+		} else if (value instanceof Account) {
+			writeAccount(generator, (Account) value);
+		} else if (value instanceof GetClientDTO) {
+			writeClient(generator, (GetClientDTO) value);
+		} else if (value instanceof Client) {
+			writeClient(generator, (Client) value);
+		} else if (value instanceof MessageDTO) {
+			generator.writeStartObject();
+			generator.writeStringField("message", ((MessageDTO) value).getMessage());
+			generator.writeEndObject();
+		} else if (value instanceof String) {
+			generator.writeString((String) value);
+		} else if (value instanceof List) {
+			generator.writeStartArray();
+			for (Object element : (List<?>) value) {
+				writeValue(generator, element);
+			}
+			generator.writeEndArray();
+		} else {
+			writers.computeIfAbsent(value.getClass(), mapper::writerFor).writeValue(generator, value);
+		}
+	}
+
+	private static void writeAccount(JsonGenerator generator, Account account) throws IOException {
+		generator.writeStartObject();
+		generator.writeNumberField("id", account.getId());
+		generator.writeStringField("accountType", account.getAccountType());
+		generator.writeNumberField("amount", account.getAmount());
+		generator.writeEndObject();
+	}
+
+	private static void writeClient(JsonGenerator generator, GetClientDTO client) throws IOException {
+		generator.writeStartObject();
+		generator.writeNumberField("id", client.getId());
+		generator.writeStringField("firstName", client.getFirstName());
+		generator.writeStringField("lastName", client.getLastName());
+		generator.writeEndObject();
+	}
+
+	private static void writeClient(JsonGenerator generator, Client client) throws IOException {
+		generator.writeStartObject();
+		generator.writeNumberField("id", client.getId());
+		generator.writeStringField("firstName", client.getFirstName());
+		generator.writeStringField("lastName", client.getLastName());
+		generator.writeFieldName("accounts");
+		writeValue(generator, client.getAccounts());
+		generator.writeEndObject();
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.revature.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import com.revature.dto.PageDTO;
+import com.revature.exceptions.BadParameterException;
+
+import io.javalin.http.Context;
+
+/*
+ * Keyset pagination helpers. A page is "the next N rows with an id above the last id we handed out", which the
+ * database answers straight from the primary key index, so page 1000 costs the same as page 1 (OFFSET would
+ * have to read and throw away every row before it).
+ *
+ * The last id travels to the client as an opaque cursor, so we're free to change what's inside it later.
+ * The body of a paged endpoint stays a plain JSON array like it always was, the cursor for the next page goes
+ * in the X-Next-Cursor header (left out on the last page)
+ */
+public class PageUtil {
+
+	private static final String cursorPrefix = "v1:";
+
+	public static final int defaultPageSize = ConfigUtil.getInt("page_size_default", 100);
+	public static final int maxPageSize = ConfigUtil.getInt("page_size_max", 1000);
+
+	private PageUtil() {
+	}
+
+	public static String encodeCursor(int lastId) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString((cursorPrefix + lastId).getBytes(StandardCharsets.UTF_8));
+	}
+
+	// The id to continue after, null when there's no cursor (start from the beginning)
+	public static Integer decodeCursor(String cursor) throws BadParameterException {
+		if (cursor == null || cursor.trim().equals("")) {
+			return null;
+		}
+
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+			if (decoded.startsWith(cursorPrefix)) {
+				return Integer.parseInt(decoded.substring(cursorPrefix.length()));
+			}
+		} catch (IllegalArgumentException e) { // Covers NumberFormatException too
+		}
+		throw new BadParameterException("The cursor provided is not valid. User provided: " + cursor);
+	}
+
+	// Asking for more than the maximum isn't an error, the page is just capped at the maximum
+	public static int pageSize(String limit) throws BadParameterException {
+		if (limit == null || limit.trim().equals("")) {
+			return defaultPageSize;
+		}
+
+		try {
+			int pageSize = Integer.parseInt(limit.trim());
+			if (pageSize > 0) {
+				return Math.min(pageSize, maxPageSize);
+			}
+		} catch (NumberFormatException e) {
+		}
+		throw new BadParameterException("Limit must be a positive int. User provided: " + limit);
+	}
+
+	public static void setNextCursor(Context ctx, PageDTO<?> page) {
+		if (page.getNextCursor() != null) {
+			ctx.header("X-Next-Cursor", page.getNextCursor());
+		}
+	}
+
+	/*
+	 * Repositories are asked for pageSize + 1 rows. If that extra row shows up there is another page, and the
+	 * cursor points at the last row we actually return
+	 */
+	public static <T> PageDTO<T> toPage(List<T> rows, int pageSize, ToIntFunction<T> idOf) {
+		if (rows.size() <= pageSize) {
+			return new PageDTO<>(rows, null);
+		}
+
+		List<T> items = rows.subList(0, pageSize);
+		return new PageDTO<>(items, encodeCursor(idOf.applyAsInt(items.get(pageSize - 1))));
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.revature.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Flight Recorder event for one statement a repository ran, timed like QueryMetrics times it: the execute call
+ * itself, not reading the rows afterwards. Committed when QueryMetrics records the statement.
+ */
+@Name("com.revature.Query")
+@Label("Database Query")
+@Category({ "Bank", "Database" })
+@Description("A statement run by a repository method")
+@StackTrace(false)
+public class QueryEvent extends Event {
+
+	@Label("Repository Method")
+	String method;
+
+	@Label("SQL")
+	@Description("The statement as prepared, with ? where the values go")
+	String sql;
+
+	@Label("Parameters")
+	int parameters;
+
+	@Label("Rows")
+	@Description("Rows read for a query, rows changed for an update")
+	long rows;
+
+	void commit(String method, String sql, int parameters, long rows) {
+		if (shouldCommit()) {
+			this.method = method;
+			this.sql = sql;
+			this.parameters = parameters;
+			this.rows = rows;
+			commit();
+		}
+	}
+
+}
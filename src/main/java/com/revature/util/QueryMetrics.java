@@ -0,0 +1,298 @@
+package com.revature.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Times every statement the repositories run and every wait for a pooled connection, by repository method
+ * (AccountRepository.getAccounts, ...), for /metrics.
+ *
+ * StatementCache wraps each statement it prepares with instrument(), the way ConnectionTracker wraps connections, and
+ * keeps the wrapper, so it's made once per cached statement rather than once per use. A query is timed from
+ * executeQuery() until it returns, and its rows are counted as the repository reads them, through one ResultSet
+ * wrapper the statement reuses for every query (a statement only has one ResultSet open at a time); an update counts
+ * the rows it changed.
+ *
+ * The repository method (found on the stack) and the number of parameters are worked out the first time a SQL
+ * string is seen and kept with it, up to max_tracked_sql strings. A connection wait is counted against the method of
+ * the statement the repository prepares straight after borrowing it (see prepared()).
+ *
+ * A statement slower than slow_query_ms (200 by default, 0 logs everything) is logged with its SQL, how many
+ * parameters it had and the request it was for. The SQL only has ? in it, never the values.
+ *
+ * The time also goes on the request's RequestContext, so /metrics can show how much of each route's time was the
+ * database, and into a QueryEvent for Flight Recorder.
+ */
+public class QueryMetrics {
+
+	private static Logger logger = LoggerFactory.getLogger(QueryMetrics.class);
+
+	private static final long slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(ConfigUtil.getLong("slow_query_ms", 200));
+
+	private static final int maxTrackedSql = ConfigUtil.getInt("max_tracked_sql", 1000);
+
+	private static final StackWalker stackWalker = StackWalker.getInstance();
+
+	private static final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+	private static final Map<String, SqlInfo> sqlInfo = new ConcurrentHashMap<>();
+
+	// Connection waits not counted against a method yet, in nanoseconds (see connectionAcquired and prepared)
+	private static final ThreadLocal<long[]> pendingWait = ThreadLocal.withInitial(() -> new long[1]);
+
+	private static class MethodMetrics {
+
+		private final Histogram queries = new Histogram();
+		private final Histogram connectionWaits = new Histogram();
+		private final LongAdder rows = new LongAdder();
+
+	}
+
+	// What every statement with the same SQL shares
+	private static class SqlInfo {
+
+		private final String method;
+		private final int parameters;
+		private final MethodMetrics metrics;
+
+		private SqlInfo(String method, int parameters) {
+			this.method = method;
+			this.parameters = parameters;
+			this.metrics = metrics(method);
+		}
+
+	}
+
+	private QueryMetrics() {
+	}
+
+	// Wraps a statement so running it is timed and counted against the repository method that prepared it
+	public static PreparedStatement instrument(PreparedStatement pstmt, String sql) {
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, new StatementHandler(pstmt, sql, info(sql)));
+	}
+
+	/*
+	 * StatementCache calls this every time it hands out a statement. A connection borrowed since the last one was for
+	 * this statement (repositories prepare straight after UnitOfWork.currentConnection()), so its wait counts against
+	 * this statement's method
+	 */
+	public static void prepared(String sql) {
+		long[] wait = pendingWait.get();
+		if (wait[0] != 0) {
+			info(sql).metrics.connectionWaits.record(wait[0]);
+			wait[0] = 0;
+		}
+	}
+
+	// How long borrowing a connection from the pool took, counted against the repository method that needed it
+	public static void connectionAcquired(long waitNanos) {
+		pendingWait.get()[0] = Math.max(1, waitNanos); // 0 means nothing's pending
+
+		RequestContext request = RequestContext.current();
+		if (request != null) {
+			request.databaseTime(waitNanos);
+		}
+	}
+
+	public static void writeTo(StringBuilder out) {
+		Map<String, MethodMetrics> sorted = new TreeMap<>(methods);
+
+		out.append("# HELP db_query_duration_seconds How long statements took to run, by repository method\n");
+		out.append("# TYPE db_query_duration_seconds histogram\n");
+		for (Map.Entry<String, MethodMetrics> method : sorted.entrySet()) {
+			method.getValue().queries.writeTo(out, "db_query_duration_seconds", labels(method.getKey()));
+		}
+
+		out.append("# HELP db_query_rows_total Rows returned or changed, by repository method\n");
+		out.append("# TYPE db_query_rows_total counter\n");
+		for (Map.Entry<String, MethodMetrics> method : sorted.entrySet()) {
+			out.append("db_query_rows_total{").append(labels(method.getKey())).append("} ")
+					.append(method.getValue().rows.sum()).append('\n');
+		}
+
+		out.append("# HELP db_connection_acquire_seconds How long borrowing a pooled connection took, by repository method\n");
+		out.append("# TYPE db_connection_acquire_seconds histogram\n");
+		for (Map.Entry<String, MethodMetrics> method : sorted.entrySet()) {
+			if (method.getValue().connectionWaits.getCount() > 0) {
+				method.getValue().connectionWaits.writeTo(out, "db_connection_acquire_seconds", labels(method.getKey()));
+			}
+		}
+	}
+
+	private static void record(SqlInfo info, String sql, long nanos, long rows, QueryEvent event) {
+		String method = info.method;
+		int parameters = info.parameters;
+		event.commit(method, sql, parameters, rows);
+
+		info.metrics.queries.record(nanos);
+		info.metrics.rows.add(rows);
+
+		RequestContext request = RequestContext.current();
+		if (request != null) {
+			request.databaseTime(nanos);
+		}
+
+		if (nanos >= slowQueryNanos) {
+			logger.warn("Slow query in " + method + ": " + String.format("%.1f", nanos / 1e6) + "ms, " + rows + " row(s), "
+					+ parameters + " parameter(s), for " + (request == null ? "(no request)" : request) + ". SQL: "
+					+ sql.replaceAll("\\s+", " ").trim());
+		}
+	}
+
+	private static MethodMetrics metrics(String method) {
+		MethodMetrics metrics = methods.get(method);
+		if (metrics == null) {
+			metrics = methods.computeIfAbsent(method, m -> new MethodMetrics());
+		}
+		return metrics;
+	}
+
+	private static SqlInfo info(String sql) {
+		SqlInfo info = sqlInfo.get(sql);
+		if (info != null) {
+			return info;
+		}
+
+		info = new SqlInfo(repositoryMethod(), countParameters(sql));
+		if (sqlInfo.size() < maxTrackedSql) {
+			sqlInfo.putIfAbsent(sql, info); // Past the limit it's worked out again each time, the way it always was
+		}
+		return info;
+	}
+
+	// The innermost repository method on the stack, e.g. AccountRepository.getAccounts
+	private static String repositoryMethod() {
+		return stackWalker.walk(frames -> frames
+				.filter(frame -> frame.getClassName().startsWith("com.revature.dao."))
+				.findFirst()
+				.map(frame -> frame.getClassName().substring("com.revature.dao.".length()) + "." + frame.getMethodName())
+				.orElse("other"));
+	}
+
+	private static String labels(String method) {
+		return "method=\"" + RequestMetrics.escape(method) + "\"";
+	}
+
+	private static int countParameters(String sql) {
+		int parameters = 0;
+		for (int i = 0; i < sql.length(); i++) {
+			if (sql.charAt(i) == '?') {
+				parameters++;
+			}
+		}
+		return parameters;
+	}
+
+	private static class StatementHandler implements InvocationHandler {
+
+		private final PreparedStatement pstmt;
+		private final String sql;
+		private final SqlInfo info;
+		private final RowCounter rowCounter = new RowCounter();
+		private ResultSet counting; // Wraps rowCounter, made the first time this statement runs a query
+
+		private StatementHandler(PreparedStatement pstmt, String sql, SqlInfo info) {
+			this.pstmt = pstmt;
+			this.sql = sql;
+			this.info = info;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method called, Object[] args) throws Throwable {
+			String name = called.getName();
+			boolean query = name.equals("executeQuery");
+			boolean update = name.equals("executeUpdate") || name.equals("executeLargeUpdate");
+			if (!query && !update) {
+				return invokeOn(pstmt, called, args);
+			}
+
+			QueryEvent event = new QueryEvent();
+			event.begin();
+			long start = System.nanoTime();
+			Object result = null;
+			try {
+				result = invokeOn(pstmt, called, args);
+				event.end();
+				return query ? countRows((ResultSet) result, System.nanoTime() - start, event) : result;
+			} finally {
+				if (update || result == null) { // A query that worked is recorded once its rows are read
+					long rows = result instanceof Number ? ((Number) result).longValue() : 0;
+					record(info, sql, System.nanoTime() - start, rows, event);
+				}
+			}
+		}
+
+		// Counts the rows as they're read, and records the query when the ResultSet is closed
+		private ResultSet countRows(ResultSet rs, long executeNanos, QueryEvent event) {
+			rowCounter.start(rs, executeNanos, event);
+			if (counting == null) {
+				counting = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+						new Class<?>[] { ResultSet.class }, rowCounter);
+			}
+			return counting;
+		}
+
+		/*
+		 * The ResultSet of the statement's latest query. Running the statement again closes the previous ResultSet
+		 * (JDBC says so), so one of these is enough however many queries it runs
+		 */
+		private class RowCounter implements InvocationHandler {
+
+			private ResultSet rs;
+			private long executeNanos;
+			private QueryEvent event;
+			private long rows;
+			private boolean recorded = true;
+
+			private void start(ResultSet rs, long executeNanos, QueryEvent event) {
+				finish(); // The last one was never closed, count it now
+				this.rs = rs;
+				this.executeNanos = executeNanos;
+				this.event = event;
+				this.rows = 0;
+				this.recorded = false;
+			}
+
+			private void finish() {
+				if (!recorded) {
+					recorded = true;
+					record(info, sql, executeNanos, rows, event);
+				}
+			}
+
+			@Override
+			public Object invoke(Object proxy, Method called, Object[] args) throws Throwable {
+				Object result = invokeOn(rs, called, args);
+				if (called.getName().equals("next") && Boolean.TRUE.equals(result)) {
+					rows++;
+				} else if (called.getName().equals("close")) {
+					finish();
+				}
+				return result;
+			}
+
+		}
+
+	}
+
+	private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+}
@@ -0,0 +1,165 @@
+package com.revature.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.revature.dto.RateLimitStatsDTO;
+import com.revature.exceptions.TooManyRequestsException;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+
+/*
+ * Token buckets per client (the :clientid / :id in the path, as an int so 05 and 5 share one) and per caller (the
+ * remote address, there are no logins), so one busy integration can't take every database connection for itself.
+ * Each route has its own limiter (see forRoute), and gets perSecond requests a second for every client and every
+ * caller, with bursts of up to burst at once. Over that it's a 429 with Retry-After saying when the next request
+ * would get in.
+ *
+ * A bucket is a single AtomicLong: the time its next token comes free (GCRA, which is a token bucket that doesn't
+ * have to be refilled), so a check is a read and a compareAndSet. The buckets live in Caffeine caches bounded by
+ * rate_limit_max_keys. A bucket that has been left alone long enough to fill up again is no different from a new
+ * one, so they expire after that and the tables only hold the clients and callers that are busy right now.
+ *
+ * Wrap handlers inside ResponseCache.cached(), so requests answered from the cache don't use up tokens: the point
+ * is what reaches the database.
+ */
+public class RateLimiter {
+
+	private static final int maxKeys = ConfigUtil.getInt("rate_limit_max_keys", 10000);
+
+	private static final Map<String, RateLimiter> shared = new ConcurrentHashMap<>();
+
+	private final String name;
+	private final double perSecond;
+	private final int burst;
+
+	// A token comes free every interval, and a bucket can hand out at most burst of them ahead of time
+	private final long interval;
+	private final long tolerance;
+
+	private final Cache<Integer, AtomicLong> clients;
+	private final Cache<String, AtomicLong> callers;
+
+	private final LongAdder allowed = new LongAdder();
+	private final LongAdder rejectedForClient = new LongAdder();
+	private final LongAdder rejectedForCaller = new LongAdder();
+
+	public RateLimiter(String name, double perSecond, int burst) {
+		this.name = name;
+		this.perSecond = perSecond;
+		this.burst = Math.max(1, burst);
+		this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+		this.tolerance = interval * this.burst;
+
+		long idleNanos = Math.max(TimeUnit.SECONDS.toNanos(1), tolerance);
+		this.clients = Caffeine.newBuilder()
+				.maximumSize(maxKeys)
+				.expireAfterAccess(idleNanos, TimeUnit.NANOSECONDS)
+				.build();
+		this.callers = Caffeine.newBuilder()
+				.maximumSize(maxKeys)
+				.expireAfterAccess(idleNanos, TimeUnit.NANOSECONDS)
+				.build();
+	}
+
+	// One instance per name, whatever the rates the other callers asked for
+	public static RateLimiter shared(String name, double perSecond, int burst) {
+		return shared.computeIfAbsent(name, n -> new RateLimiter(n, perSecond, burst));
+	}
+
+	// The limiter for one route, e.g. "account_add", set with account_add_per_second and account_add_burst
+	public static RateLimiter forRoute(String route, int defaultPerSecond, int defaultBurst) {
+		return shared(route, ConfigUtil.getInt(route + "_per_second", defaultPerSecond),
+				ConfigUtil.getInt(route + "_burst", defaultBurst));
+	}
+
+	public static List<RateLimitStatsDTO> getAllStats() {
+		List<RateLimitStatsDTO> stats = new ArrayList<>();
+		for (RateLimiter limiter : shared.values()) {
+			stats.add(limiter.getStats());
+		}
+		return stats;
+	}
+
+	/*
+	 * Limits the handler per client, taking the client id from the clientIdParam path param, and per caller. With a
+	 * null clientIdParam (routes like /clients that aren't about one client) it's only per caller. So is an id that
+	 * isn't an int: the handler turns that away with a 400 without going near the database
+	 */
+	public Handler limited(String clientIdParam, Handler handler) {
+		return ctx -> {
+			check(ctx, clientIdParam == null ? null : parseClientId(ctx.pathParam(clientIdParam)), ctx.ip());
+			handler.handle(ctx);
+		};
+	}
+
+	/*
+	 * Takes a token from the caller's bucket, then from the client's, or throws with Retry-After set. A caller over
+	 * its limit doesn't get to use up the client's tokens for the other callers, and a request turned away for the
+	 * client gives the caller its token back
+	 */
+	public void check(Context ctx, Integer clientId, String caller) throws TooManyRequestsException {
+		long now = System.nanoTime();
+
+		AtomicLong callerBucket = callers.get(caller, k -> new AtomicLong(now - tolerance));
+		long wait = take(callerBucket, now);
+		if (wait > 0) {
+			rejectedForCaller.increment();
+			reject(ctx, wait, "Too many requests, try again shortly");
+		}
+
+		if (clientId != null) {
+			wait = take(clients.get(clientId, k -> new AtomicLong(now - tolerance)), now);
+			if (wait > 0) {
+				callerBucket.addAndGet(-interval);
+				rejectedForClient.increment();
+				reject(ctx, wait, "Too many requests for client " + clientId + ", try again shortly");
+			}
+		}
+
+		allowed.increment();
+	}
+
+	public RateLimitStatsDTO getStats() {
+		return new RateLimitStatsDTO(name, perSecond, burst, clients.estimatedSize(), callers.estimatedSize(),
+				allowed.sum(), rejectedForClient.sum(), rejectedForCaller.sum());
+	}
+
+	// 0 if a token was taken, otherwise how many nanoseconds until one comes free
+	private long take(AtomicLong bucket, long now) {
+		while (true) {
+			long nextFree = bucket.get();
+			long after = Math.max(nextFree, now - tolerance) + interval;
+			if (after > now) {
+				return after - now;
+			}
+			if (bucket.compareAndSet(nextFree, after)) {
+				return 0;
+			}
+		}
+	}
+
+	// The bucket key for a client id path param, null if it isn't an int
+	static Integer parseClientId(String clientId) {
+		try {
+			return Integer.parseInt(clientId);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static void reject(Context ctx, long waitNanos, String message) throws TooManyRequestsException {
+		long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+		ctx.header("Retry-After", String.valueOf(seconds));
+		throw new TooManyRequestsException(message);
+	}
+
+}
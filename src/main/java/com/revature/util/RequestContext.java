@@ -0,0 +1,110 @@
+package com.revature.util;
+
+/*
+ * Small amount of bookkeeping about the HTTP request the current thread is working on.
+ * Application starts one in its before handler and ends it in its after handler (see RequestScope).
+ */
+public class RequestContext {
+
+	private static final ThreadLocal<RequestContext> current = new ThreadLocal<>();
+
+	private final String method;
+	private final String uri;
+	private final long startNanos;
+	private int connectionsAcquired;
+	private long staleAgeSeconds = -1; // Age of the oldest cached value served because the database failed
+	private long databaseNanos; // Running statements and waiting for a connection (see QueryMetrics)
+	private long serializationNanos; // Writing response JSON (see JsonUtil)
+
+	private RequestContext(String method, String uri) {
+		this.method = method;
+		this.uri = uri;
+		this.startNanos = System.nanoTime();
+	}
+
+	public static RequestContext begin(String method, String uri) {
+		RequestContext context = new RequestContext(method, uri);
+		current.set(context);
+		return context;
+	}
+
+	// null when the current thread isn't handling a request (startup, background jobs)
+	public static RequestContext current() {
+		return current.get();
+	}
+
+	public static RequestContext end() {
+		RequestContext context = current.get();
+		current.remove();
+		return context;
+	}
+
+	// Carries on with a request on the current thread, after it was end()ed on another one (see JdbcExecutor)
+	static void resume(RequestContext context) {
+		if (context == null) {
+			current.remove();
+		} else {
+			current.set(context);
+		}
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getUri() {
+		return uri;
+	}
+
+	public long getStartNanos() {
+		return startNanos;
+	}
+
+	public int getConnectionsAcquired() {
+		return connectionsAcquired;
+	}
+
+	int connectionAcquired() {
+		return ++connectionsAcquired;
+	}
+
+	// GET and HEAD don't change anything, so only they may be answered from a stale cache (see StaleRefresher)
+	public boolean isReadOnly() {
+		return "GET".equals(method) || "HEAD".equals(method);
+	}
+
+	// Whether some of the response came from the cache because the database couldn't be reached
+	public boolean isStale() {
+		return staleAgeSeconds >= 0;
+	}
+
+	public long getStaleAgeSeconds() {
+		return staleAgeSeconds;
+	}
+
+	void servedStale(long ageSeconds) {
+		staleAgeSeconds = Math.max(staleAgeSeconds, ageSeconds);
+	}
+
+	public long getDatabaseNanos() {
+		return databaseNanos;
+	}
+
+	void databaseTime(long nanos) {
+		databaseNanos += nanos;
+	}
+
+	public long getSerializationNanos() {
+		return serializationNanos;
+	}
+
+	void serializationTime(long nanos) {
+		serializationNanos += nanos;
+	}
+
+	@Override
+	public String toString() {
+		return method + " " + uri;
+	}
+
+}
@@ -0,0 +1,147 @@
+package com.revature.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.javalin.http.Context;
+
+/*
+ * How long requests take, by route template (/clients/:clientid/accounts, not the path with the ids in it), method
+ * and status, plus how many of each method are being handled right now. How much of that was the database and how
+ * much writing JSON is kept per route and method too (from RequestContext). Application records every request in its
+ * before and after handlers, and /metrics (see MetricsController) writes it all out in Prometheus' text format.
+ *
+ * Recording looks up the histogram with the route string Javalin already has, an index for the method and one for
+ * the status, so after the first request for a combination it allocates nothing. Requests that never reached a
+ * handler (404s, and the 503s of ConcurrencyLimiter) have no route and are counted under route="".
+ */
+public class RequestMetrics {
+
+	private static final String[] methods = { "GET", "POST", "PUT", "DELETE", "PATCH", "HEAD", "OPTIONS", "OTHER" };
+	private static final int statuses = 600;
+
+	private static final AtomicInteger[] inFlight = new AtomicInteger[methods.length];
+	private static final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+	static {
+		for (int i = 0; i < methods.length; i++) {
+			inFlight[i] = new AtomicInteger();
+		}
+	}
+
+	// One route's histograms, made as each method and status first comes up
+	private static class Route {
+
+		private final AtomicReferenceArray<Histogram> histograms = new AtomicReferenceArray<>(methods.length * statuses);
+		private final AtomicReferenceArray<Histogram> database = new AtomicReferenceArray<>(methods.length);
+		private final AtomicReferenceArray<Histogram> serialization = new AtomicReferenceArray<>(methods.length);
+
+		Histogram histogram(int method, int status) {
+			return get(histograms, method * statuses + status);
+		}
+
+		private static Histogram get(AtomicReferenceArray<Histogram> histograms, int i) {
+			Histogram histogram = histograms.get(i);
+			if (histogram == null) {
+				histograms.compareAndSet(i, null, new Histogram());
+				histogram = histograms.get(i);
+			}
+			return histogram;
+		}
+
+	}
+
+	private RequestMetrics() {
+	}
+
+	// From the before handler
+	public static void begin(Context ctx) {
+		inFlight[method(ctx.method())].incrementAndGet();
+	}
+
+	// From the after handler, on whichever thread finished the request
+	public static void end(Context ctx, RequestContext request) {
+		int method = method(ctx.method());
+		inFlight[method].decrementAndGet();
+
+		int status = ctx.status();
+		if (status < 0 || status >= statuses) {
+			status = 0;
+		}
+
+		String path = route(ctx);
+		Route route = routes.get(path);
+		if (route == null) {
+			route = routes.computeIfAbsent(path, p -> new Route());
+		}
+		route.histogram(method, status).record(System.nanoTime() - request.getStartNanos());
+		Route.get(route.database, method).record(request.getDatabaseNanos());
+		Route.get(route.serialization, method).record(request.getSerializationNanos());
+	}
+
+	public static void writeTo(StringBuilder out) {
+		out.append("# HELP http_requests_in_flight Requests being handled right now\n");
+		out.append("# TYPE http_requests_in_flight gauge\n");
+		for (int i = 0; i < methods.length; i++) {
+			out.append("http_requests_in_flight{method=\"").append(methods[i]).append("\"} ").append(inFlight[i].get())
+					.append('\n');
+		}
+
+		out.append("# HELP http_request_duration_seconds How long requests took, from the before handler to the after handler\n");
+		out.append("# TYPE http_request_duration_seconds histogram\n");
+		for (Map.Entry<String, Route> route : new TreeMap<>(routes).entrySet()) {
+			for (int method = 0; method < methods.length; method++) {
+				for (int status = 0; status < statuses; status++) {
+					Histogram histogram = route.getValue().histograms.get(method * statuses + status);
+					if (histogram != null) {
+						String labels = "route=\"" + escape(route.getKey()) + "\",method=\"" + methods[method]
+								+ "\",status=\"" + status + "\"";
+						histogram.writeTo(out, "http_request_duration_seconds", labels);
+					}
+				}
+			}
+		}
+
+		writeParts(out, "http_request_database_seconds",
+				"Time each request spent running statements and waiting for connections (see QueryMetrics)", true);
+		writeParts(out, "http_request_serialization_seconds", "Time each request spent writing response JSON", false);
+	}
+
+	private static void writeParts(StringBuilder out, String name, String help, boolean database) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(" histogram\n");
+		for (Map.Entry<String, Route> route : new TreeMap<>(routes).entrySet()) {
+			AtomicReferenceArray<Histogram> histograms = database ? route.getValue().database : route.getValue().serialization;
+			for (int method = 0; method < methods.length; method++) {
+				Histogram histogram = histograms.get(method);
+				if (histogram != null) {
+					histogram.writeTo(out, name, "route=\"" + escape(route.getKey()) + "\",method=\"" + methods[method] + "\"");
+				}
+			}
+		}
+	}
+
+	// The route template that matched, "" if no handler ran
+	static String route(Context ctx) {
+		String path = ctx.endpointHandlerPath();
+		return path == null || !path.startsWith("/") ? "" : path; // Javalin puts a message here when nothing matched
+	}
+
+	// Prometheus label values escape backslashes, quotes and newlines
+	static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static int method(String method) {
+		for (int i = 0; i < methods.length - 1; i++) {
+			if (methods[i].equals(method)) {
+				return i;
+			}
+		}
+		return methods.length - 1;
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.revature.util;
+
+import java.sql.SQLException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revature.exceptions.DatabaseException;
+
+import io.javalin.http.Context;
+
+/*
+ * What Application sets up for every request in its before handler and finishes in its after handler: the
+ * RequestContext, and the UnitOfWork every repository call made for the request shares.
+ *
+ * Both are thread locals while the request is being worked on, and are kept as ctx attributes too. A handler that
+ * hands its work to a JdbcExecutor moves them to the executor's thread (suspend / resume), and Javalin runs the
+ * after handler of such a request on whichever thread finished it. So code that runs after the handler has to get
+ * them from ctx through here, not from the thread locals.
+ */
+public class RequestScope {
+
+	private static Logger logger = LoggerFactory.getLogger(RequestScope.class);
+
+	private static final String requestContextAttribute = "requestContext";
+	private static final String unitOfWorkAttribute = "unitOfWork";
+
+	private RequestScope() {
+	}
+
+	public static void begin(Context ctx) {
+		ctx.attribute(requestContextAttribute, RequestContext.begin(ctx.req.getMethod(), ctx.req.getRequestURI()));
+
+		// Every repository call made while handling this request shares this unit of work
+		ctx.attribute(unitOfWorkAttribute, UnitOfWork.begin());
+	}
+
+	// null when ctx isn't going through Application's before handler
+	public static RequestContext requestContext(Context ctx) {
+		return ctx.attribute(requestContextAttribute);
+	}
+
+	/*
+	 * Commits everything the request did in one go (or rolls it all back if the response is an error or stale) and
+	 * hands the connection back to the pool. Only the first call does anything.
+	 *
+	 * A request that writes is never meant to be served stale (see StaleRefresher.mayServeStale). If one was anyway,
+	 * its changes are rolled back and it fails with a DatabaseException rather than answering as if they were saved
+	 */
+	public static void finish(Context ctx) throws DatabaseException {
+		UnitOfWork unitOfWork = ctx.attribute(unitOfWorkAttribute);
+		if (unitOfWork == null) {
+			return;
+		}
+		ctx.attribute(unitOfWorkAttribute, null);
+
+		RequestContext request = requestContext(ctx);
+		boolean stale = request != null && request.isStale();
+		if (stale && !request.isReadOnly()) {
+			abandon(unitOfWork);
+			throw new DatabaseException("The database couldn't be reached part way through the request, "
+					+ "none of its changes were saved");
+		}
+
+		try (UnitOfWork finishing = unitOfWork) {
+			if (ctx.status() < 400 && !stale) {
+				finishing.commit();
+			}
+		} catch (SQLException e) {
+			if (!stale) {
+				throw new DatabaseException("Something went wrong when trying to commit the request's changes. "
+						+ "Exception message: " + e.getMessage());
+			}
+			// The database is what failed, the stale response still goes out
+			logger.warn("Couldn't roll back after a stale response. " + e.getMessage());
+		}
+	}
+
+	// For a request that failed before it had an error status: rolls back whatever it did
+	public static void abandon(Context ctx) {
+		UnitOfWork unitOfWork = ctx.attribute(unitOfWorkAttribute);
+		if (unitOfWork == null) {
+			return;
+		}
+		ctx.attribute(unitOfWorkAttribute, null);
+		abandon(unitOfWork);
+	}
+
+	private static void abandon(UnitOfWork unitOfWork) {
+		try {
+			unitOfWork.close();
+		} catch (SQLException e) {
+			logger.warn("Couldn't roll back a failed request. " + e.getMessage()); // The request's own error matters more
+		}
+	}
+
+	// The last thing the after handler does. Clears whatever the current thread still has of the request
+	public static RequestContext end(Context ctx) {
+		UnitOfWork.suspend();
+		RequestContext.end();
+		return requestContext(ctx);
+	}
+
+	// Takes the request off the current thread, so another thread can resume() it
+	static void suspend() {
+		UnitOfWork.suspend();
+		RequestContext.end();
+	}
+
+	static void resume(Context ctx) {
+		UnitOfWork.resume(ctx.attribute(unitOfWorkAttribute));
+		RequestContext.resume(requestContext(ctx));
+	}
+
+}
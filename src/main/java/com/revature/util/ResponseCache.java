@@ -0,0 +1,253 @@
+package com.revature.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.revature.dto.CacheStatsDTO;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+
+/*
+ * Whole GET responses, by path and query string: the JSON bytes exactly as they were sent, a strong ETag made from
+ * them, and the X-Next-Cursor header of paged lists. Wrap a handler with cached() and repeat requests are answered
+ * from here without a query or any serializing, and a request whose If-None-Match has the current ETag just gets a
+ * 304. Fresh responses get the ETag too, so clients can start sending If-None-Match.
+ *
+ * Only plain 200 responses are kept: not errors, not streamed responses (nothing to capture) and not stale ones
+ * (see StaleRefresher). The size limit is in bytes of body (response_cache_max_bytes), and entries expire after
+ * response_cache_ttl_seconds as a safety net for changes made behind the application's back.
+ *
+ * Write handlers call invalidateClient / invalidateClientList, which drop the affected entries straight away and
+ * again once the request commits. Like the other caches, a response that was being built while an invalidation
+ * happened isn't stored (every invalidation bumps a version).
+ */
+public class ResponseCache {
+
+	private static final long defaultMaxBytes = ConfigUtil.getLong("response_cache_max_bytes", 16 * 1024 * 1024);
+	private static final long defaultTtlSeconds = ConfigUtil.getLong("response_cache_ttl_seconds", 60);
+
+	private static final ResponseCache shared = new ResponseCache(defaultMaxBytes, defaultTtlSeconds);
+
+	private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	private final Cache<String, CachedResponse> responses;
+	private final long maxBytes;
+	private final AtomicLong version = new AtomicLong();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public ResponseCache(long maxBytes, long ttlSeconds) {
+		this.maxBytes = maxBytes;
+		this.responses = Caffeine.newBuilder()
+				.maximumWeight(maxBytes)
+				.weigher((String key, CachedResponse response) -> response.body.length + key.length())
+				.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.recordStats()
+				.build();
+	}
+
+	// The cache every controller shares
+	public static ResponseCache shared() {
+		return shared;
+	}
+
+	public Handler cached(Handler handler) {
+		return ctx -> {
+			String key = key(ctx);
+
+			CachedResponse cached = responses.getIfPresent(key);
+			if (cached != null) {
+				hits.increment();
+				CacheAccessEvent.record("responses", key, true);
+				ctx.result(send(ctx, cached));
+				return;
+			}
+			misses.increment();
+			CacheAccessEvent.record("responses", key, false);
+
+			long versionBefore = version.get();
+			handler.handle(ctx);
+
+			// A handler that runs on a JdbcExecutor only has its response once the future completes
+			CompletableFuture<?> pending = ctx.resultFuture();
+			if (pending != null) {
+				ctx.result(pending.thenApply(result -> store(ctx, key, versionBefore, (InputStream) result)));
+			} else if (ctx.resultStream() != null) {
+				ctx.result(store(ctx, key, versionBefore, ctx.resultStream()));
+			}
+		};
+	}
+
+	/*
+	 * Everything under /clients/:id (the client, its accounts, single accounts). Call after the write went through;
+	 * the entries are dropped now and again after the request commits
+	 */
+	public void invalidateClient(String clientId) {
+		int id;
+		try {
+			id = Integer.parseInt(clientId);
+		} catch (NumberFormatException e) {
+			return; // Nothing could have been cached for it
+		}
+
+		invalidateWhere(key -> isUnderClient(key, id));
+		UnitOfWork.afterCommit(() -> invalidateWhere(key -> isUnderClient(key, id)));
+	}
+
+	// Every page of GET /clients
+	public void invalidateClientList() {
+		invalidateWhere(ResponseCache::isClientList);
+		UnitOfWork.afterCommit(() -> invalidateWhere(ResponseCache::isClientList));
+	}
+
+	// size is the number of responses held, maxSize the limit in bytes
+	public CacheStatsDTO getStats() {
+		return new CacheStatsDTO("responses", responses.estimatedSize(), maxBytes, hits.sum(), misses.sum(),
+				responses.stats().evictionCount());
+	}
+
+	private void invalidateWhere(Predicate<String> affected) {
+		version.incrementAndGet();
+		responses.asMap().keySet().removeIf(affected);
+	}
+
+	// Keeps the handler's response if it's one we keep, and returns the body to send
+	private InputStream store(Context ctx, String key, long versionBefore, InputStream result) {
+		CachedResponse fresh = capture(ctx, result);
+		if (fresh == null) {
+			return result;
+		}
+
+		responses.put(key, fresh);
+		if (version.get() != versionBefore) {
+			responses.invalidate(key); // Something was written while we were building it
+		}
+		return send(ctx, fresh);
+	}
+
+	// Sets the status and headers for the cached response and returns its body
+	private static InputStream send(Context ctx, CachedResponse response) {
+		ctx.header("ETag", response.etag);
+		if (response.nextCursor != null) {
+			ctx.header(NEXT_CURSOR_HEADER, response.nextCursor);
+		}
+
+		if (matches(ctx.header("If-None-Match"), response.etag)) {
+			ctx.status(304);
+			return new ByteArrayInputStream(new byte[0]);
+		}
+
+		ctx.status(200);
+		ctx.contentType(response.contentType);
+		return new ByteArrayInputStream(response.body);
+	}
+
+	// What the handler produced, or null when it isn't something we keep
+	private static CachedResponse capture(Context ctx, InputStream result) {
+		RequestContext request = RequestScope.requestContext(ctx);
+		if (ctx.status() != 200 || result == null || ctx.res.isCommitted() || (request != null && request.isStale())) {
+			return null;
+		}
+
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		try {
+			for (int read = result.read(buffer); read != -1; read = result.read(buffer)) {
+				body.write(buffer, 0, read);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // Results are in memory, reading them doesn't fail
+		}
+
+		byte[] bytes = body.toByteArray();
+		return new CachedResponse(bytes, etagOf(bytes), ctx.res.getContentType(), ctx.res.getHeader(NEXT_CURSOR_HEADER));
+	}
+
+	private static String key(Context ctx) {
+		String query = ctx.queryString();
+		return query == null ? ctx.path() : ctx.path() + "?" + query;
+	}
+
+	// If-None-Match may list several tags or be *, and uses the weak comparison (W/"x" matches "x")
+	private static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			if (tag.equals("*") || tag.equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Strong, the same bytes always give the same tag: the first 128 bits of their SHA-256
+	private static String etagOf(byte[] body) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+			return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + "\"";
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Every JVM has SHA-256", e);
+		}
+	}
+
+	// /clients/5, /clients/5/accounts?sort=-id, /clients/5/accounts/3 ...
+	private static boolean isUnderClient(String key, int clientId) {
+		String[] segments = pathOf(key).split("/");
+		if (segments.length < 3 || !segments[1].equals("clients")) {
+			return false;
+		}
+		try {
+			return Integer.parseInt(segments[2]) == clientId;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private static boolean isClientList(String key) {
+		String path = pathOf(key);
+		return path.equals("/clients") || path.equals("/clients/");
+	}
+
+	private static String pathOf(String key) {
+		int query = key.indexOf('?');
+		return query == -1 ? key : key.substring(0, query);
+	}
+
+	private static final class CachedResponse {
+
+		private final byte[] body;
+		private final String etag;
+		private final String contentType;
+		private final String nextCursor;
+
+		private CachedResponse(byte[] body, String etag, String contentType, String nextCursor) {
+			this.body = body;
+			this.etag = etag;
+			this.contentType = contentType;
+			this.nextCursor = nextCursor;
+		}
+
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.revature.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.revature.dto.CoalescingStatsDTO;
+
+/*
+ * Lets concurrent identical reads share one database call. The first caller for a key runs the call, anyone asking
+ * for the same key while it's running waits for it and gets the same result (or the same exception) instead of
+ * running the query again. Once the call finishes the key is forgotten, so this never serves anything older than
+ * the call everyone waited on. Waiting callers don't borrow a connection at all.
+ *
+ * The result object is handed to every caller, so it must not be changed by any of them.
+ *
+ * A caller whose unit of work has uncommitted writes always runs the call itself: it has to see its own changes,
+ * and nobody else should see them.
+ *
+ * The exceptions the call can throw are given as type arguments, e.g.
+ * clientById.<ClientNotFoundException, DatabaseException>run(id, () -> ...) (use RuntimeException to fill a slot
+ * that isn't needed). Every call made through one SingleFlight has to throw the same kinds of exceptions, since a
+ * waiting caller rethrows whatever the running one threw.
+ */
+public class SingleFlight<K, V> {
+
+	public interface Call<V, E1 extends Exception, E2 extends Exception> {
+		V call() throws E1, E2;
+	}
+
+	private static final Map<String, SingleFlight<?, ?>> shared = new ConcurrentHashMap<>();
+
+	private final String name;
+	private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder deduplicated = new LongAdder();
+
+	public SingleFlight(String name) {
+		this.name = name;
+	}
+
+	// One instance per name for the whole application, so callers in different services (and controllers) coalesce
+	@SuppressWarnings("unchecked")
+	public static <K, V> SingleFlight<K, V> shared(String name) {
+		return (SingleFlight<K, V>) shared.computeIfAbsent(name, SingleFlight::new);
+	}
+
+	public static List<CoalescingStatsDTO> getAllStats() {
+		List<CoalescingStatsDTO> stats = new ArrayList<>();
+		for (SingleFlight<?, ?> flight : shared.values()) {
+			stats.add(flight.getStats());
+		}
+		return stats;
+	}
+
+	public <E1 extends Exception, E2 extends Exception> V run(K key, Call<V, E1, E2> call) throws E1, E2 {
+
+		if (UnitOfWork.hasPendingWrites()) {
+			return call.call();
+		}
+
+		CompletableFuture<V> mine = new CompletableFuture<>();
+		CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+		if (running != null) {
+			deduplicated.increment();
+			return await(running);
+		}
+
+		calls.increment();
+		try {
+			V value = call.call();
+			mine.complete(value);
+			return value;
+		} catch (Throwable t) {
+			mine.completeExceptionally(t);
+			throw t;
+		} finally {
+			inFlight.remove(key, mine);
+		}
+	}
+
+	public CoalescingStatsDTO getStats() {
+		return new CoalescingStatsDTO(name, calls.sum(), deduplicated.sum(), inFlight.size());
+	}
+
+	private V await(CompletableFuture<V> running) {
+		try {
+			return running.join();
+		} catch (CompletionException e) {
+			throw SingleFlight.<RuntimeException>rethrow(e.getCause());
+		}
+	}
+
+	// Throws a checked exception without declaring it. The cause came from a call of the same kind, so it's one
+	// of the types run declares
+	@SuppressWarnings("unchecked")
+	private static <T extends Throwable> T rethrow(Throwable cause) throws T {
+		throw (T) cause;
+	}
+
+}
@@ -0,0 +1,120 @@
+package com.revature.util;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/*
+ * Stale-while-revalidate for the caches. When a read can't reach the database but the cache still has an older copy
+ * (see ClientCache.getStale), the service serves that copy through serveStale: the response gets marked stale (the
+ * after handler adds the headers) and a background refresh of that one entry is queued, so the cache is fresh again
+ * as soon as the database is back.
+ *
+ * Only read-only requests get stale copies (see mayServeStale). RequestScope.finish rolls back a stale request, so a
+ * write that went ahead on one would be thrown away after answering as if it had worked.
+ *
+ * The refresh load stays bounded however many stale reads come in:
+ * - stale_refresh_threads threads and a queue of stale_refresh_queue_size, anything past that is dropped
+ * - at most one refresh per key queued or running
+ * - a key isn't tried again until stale_refresh_retry_ms after its last attempt
+ */
+public class StaleRefresher {
+
+	// Reloads one entry into its cache, in its own unit of work
+	public interface Refresh {
+		void run() throws Exception;
+	}
+
+	private static Logger logger = LoggerFactory.getLogger(StaleRefresher.class);
+
+	private static final int threads = ConfigUtil.getInt("stale_refresh_threads", 2);
+	private static final int queueSize = ConfigUtil.getInt("stale_refresh_queue_size", 100);
+	private static final long retryMillis = ConfigUtil.getLong("stale_refresh_retry_ms", 1000);
+
+	private static final StaleRefresher shared = new StaleRefresher(threads, queueSize, retryMillis);
+
+	private final ThreadPoolExecutor executor;
+	private final Set<Object> queued = ConcurrentHashMap.newKeySet();
+	private final Cache<Object, Boolean> recentlyTried;
+
+	public StaleRefresher(int threads, int queueSize, long retryMillis) {
+		AtomicInteger threadNumber = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize), runnable -> {
+			Thread thread = new Thread(runnable, "stale-refresher-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.executor.allowCoreThreadTimeOut(true); // Nothing sits around while the database is fine
+		this.recentlyTried = Caffeine.newBuilder()
+				.maximumSize(10000)
+				.expireAfterWrite(retryMillis, TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+	public static StaleRefresher shared() {
+		return shared;
+	}
+
+	/*
+	 * Whether the current thread may be handed a stale copy: not inside a unit of work that changed something, and not
+	 * for a request that writes. Those get the database's error instead. Outside a request (startup, background jobs)
+	 * only the first part applies
+	 */
+	public static boolean mayServeStale() {
+		if (UnitOfWork.hasPendingWrites()) {
+			return false;
+		}
+		RequestContext request = RequestContext.current();
+		return request == null || request.isReadOnly();
+	}
+
+	/*
+	 * Marks the current request as served stale and queues a refresh of the entry. key names the entry across all
+	 * caches, e.g. "client:5"
+	 */
+	public <V> V serveStale(CachedValue<V> stale, Exception cause, Object key, Refresh refresh) {
+		logger.warn("Serving " + key + " from the cache (" + stale.getAgeSeconds() + "s old), the database failed. "
+				+ cause.getMessage());
+
+		RequestContext request = RequestContext.current();
+		if (request != null) {
+			request.servedStale(stale.getAgeSeconds());
+		}
+
+		refresh(key, refresh);
+		return stale.getValue();
+	}
+
+	public void refresh(Object key, Refresh refresh) {
+		if (recentlyTried.getIfPresent(key) != null || !queued.add(key)) {
+			return;
+		}
+
+		try {
+			executor.execute(() -> {
+				recentlyTried.put(key, Boolean.TRUE);
+				try {
+					refresh.run();
+					logger.info("Refreshed " + key + " after serving it stale");
+				} catch (Exception e) {
+					logger.debug("Refreshing {} failed, the next stale read will try again. {}", key, e.getMessage());
+				} finally {
+					queued.remove(key);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			queued.remove(key); // Queue is full, some later stale read will get it in
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.revature.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revature.dto.StatementCacheStatsDTO;
+
+/*
+ * Keeps the PreparedStatements a pooled connection has already prepared, so running the same SQL again on that
+ * connection reuses the statement (and with server side prepare, the server's already parsed plan) instead of
+ * preparing it from scratch.
+ *
+ * Each physical connection gets its own small LRU cache keyed by SQL text + whether generated keys are wanted.
+ * Only the thread that currently has the connection borrowed ever touches that connection's cache, so the
+ * cache itself doesn't need any locking.
+ *
+ * Statements handed out from here belong to the cache: callers close their ResultSets but never the statement.
+ */
+public class StatementCache {
+
+	private static Logger logger = LoggerFactory.getLogger(StatementCache.class);
+
+	private static final int maxStatementsPerConnection = ConfigUtil.getInt("db_statement_cache_size", 32);
+	private static final int streamFetchSize = ConfigUtil.getInt("db_stream_fetch_size", 500);
+
+	private static final Map<Connection, StatementCache> caches = new ConcurrentHashMap<>();
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+	private static final AtomicLong evictions = new AtomicLong();
+
+	private final Connection connection;
+	private final LinkedHashMap<String, PreparedStatement> statements;
+
+	private StatementCache(Connection connection) {
+		this.connection = connection;
+
+		// accessOrder = true makes this a least recently used cache
+		this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() > maxStatementsPerConnection) {
+					evictions.incrementAndGet();
+					closeQuietly(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public static PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+		return prepare(connection, sql, false);
+	}
+
+	public static PreparedStatement prepare(Connection connection, String sql, boolean returnGeneratedKeys) throws SQLException {
+
+		// The pool gives us a new wrapper every time a connection is borrowed, the cache has to live on the
+		// real connection underneath it so it survives being returned and borrowed again
+		Connection physical = connection.unwrap(Connection.class);
+
+		StatementCache cache = caches.get(physical);
+		if (cache == null) {
+			removeClosedConnections();
+			cache = new StatementCache(physical);
+			caches.put(physical, cache);
+		}
+
+		PreparedStatement pstmt = cache.get(sql, returnGeneratedKeys);
+		if (pstmt.getFetchSize() != 0) {
+			pstmt.setFetchSize(0); // Last used by prepareStreaming, go back to reading the whole result at once
+		}
+		QueryMetrics.prepared(sql);
+		return pstmt;
+	}
+
+	/*
+	 * For queries whose rows are handled one at a time. With a fetch size set, the MariaDB driver reads the result
+	 * from the socket a batch at a time as the ResultSet is walked, instead of loading every row into memory when the
+	 * query executes. Until that ResultSet is closed the connection can't run anything else
+	 */
+	public static PreparedStatement prepareStreaming(Connection connection, String sql) throws SQLException {
+		PreparedStatement pstmt = prepare(connection, sql);
+		pstmt.setFetchSize(streamFetchSize);
+		return pstmt;
+	}
+
+	public static StatementCacheStatsDTO getStats() {
+		return new StatementCacheStatsDTO(hits.get(), misses.get(), evictions.get(), caches.size(), maxStatementsPerConnection);
+	}
+
+	private PreparedStatement get(String sql, boolean returnGeneratedKeys) throws SQLException {
+		String key = returnGeneratedKeys ? "K:" + sql : sql;
+
+		PreparedStatement pstmt = statements.get(key);
+		if (pstmt != null && !pstmt.isClosed()) {
+			hits.incrementAndGet();
+			CacheAccessEvent.record("statements", sql, true);
+			pstmt.clearParameters();
+			return pstmt;
+		}
+
+		misses.incrementAndGet();
+		CacheAccessEvent.record("statements", sql, false);
+		if (returnGeneratedKeys) {
+			pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+		} else {
+			pstmt = connection.prepareStatement(sql);
+		}
+		pstmt = QueryMetrics.instrument(pstmt, sql); // Kept wrapped, so it's only wrapped once
+		statements.put(key, pstmt);
+		return pstmt;
+	}
+
+	// The pool closes connections that go bad or get too old, so drop their caches along with them
+	private static void removeClosedConnections() {
+		Iterator<Map.Entry<Connection, StatementCache>> iterator = caches.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Connection, StatementCache> entry = iterator.next();
+			try {
+				if (entry.getKey().isClosed()) {
+					iterator.remove();
+				}
+			} catch (SQLException e) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private static void closeQuietly(PreparedStatement pstmt) {
+		try {
+			pstmt.close();
+		} catch (SQLException e) {
+			logger.warn("Could not close evicted statement. Exception message: " + e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.revature.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Where the request path gets its threads: Jetty's (see VirtualThreadPool) and JdbcExecutor's responder pool.
+ *
+ * virtual_threads=true runs them on virtual threads, so a thread waiting on the database or a slow client is just a
+ * small object on the heap instead of a whole platform thread with its own stack. The build targets Java 17, so
+ * virtual threads are made through reflection and the setting only takes effect on a Java 21+ runtime (it logs a
+ * warning and stays on platform threads anywhere else).
+ *
+ * A virtual thread that blocks inside a synchronized block pins the platform thread carrying it. Ours are only held
+ * around in memory updates (AccountOwnerIndex, IdFilter) or at startup and shutdown, but the MariaDB driver (2.7)
+ * reads its socket inside synchronized, so every JDBC call would pin. That's why no JDBC runs on these threads: all
+ * of it goes through the JdbcExecutor pools (reads, writes and the streamed exports), which stay on platform threads
+ * either way, and request threads only wait for them on java.util.concurrent. Measured with ThreadModeBenchmark
+ * against MariaDB: queries on virtual workers pinned on every query and halved the throughput, and exports run on
+ * the request thread pinned ~7000 times in 3000 requests. Through the pools it's none.
+ */
+public class Threads {
+
+	private static Logger logger = LoggerFactory.getLogger(Threads.class);
+
+	private static final boolean virtualRequested = ConfigUtil.getBoolean("virtual_threads", false);
+	private static final boolean virtual = virtualRequested && checkVirtualThreadsAvailable();
+
+	private Threads() {
+	}
+
+	// Whether this run uses virtual threads
+	public static boolean useVirtualThreads() {
+		return virtual;
+	}
+
+	public static boolean virtualThreadsAvailable() {
+		return Runtime.version().feature() >= 21;
+	}
+
+	// Virtual threads when they're turned on, daemon platform threads named name-1, name-2 ... otherwise
+	public static ThreadFactory factory(String name) {
+		return virtual ? virtualFactory(name) : platformFactory(name);
+	}
+
+	// Daemon platform threads named name-1, name-2 ..., whatever the virtual_threads setting
+	public static ThreadFactory platformFactory(String name) {
+		AtomicInteger threadNumber = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	// Thread.ofVirtual().name(name + "-", 1).factory(), whatever the virtual_threads setting
+	public static ThreadFactory virtualFactory(String name) {
+		if (!virtualThreadsAvailable()) {
+			throw new UnsupportedOperationException("Virtual threads need Java 21, this is " + Runtime.version());
+		}
+
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException e) {
+			throw new UnsupportedOperationException("Couldn't make a virtual thread factory", e);
+		}
+	}
+
+	private static boolean checkVirtualThreadsAvailable() {
+		if (virtualThreadsAvailable()) {
+			logger.info("Handling requests on virtual threads");
+			return true;
+		}
+		logger.warn("virtual_threads is set but virtual threads need Java 21, this is " + Runtime.version()
+				+ ". Staying on platform threads");
+		return false;
+	}
+
+}
@@ -0,0 +1,188 @@
+package com.revature.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * One connection and one transaction shared by every repository call on the current thread.
+ *
+ * Application begins one of these for each HTTP request. When a service calls begin() while one is already
+ * active, it gets a handle that joins the outer unit of work instead of opening a second connection, so its
+ * commit() is left to whoever started the outer one. Calling begin() with nothing active (tests, startup jobs)
+ * just starts a standalone unit of work that commits and closes on its own.
+ *
+ * The connection is only borrowed from the pool the first time a repository actually asks for it.
+ *
+ * Caches register afterCommit() actions when something changes data they hold, so they only publish the change
+ * once it's actually in the database (and never if the transaction rolls back).
+ */
+public class UnitOfWork implements AutoCloseable {
+
+	private static Logger logger = LoggerFactory.getLogger(UnitOfWork.class);
+
+	private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+
+	private final UnitOfWork outer; // null when this is the unit of work that owns the connection
+	private Connection connection;
+	private boolean committed;
+	private boolean rollbackOnly;
+	private List<Runnable> afterCommitActions; // Only used on the unit of work that owns the connection
+
+	private UnitOfWork(UnitOfWork outer) {
+		this.outer = outer;
+	}
+
+	public static UnitOfWork begin() {
+		UnitOfWork active = current.get();
+		if (active != null) {
+			return new UnitOfWork(active); // Join the unit of work that's already running
+		}
+
+		UnitOfWork unitOfWork = new UnitOfWork(null);
+		current.set(unitOfWork);
+		return unitOfWork;
+	}
+
+	// Used by the repositories, so they never have to open (or close) a connection themselves
+	public static Connection currentConnection() throws SQLException {
+		UnitOfWork active = current.get();
+		if (active == null) {
+			throw new SQLException("No unit of work is active on this thread");
+		}
+		return active.getConnection();
+	}
+
+	/*
+	 * Runs the action once the current unit of work has committed, or right away when there isn't one.
+	 * Dropped if the unit of work rolls back instead
+	 */
+	public static void afterCommit(Runnable action) {
+		UnitOfWork active = current.get();
+		if (active == null) {
+			action.run();
+			return;
+		}
+
+		if (active.afterCommitActions == null) {
+			active.afterCommitActions = new ArrayList<>();
+		}
+		active.afterCommitActions.add(action);
+	}
+
+	/*
+	 * True when the current unit of work changed something that hasn't been committed yet. Whatever it reads can
+	 * include those changes, so it shouldn't go into a cache other requests read from
+	 */
+	public static boolean hasPendingWrites() {
+		UnitOfWork active = current.get();
+		return active != null && active.afterCommitActions != null && !active.afterCommitActions.isEmpty();
+	}
+
+	/*
+	 * Takes the current thread's unit of work off it (null if it had none) so another thread can carry on with it
+	 * through resume(). Only one thread may be using a unit of work at a time (see JdbcExecutor)
+	 */
+	static UnitOfWork suspend() {
+		UnitOfWork active = current.get();
+		current.remove();
+		return active;
+	}
+
+	static void resume(UnitOfWork unitOfWork) {
+		if (unitOfWork == null) {
+			current.remove();
+		} else {
+			current.set(unitOfWork);
+		}
+	}
+
+	public Connection getConnection() throws SQLException {
+		if (outer != null) {
+			return outer.getConnection();
+		}
+
+		if (connection == null) {
+			connection = ConnectionUtil.getConnection();
+			connection.setAutoCommit(false); // Turn off autocommit so we have control over commit v. not committing
+		}
+		return connection;
+	}
+
+	public void commit() throws SQLException {
+		if (outer != null) {
+			committed = true;
+			return; // The outer unit of work does the real commit
+		}
+
+		if (rollbackOnly) {
+			throw new SQLException("Transaction was rolled back because part of it failed");
+		}
+
+		if (connection != null) {
+			connection.commit(); // This is when changes will actually be persisted
+		}
+		committed = true;
+		runAfterCommitActions();
+	}
+
+	public void rollback() throws SQLException {
+		if (outer != null) {
+			outer.rollbackOnly = true;
+			return;
+		}
+
+		afterCommitActions = null;
+		if (connection != null) {
+			connection.rollback();
+		}
+	}
+
+	@Override
+	public void close() throws SQLException {
+		if (outer != null) {
+			if (!committed) {
+				outer.rollbackOnly = true; // Something failed before this part of the work finished
+			}
+			return;
+		}
+
+		if (current.get() == this) {
+			current.remove();
+		}
+		afterCommitActions = null; // Never committed, or already ran
+
+		if (connection != null) {
+			try {
+				if (!committed) {
+					connection.rollback();
+				}
+			} finally {
+				connection.close(); // Back to the pool
+				connection = null;
+			}
+		}
+	}
+
+	private void runAfterCommitActions() {
+		List<Runnable> actions = afterCommitActions;
+		afterCommitActions = null;
+		if (actions == null) {
+			return;
+		}
+
+		for (Runnable action : actions) {
+			try {
+				action.run();
+			} catch (RuntimeException e) {
+				// The transaction is already committed, one failed action shouldn't stop the rest
+				logger.warn("An after commit action failed. Exception message: " + e.getMessage(), e);
+			}
+		}
+	}
+
+}
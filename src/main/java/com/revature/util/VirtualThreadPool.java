@@ -0,0 +1,73 @@
+package com.revature.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/*
+ * Jetty thread pool that starts a new virtual thread for every task instead of keeping a fixed set of platform
+ * threads. There's nothing to size and no queue: a request waiting on the database or a slow client costs a few
+ * hundred bytes of heap instead of a blocked platform thread, so Jetty never runs out of threads. How much work
+ * reaches the database at once is still bounded, by the JdbcExecutor pools and the connection pool.
+ *
+ * Jetty's selectors and acceptors run on it too. Blocking in a selector or accept call parks a virtual thread like
+ * any other I/O (the JDK adds a carrier thread for the selector while it waits), so they don't starve the requests.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+
+	private final ThreadFactory threads;
+	private final AtomicInteger running = new AtomicInteger();
+	private final CountDownLatch stopped = new CountDownLatch(1);
+
+	public VirtualThreadPool(String name) {
+		this.threads = Threads.virtualFactory(name);
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		if (!isRunning() && !isStarting()) {
+			throw new RejectedExecutionException("Thread pool is " + getState());
+		}
+
+		running.incrementAndGet();
+		threads.newThread(() -> {
+			try {
+				task.run();
+			} finally {
+				running.decrementAndGet();
+			}
+		}).start();
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+		stopped.countDown();
+		super.doStop();
+	}
+
+	@Override
+	public void join() throws InterruptedException {
+		stopped.await();
+	}
+
+	// Threads running a task right now. There are no idle ones, a thread ends with its task
+	@Override
+	public int getThreads() {
+		return running.get();
+	}
+
+	@Override
+	public int getIdleThreads() {
+		return 0;
+	}
+
+	@Override
+	public boolean isLowOnThreads() {
+		return false;
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.revature.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.revature.model.Account;
+
+public class AccountFilterTest {
+
+	private List<Account> accounts;
+
+	@Before
+	public void beforeTest() {
+		accounts = new ArrayList<>();
+		accounts.add(new Account(3, "Checking", 500));
+		accounts.add(new Account(1, "Savings", 1000));
+		accounts.add(new Account(2, "Checking", 1000));
+		accounts.add(new Account(4, "Savings", 15000));
+	}
+
+	@Test
+	public void test_inclusiveAndExclusiveBounds_apply() {
+		AccountFilter filter = new AccountFilter(1);
+		filter.setMinAmount(1000, true);
+		filter.setMaxAmount(15000, false);
+
+		List<Account> expected = new ArrayList<>();
+		expected.add(new Account(1, "Savings", 1000));
+		expected.add(new Account(2, "Checking", 1000));
+		assertEquals(expected, filter.apply(accounts));
+	}
+
+	@Test
+	public void test_typeSortAndLimit_apply() {
+		AccountFilter filter = new AccountFilter(1);
+		filter.setAccountType("checking");
+		filter.setSort(AccountFilter.Sort.AMOUNT_DESC);
+		filter.setLimit(1);
+
+		List<Account> expected = new ArrayList<>();
+		expected.add(new Account(2, "Checking", 1000));
+		assertEquals(expected, filter.apply(accounts));
+	}
+
+	@Test
+	public void test_keysetDescending_apply() {
+		AccountFilter filter = new AccountFilter(1);
+		filter.setSort(AccountFilter.Sort.ID_DESC);
+		filter.setAfterId(3);
+
+		List<Account> expected = new ArrayList<>();
+		expected.add(new Account(2, "Checking", 1000));
+		expected.add(new Account(1, "Savings", 1000));
+		assertEquals(expected, filter.apply(accounts));
+	}
+
+	@Test
+	public void test_sameShapeSameSql_compile() {
+		AccountFilter filter = new AccountFilter(1);
+		filter.setMinAmount(5, true);
+		filter.setAccountType("Savings");
+		filter.setAfterId(10);
+		filter.setLimit(101);
+
+		assertEquals("SELECT id, accountType, amount FROM accounts WHERE client_id = ? AND id > ? AND amount >= ? "
+				+ "AND accountType = ? ORDER BY id LIMIT ?", AccountQueryCompiler.sql(filter));
+
+		AccountFilter sameShape = new AccountFilter(2);
+		sameShape.setMinAmount(700, true);
+		sameShape.setAccountType("Checking");
+		sameShape.setAfterId(0);
+		sameShape.setLimit(11);
+		assertSame(AccountQueryCompiler.sql(filter), AccountQueryCompiler.sql(sameShape));
+	}
+
+}
@@ -1,10 +1,14 @@
 package com.revature.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.sql.Connection;
@@ -16,8 +20,11 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.mockito.MockedStatic;
 
+import com.revature.dao.AccountFilter;
 import com.revature.dao.AccountRepository;
 import com.revature.dto.AccountDTO;
+import com.revature.dto.AccountQueryDTO;
+import com.revature.dto.PageDTO;
 import com.revature.exception.AddAccountException;
 import com.revature.exceptions.AccountNotFoundException;
 import com.revature.exceptions.BadParameterException;
@@ -26,6 +33,7 @@ import com.revature.exceptions.NotClientsAccountException;
 import com.revature.exceptions.UpdateAccountException;
 import com.revature.model.Account;
 import com.revature.util.ConnectionUtil;
+import com.revature.util.PageUtil;
 
 public class AccountServiceTest {
 	
@@ -42,23 +50,47 @@ public class AccountServiceTest {
 		List<Account> accountList = new ArrayList<>();
 		accountList.add(new Account(1, "Savings", 1000));
 		accountList.add(new Account(2, "Checking", 15000));
-		when(mockAccountRepository.getAllAccountsOfClient(eq(1)))
+		when(mockAccountRepository.getAccounts(eq(page(new AccountFilter(1)))))
 			.thenReturn(accountList);
 		
 		List<Account> accountList2 = new ArrayList<>();
 		accountList2.add(new Account(1, "Savings", 1000));
-		when(mockAccountRepository.getAllAccountsOfClientLessThan(eq(1), eq(10000)))
+		AccountFilter lessThan = new AccountFilter(1);
+		lessThan.setMaxAmount(10000, false);
+		when(mockAccountRepository.getAccounts(eq(page(lessThan))))
 			.thenReturn(accountList2);
 		
 		List<Account> accountList3 = new ArrayList<>();
 		accountList3.add(new Account(2, "Checking", 15000));
-		when(mockAccountRepository.getAllAccountsOfClientGreaterThan(eq(1), eq(5000)))
+		AccountFilter greaterThan = new AccountFilter(1);
+		greaterThan.setMinAmount(5000, false);
+		when(mockAccountRepository.getAccounts(eq(page(greaterThan))))
 			.thenReturn(accountList3);
 
 		List<Account> accountList4 = new ArrayList<>();
-		when(mockAccountRepository.getAllAccountsOfClient(eq(1), eq(5000), eq(10000)))
+		AccountFilter between = new AccountFilter(1);
+		between.setMinAmount(5000, false);
+		between.setMaxAmount(10000, false);
+		when(mockAccountRepository.getAccounts(eq(page(between))))
 			.thenReturn(accountList4);
 		
+		// Pages of one account: the service asks for one extra row to know whether there is a next page
+		List<Account> firstPage = new ArrayList<>();
+		firstPage.add(new Account(1, "Savings", 1000));
+		firstPage.add(new Account(2, "Checking", 15000));
+		AccountFilter firstPageFilter = new AccountFilter(1);
+		firstPageFilter.setLimit(2);
+		when(mockAccountRepository.getAccounts(eq(firstPageFilter)))
+			.thenReturn(firstPage);
+		
+		List<Account> lastPage = new ArrayList<>();
+		lastPage.add(new Account(2, "Checking", 15000));
+		AccountFilter lastPageFilter = new AccountFilter(1);
+		lastPageFilter.setAfterId(1);
+		lastPageFilter.setLimit(2);
+		when(mockAccountRepository.getAccounts(eq(lastPageFilter)))
+			.thenReturn(lastPage);
+		
 		when(mockAccountRepository.getAccountById(eq(1), eq(1)))
 			.thenReturn(new Account(1, "Savings", 10000));
 		
@@ -73,6 +105,13 @@ public class AccountServiceTest {
 		
 		when(mockAccountRepository.whosAccount(eq(1)))
 			.thenReturn(1);
+		
+		// Account 2 belongs to client 2, account 3 doesn't exist
+		when(mockAccountRepository.whosAccount(eq(2)))
+			.thenReturn(2);
+		
+		when(mockAccountRepository.whosAccount(eq(3)))
+			.thenThrow(new AccountNotFoundException("Couldn't find account with id 3"));
 	}
 	
 	@Before
@@ -81,12 +120,12 @@ public class AccountServiceTest {
 	}
 	
 	@Test 
-	public void test_happyPath_getAllAccountsOfClient() throws DatabaseException, BadParameterException {
+	public void test_happyPath_getAccountsOfClientPage_wholeClient() throws DatabaseException, BadParameterException {
 	
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
-			List<Account> actual = accountService.getAllAccountsOfClient("1");
+			List<Account> actual = accountsOfClient(accountService, "1", new AccountQueryDTO());
 			List<Account> expected = new ArrayList<>();
 			expected.add(new Account(1, "Savings", 1000));
 			expected.add(new Account(2, "Checking", 15000));
@@ -95,13 +134,48 @@ public class AccountServiceTest {
 		
 	}
 	
+	@Test
+	public void test_happyPath_getAccountsOfClientPage() throws DatabaseException, BadParameterException {
+		
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+			
+			PageDTO<Account> first = accountService.getAccountsOfClientPage("1", new AccountQueryDTO(), null, "1");
+			assertEquals(1, first.getItems().size());
+			assertEquals(new Account(1, "Savings", 1000), first.getItems().get(0));
+			assertEquals(PageUtil.encodeCursor(1), first.getNextCursor());
+			
+			PageDTO<Account> last = accountService.getAccountsOfClientPage("1", new AccountQueryDTO(), first.getNextCursor(), "1");
+			assertEquals(1, last.getItems().size());
+			assertEquals(new Account(2, "Checking", 15000), last.getItems().get(0));
+			assertNull(last.getNextCursor());
+		}
+		
+	}
+	
+	@Test
+	public void test_badCursor_getAccountsOfClientPage() throws DatabaseException {
+		
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+			
+			try {
+				accountService.getAccountsOfClientPage("1", new AccountQueryDTO(), "not-a-cursor", "1");
+				fail("BadParameterException was not thrown");
+			} catch (BadParameterException e) {
+				assertEquals("The cursor provided is not valid. User provided: not-a-cursor", e.getMessage());
+			}
+		}
+		
+	}
+	
 	@Test 
-	public void test_happyPath_getAllAccountsOfClientLessThan() throws DatabaseException, BadParameterException {
+	public void test_happyPath_getAccountsOfClientPage_amountLessThan() throws DatabaseException, BadParameterException {
 	
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
-			List<Account> actual = accountService.getAllAccountsOfClientLessThan("1", "10000");
+			List<Account> actual = accountsOfClient(accountService, "1", query(null, "10000"));
 			List<Account> expected = new ArrayList<>();
 			expected.add(new Account(1, "Savings", 1000));
 			assertEquals(expected, actual);
@@ -110,12 +184,12 @@ public class AccountServiceTest {
 	}
 	
 	@Test 
-	public void test_happyPath_getAllAccountsOfClientGreaterThan() throws DatabaseException, BadParameterException {
+	public void test_happyPath_getAccountsOfClientPage_amountGreaterThan() throws DatabaseException, BadParameterException {
 	
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
-			List<Account> actual = accountService.getAllAccountsOfClientGreaterThan("1", "5000");
+			List<Account> actual = accountsOfClient(accountService, "1", query("5000", null));
 			List<Account> expected = new ArrayList<>();
 			expected.add(new Account(2, "Checking", 15000));
 			assertEquals(expected, actual);
@@ -124,12 +198,12 @@ public class AccountServiceTest {
 	}
 	
 	@Test 
-	public void test_happyPath_getAllAccountsOfClient_greaterThan_lessThan() throws DatabaseException, BadParameterException {
+	public void test_happyPath_getAccountsOfClientPage_bothAmounts() throws DatabaseException, BadParameterException {
 	
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
-			List<Account> actual = accountService.getAllAccountsOfClient("1", "5000", "10000");
+			List<Account> actual = accountsOfClient(accountService, "1", query("5000", "10000"));
 			List<Account> expected = new ArrayList<>();
 			assertEquals(expected, actual);
 		}
@@ -189,231 +263,224 @@ public class AccountServiceTest {
 	}
 	
 	@Test
-	public void test_nonIntClientId_getAllAccountsOfClient() throws DatabaseException {
+	public void test_nonIntClientId_getAccountsOfClientPage_wholeClient() throws DatabaseException {
 		
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
 			try {
-				accountService.getAllAccountsOfClient("abc");
+				accountsOfClient(accountService, "abc", new AccountQueryDTO());
 				fail("BadParameterException was not thrown");
 			} catch (BadParameterException e) {
-				assertEquals(e.getMessage(), "Account id must be an int. User provided id: abc");
+				assertEquals(e.getMessage(), "Client id must be an int. User provided: abc");
 			}
 			
 		}
 	}
 	
 	@Test
-	public void test_nonIntClientId_nonIntLessThanStr_getAllAccountsOfClientLessThan() throws DatabaseException {
+	public void test_nonIntClientId_nonIntLessThanStr_getAccountsOfClientPage_amountLessThan() throws DatabaseException {
 		
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
 			try {
-				accountService.getAllAccountsOfClientLessThan("abc", "abc");
+				accountsOfClient(accountService, "abc", query(null, "abc"));
 				fail("BadParameterException was not thrown");
 			} catch (BadParameterException e) {
-				assertEquals(e.getMessage(), "Account id, amount greater than and amount less than values, must all be ints. User provided \nid: abc amount less than: abc");
+				assertEquals(e.getMessage(), "Client id must be an int. User provided: abc");
 			}
 			
 		}
 	}
 	
 	@Test
-	public void test_nonIntClientId_intLessThanStr_getAllAccountsOfClientLessThan() throws DatabaseException {
+	public void test_nonIntClientId_intLessThanStr_getAccountsOfClientPage_amountLessThan() throws DatabaseException {
 		
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
 			try {
-				accountService.getAllAccountsOfClientLessThan("abc", "100");
+				accountsOfClient(accountService, "abc", query(null, "100"));
 				fail("BadParameterException was not thrown");
 			} catch (BadParameterException e) {
-				assertEquals(e.getMessage(), "Account id, amount greater than and amount less than values, must all be ints. User provided \nid: abc amount less than: 100");
+				assertEquals(e.getMessage(), "Client id must be an int. User provided: abc");
 			}
 			
 		}
 	}
 	
 	@Test
-	public void test_intClientId_nonIntLessThanStr_getAllAccountsOfClientLessThan() throws DatabaseException {
+	public void test_intClientId_nonIntLessThanStr_getAccountsOfClientPage_amountLessThan() throws DatabaseException {
 		
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
 			try {
-				accountService.getAllAccountsOfClientLessThan("100", "abc");
+				accountsOfClient(accountService, "100", query(null, "abc"));
 				fail("BadParameterException was not thrown");
 			} catch (BadParameterException e) {
-				assertEquals(e.getMessage(), "Account id, amount greater than and amount less than values, must all be ints. User provided \nid: 100 amount less than: abc");
+				assertEquals(e.getMessage(), "amountLessThan must be an int. User provided: abc");
 			}
 			
 		}
 	}
 	
 	@Test
-	public void test_nonIntClientId_nonIntLessThanStr_getAllAccountsOfClientGreaterThan() throws DatabaseException {
+	public void test_nonIntClientId_nonIntLessThanStr_getAccountsOfClientPage_amountGreaterThan() throws DatabaseException {
 		
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
 			try {
-				accountService.getAllAccountsOfClientGreaterThan("abc", "abc");
+				accountsOfClient(accountService, "abc", query("abc", null));
 				fail("BadParameterException was not thrown");
 			} catch (BadParameterException e) {
-				assertEquals(e.getMessage(), "Account id, amount greater than and amount less than values, must all be ints. User provided \nid: abc amount greater than: abc");
+				assertEquals(e.getMessage(), "Client id must be an int. User provided: abc");
 			}
 			
 		}
 	}
 	
 	@Test
-	public void test_nonIntClientId_intLessThanStr_getAllAccountsOfClientGreaterThan() throws DatabaseException {
+	public void test_nonIntClientId_intLessThanStr_getAccountsOfClientPage_amountGreaterThan() throws DatabaseException {
 		
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
 			try {
-				accountService.getAllAccountsOfClientGreaterThan("abc", "100");
+				accountsOfClient(accountService, "abc", query("100", null));
 				fail("BadParameterException was not thrown");
 			} catch (BadParameterException e) {
-				assertEquals(e.getMessage(), "Account id, amount greater than and amount less than values, must all be ints. User provided \nid: abc amount greater than: 100");
+				assertEquals(e.getMessage(), "Client id must be an int. User provided: abc");
 			}
 			
 		}
 	}
 	
 	@Test
-	public void test_intClientId_nonIntLessThanStr_getAllAccountsOfClientGreaterThan() throws DatabaseException {
+	public void test_intClientId_nonIntLessThanStr_getAccountsOfClientPage_amountGreaterThan() throws DatabaseException {
 		
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
 			try {
-				accountService.getAllAccountsOfClientGreaterThan("100", "abc");
+				accountsOfClient(accountService, "100", query("abc", null));
 				fail("BadParameterException was not thrown");
 			} catch (BadParameterException e) {
-				assertEquals(e.getMessage(), "Account id, amount greater than and amount less than values, must all be ints. User provided \nid: 100 amount greater than: abc");
+				assertEquals(e.getMessage(), "amountGreaterThan must be an int. User provided: abc");
 			}
 			
 		}
 	}
 	
 	@Test
-	public void test_nonIntClientId_nonIntGeaterThanStr_nonIntLessThanStr_getAllAccountsOfClientOverloaded() throws DatabaseException {
+	public void test_nonIntClientId_nonIntGreaterThanStr_nonIntLessThanStr_getAccountsOfClientPage_bothAmounts() throws DatabaseException {
 		
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
 			try {
-				accountService.getAllAccountsOfClient("abc", "abc", "abc");
+				accountsOfClient(accountService, "abc", query("abc", "abc"));
 				fail("BadParameterException was not thrown");
 			} catch (BadParameterException e) {
-				assertEquals(e.getMessage(), "Account id, amount greater than and amount less than values, must all be ints. User provided \nid: abc"
-						+ " amount greater than: abc amount less than: abc");
+				assertEquals(e.getMessage(), "Client id must be an int. User provided: abc");
 			}
 			
 		}
 	}
 	
 	@Test
-	public void test_intClientId_nonIntGeaterThanStr_nonIntLessThanStr_getAllAccountsOfClientOverloaded() throws DatabaseException {
+	public void test_intClientId_nonIntGreaterThanStr_nonIntLessThanStr_getAccountsOfClientPage_bothAmounts() throws DatabaseException {
 		
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
 			try {
-				accountService.getAllAccountsOfClient("1", "abc", "abc");
+				accountsOfClient(accountService, "1", query("abc", "abc"));
 				fail("BadParameterException was not thrown");
 			} catch (BadParameterException e) {
-				assertEquals(e.getMessage(), "Account id, amount greater than and amount less than values, must all be ints. User provided \nid: 1"
-						+ " amount greater than: abc amount less than: abc");
+				assertEquals(e.getMessage(), "amountGreaterThan must be an int. User provided: abc");
 			}
 			
 		}
 	}
 	
 	@Test
-	public void test_intClientId_intGeaterThanStr_nonIntLessThanStr_getAllAccountsOfClientOverloaded() throws DatabaseException {
+	public void test_intClientId_intGreaterThanStr_nonIntLessThanStr_getAccountsOfClientPage_bothAmounts() throws DatabaseException {
 		
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
 			try {
-				accountService.getAllAccountsOfClient("1", "1", "abc");
+				accountsOfClient(accountService, "1", query("1", "abc"));
 				fail("BadParameterException was not thrown");
 			} catch (BadParameterException e) {
-				assertEquals(e.getMessage(), "Account id, amount greater than and amount less than values, must all be ints. User provided \nid: 1"
-						+ " amount greater than: 1 amount less than: abc");
+				assertEquals(e.getMessage(), "amountLessThan must be an int. User provided: abc");
 			}
 			
 		}
 	}
 	
 	@Test
-	public void test_intClientId_nonIntGeaterThanStr_intLessThanStr_getAllAccountsOfClientOverloaded() throws DatabaseException {
+	public void test_intClientId_nonIntGreaterThanStr_intLessThanStr_getAccountsOfClientPage_bothAmounts() throws DatabaseException {
 		
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
 			try {
-				accountService.getAllAccountsOfClient("1", "abc", "1");
+				accountsOfClient(accountService, "1", query("abc", "1"));
 				fail("BadParameterException was not thrown");
 			} catch (BadParameterException e) {
-				assertEquals(e.getMessage(), "Account id, amount greater than and amount less than values, must all be ints. User provided \nid: 1"
-						+ " amount greater than: abc amount less than: 1");
+				assertEquals(e.getMessage(), "amountGreaterThan must be an int. User provided: abc");
 			}
 			
 		}
 	}
 	
 	@Test
-	public void test_nonIntClientId_intGeaterThanStr_nonIntLessThanStr_getAllAccountsOfClientOverloaded() throws DatabaseException {
+	public void test_nonIntClientId_intGreaterThanStr_nonIntLessThanStr_getAccountsOfClientPage_bothAmounts() throws DatabaseException {
 		
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
 			try {
-				accountService.getAllAccountsOfClient("abc", "1", "abc");
+				accountsOfClient(accountService, "abc", query("1", "abc"));
 				fail("BadParameterException was not thrown");
 			} catch (BadParameterException e) {
-				assertEquals(e.getMessage(), "Account id, amount greater than and amount less than values, must all be ints. User provided \nid: abc"
-						+ " amount greater than: 1 amount less than: abc");
+				assertEquals(e.getMessage(), "Client id must be an int. User provided: abc");
 			}
 			
 		}
 	}
 	
 	@Test
-	public void test_nonIntClientId_intGeaterThanStr_intLessThanStr_getAllAccountsOfClientOverloaded() throws DatabaseException {
+	public void test_nonIntClientId_intGreaterThanStr_intLessThanStr_getAccountsOfClientPage_bothAmounts() throws DatabaseException {
 		
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
 			try {
-				accountService.getAllAccountsOfClient("abc", "1", "1");
+				accountsOfClient(accountService, "abc", query("1", "1"));
 				fail("BadParameterException was not thrown");
 			} catch (BadParameterException e) {
-				assertEquals(e.getMessage(), "Account id, amount greater than and amount less than values, must all be ints. User provided \nid: abc"
-						+ " amount greater than: 1 amount less than: 1");
+				assertEquals(e.getMessage(), "Client id must be an int. User provided: abc");
 			}
 			
 		}
 	}
 	
 	@Test
-	public void test_nonIntClientId_nonIntGeaterThanStr_intLessThanStr_getAllAccountsOfClientOverloaded() throws DatabaseException {
+	public void test_nonIntClientId_nonIntGreaterThanStr_intLessThanStr_getAccountsOfClientPage_bothAmounts() throws DatabaseException {
 		
 		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
 			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
 			
 			try {
-				accountService.getAllAccountsOfClient("abc", "abc", "1");
+				accountsOfClient(accountService, "abc", query("abc", "1"));
 				fail("BadParameterException was not thrown");
 			} catch (BadParameterException e) {
-				assertEquals(e.getMessage(), "Account id, amount greater than and amount less than values, must all be ints. User provided \nid: abc"
-						+ " amount greater than: abc amount less than: 1");
+				assertEquals(e.getMessage(), "Client id must be an int. User provided: abc");
 			}
 			
 		}
@@ -650,5 +717,122 @@ public class AccountServiceTest {
 			
 		}
 	}
+	
+	@Test
+	public void test_otherClientsAccount_getAccountById() throws DatabaseException, AccountNotFoundException, BadParameterException {
+		
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+			
+			try {
+				accountService.getAccountById("1", "2");
+				fail("NotClientsAccountException was not thrown");
+			} catch (NotClientsAccountException e) {
+				assertEquals(e.getMessage(), "That account belongs to client with id: 2");
+			}
+			
+		}
+	}
+	
+	@Test
+	public void test_otherClientsAccount_updateAccount() throws DatabaseException, AccountNotFoundException, BadParameterException, UpdateAccountException {
+		
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+			
+			try {
+				accountService.updateAccount("1", "2", new AccountDTO("Checking", 99999));
+				fail("NotClientsAccountException was not thrown");
+			} catch (NotClientsAccountException e) {
+				assertEquals(e.getMessage(), "That account belongs to client with id: 2");
+			}
+			
+		}
+	}
+	
+	@Test
+	public void test_accountDoesNotExist_deleteAccount() throws DatabaseException, NotClientsAccountException, BadParameterException {
+		
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+			
+			try {
+				accountService.deleteAccount("1", "3");
+				fail("AccountNotFoundException was not thrown");
+			} catch (AccountNotFoundException e) {
+				assertEquals(e.getMessage(), "Couldn't find account with id 3");
+			}
+			
+		}
+	}
+
+	
+	@Test
+	public void test_filterAnsweredFromCachedAccounts_getAccountsOfClientPage_amountLessThan() throws DatabaseException, BadParameterException {
+		
+		AccountRepository countingRepository = mock(AccountRepository.class);
+		List<Account> accountList = new ArrayList<>();
+		accountList.add(new Account(1, "Savings", 1000));
+		accountList.add(new Account(2, "Checking", 15000));
+		when(countingRepository.getAccounts(eq(page(new AccountFilter(1))))).thenReturn(accountList);
+		AccountService cachingService = new AccountService(countingRepository);
+		
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+			
+			accountsOfClient(cachingService, "1", new AccountQueryDTO()); // Every account the client has, so it gets cached
+			List<Account> actual = accountsOfClient(cachingService, "1", query(null, "10000"));
+			
+			List<Account> expected = new ArrayList<>();
+			expected.add(new Account(1, "Savings", 1000));
+			assertEquals(expected, actual);
+			verify(countingRepository, times(1)).getAccounts(any());
+		}
+		
+	}
+	
+	@Test
+	public void test_addedAccountInCachedList_addAccount() throws DatabaseException, BadParameterException, AddAccountException {
+		
+		AccountRepository countingRepository = mock(AccountRepository.class);
+		List<Account> accountList = new ArrayList<>();
+		accountList.add(new Account(1, "Savings", 1000));
+		when(countingRepository.getAccounts(eq(page(new AccountFilter(1))))).thenReturn(accountList);
+		when(countingRepository.addAccount(eq(1), eq(new AccountDTO("Checking", 50)))).thenReturn(new Account(7, "Checking", 50));
+		AccountService cachingService = new AccountService(countingRepository);
+		
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+			
+			accountsOfClient(cachingService, "1", new AccountQueryDTO());
+			cachingService.addAccount("1", new AccountDTO("Checking", 50));
+			List<Account> actual = accountsOfClient(cachingService, "1", new AccountQueryDTO());
+			
+			List<Account> expected = new ArrayList<>();
+			expected.add(new Account(1, "Savings", 1000));
+			expected.add(new Account(7, "Checking", 50));
+			assertEquals(expected, actual);
+			verify(countingRepository, times(1)).getAccounts(any());
+		}
+		
+	}
+
+	// The first page of a client's accounts, the way GET /clients/:clientid/accounts asks for it
+	private static List<Account> accountsOfClient(AccountService service, String clientId, AccountQueryDTO query) throws DatabaseException, BadParameterException {
+		return service.getAccountsOfClientPage(clientId, query, null, null).getItems();
+	}
+	
+	private static AccountQueryDTO query(String amountGreaterThan, String amountLessThan) {
+		AccountQueryDTO query = new AccountQueryDTO();
+		query.setAmountGreaterThan(amountGreaterThan);
+		query.setAmountLessThan(amountLessThan);
+		return query;
+	}
+	
+	// The filter the repository sees for a first page of the default size (one extra row to spot a next page)
+	private static AccountFilter page(AccountFilter filter) {
+		filter.setLimit(PageUtil.defaultPageSize + 1);
+		return filter;
+	}
 
 }
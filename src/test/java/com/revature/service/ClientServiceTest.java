@@ -1,12 +1,18 @@
 package com.revature.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.List;
@@ -17,13 +23,16 @@ import org.junit.Test;
 import org.mockito.MockedStatic;
 
 import com.revature.dao.ClientRepository;
+import com.revature.dao.RowCallback;
 import com.revature.dto.GetClientDTO;
+import com.revature.dto.PageDTO;
 import com.revature.dto.PostClientDTO;
 import com.revature.exceptions.AddClientException;
 import com.revature.exceptions.BadParameterException;
 import com.revature.exceptions.ClientNotFoundException;
 import com.revature.exceptions.DatabaseException;
 import com.revature.exceptions.UpdateClientException;
+import com.revature.model.Account;
 import com.revature.model.Client;
 import com.revature.util.ConnectionUtil;
 
@@ -35,19 +44,31 @@ public class ClientServiceTest {
 	private ClientService clientService;
 	
 	@BeforeClass
-	public static void setUp() throws DatabaseException, ClientNotFoundException, AddClientException {
+	@SuppressWarnings("unchecked")
+	public static void setUp() throws DatabaseException, ClientNotFoundException, AddClientException, IOException {
 		mockClientRepository = mock(ClientRepository.class);
 		mockConnection = mock(Connection.class);
 		
 		List<GetClientDTO> clientList = new ArrayList<>();
 		clientList.add(new GetClientDTO(1, "Jane", "Doe"));
 		clientList.add(new GetClientDTO(2, "John", "Doe"));
-		when(mockClientRepository.getAllClients())
+		doAnswer(invocation -> {
+			RowCallback<GetClientDTO> callback = invocation.getArgument(0);
+			for (GetClientDTO client : clientList) {
+				callback.accept(client);
+			}
+			return null;
+		}).when(mockClientRepository).streamAllClients(any(RowCallback.class));
+		
+		when(mockClientRepository.getClientsPage(eq(0), eq(101)))
 			.thenReturn(clientList);
 		
 		when(mockClientRepository.getClientById(eq(1)))
 			.thenReturn(new GetClientDTO(1, "Robert", "Bobby"));
 		
+		when(mockClientRepository.getClientById(eq(7)))
+			.thenReturn(new GetClientDTO(7, "Cached", "Client"));
+		
 		when(mockClientRepository.addClient(eq(new PostClientDTO("Robert", "Bobby"))))
 			.thenReturn(new Client(1, "Robert", "Bobby"));
 		
@@ -56,6 +77,18 @@ public class ClientServiceTest {
 		
 		when(mockClientRepository.deleteClient(eq(1)))
 			.thenReturn(true);
+		
+		Client clientWithAccounts = new Client(1, "Robert", "Bobby");
+		List<Account> accountList = new ArrayList<>();
+		accountList.add(new Account(1, "Savings", 1000));
+		clientWithAccounts.setAccounts(accountList);
+		when(mockClientRepository.getClientWithAccounts(eq(1)))
+			.thenReturn(clientWithAccounts);
+		
+		List<Client> clientsWithAccounts = new ArrayList<>();
+		clientsWithAccounts.add(clientWithAccounts);
+		when(mockClientRepository.getClientsWithAccounts(eq(0), eq(500)))
+			.thenReturn(clientsWithAccounts);
 	}
 	
 	@Before
@@ -66,21 +99,6 @@ public class ClientServiceTest {
 	/*
 	 * Happy Path Tests
 	 */
-	@Test 
-	public void test_happyPath_getAllClients() throws DatabaseException {
-	
-		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
-			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
-			
-			List<GetClientDTO> actual = clientService.getAllClients();
-			List<GetClientDTO> expected = new ArrayList<>();
-			expected.add(new GetClientDTO(1, "Jane", "Doe"));
-			expected.add(new GetClientDTO(2, "John", "Doe"));
-			assertEquals(expected, actual);
-		}
-		
-	}
-	
 	@Test 
 	public void test_happyPath_getClientById() throws ClientNotFoundException, DatabaseException, BadParameterException {
 	
@@ -120,6 +138,35 @@ public class ClientServiceTest {
 		
 	}
 	
+	@Test
+	public void test_repeatedLookup_getClientById_readsDatabaseOnce() throws ClientNotFoundException, DatabaseException, BadParameterException {
+		
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+			
+			clientService.getClientById("7");
+			GetClientDTO actual = clientService.getClientById("7");
+			assertEquals(new GetClientDTO(7, "Cached", "Client"), actual);
+			verify(mockClientRepository, times(1)).getClientById(7);
+		}
+		
+	}
+	
+	@Test
+	public void test_updateClient_replacesCachedClient() throws UpdateClientException, DatabaseException, ClientNotFoundException, BadParameterException {
+		
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+			
+			clientService.getClientById("1"); // Now cached as Robert Bobby
+			clientService.updateClient("1", new PostClientDTO("New", "Client"));
+			
+			GetClientDTO actual = clientService.getClientById("1");
+			assertEquals(new GetClientDTO(1, "New", "Client"), actual);
+		}
+		
+	}
+	
 	@Test
 	public void test_happyPath_deleteClient() throws ClientNotFoundException, DatabaseException, BadParameterException {
 		
@@ -133,6 +180,100 @@ public class ClientServiceTest {
 		
 	}
 	
+	@Test
+	public void test_happyPath_getClientWithAccounts() throws ClientNotFoundException, DatabaseException, BadParameterException {
+		
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+			
+			Client actual = clientService.getClientWithAccounts("1");
+			List<Account> expectedAccounts = new ArrayList<>();
+			expectedAccounts.add(new Account(1, "Savings", 1000));
+			assertEquals(new Client(1, "Robert", "Bobby"), actual);
+			assertEquals(expectedAccounts, actual.getAccounts());
+		}
+		
+	}
+	
+	@Test
+	public void test_happyPath_getClientsPage() throws DatabaseException, BadParameterException {
+		
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+			
+			PageDTO<GetClientDTO> actual = clientService.getClientsPage(null, null); // Default page size of 100
+			List<GetClientDTO> expected = new ArrayList<>();
+			expected.add(new GetClientDTO(1, "Jane", "Doe"));
+			expected.add(new GetClientDTO(2, "John", "Doe"));
+			assertEquals(expected, actual.getItems());
+			assertNull(actual.getNextCursor());
+		}
+		
+	}
+	
+	@Test
+	public void test_happyPath_streamAllClients() throws DatabaseException, IOException {
+		
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+			
+			List<GetClientDTO> actual = new ArrayList<>();
+			clientService.streamAllClients(actual::add);
+			List<GetClientDTO> expected = new ArrayList<>();
+			expected.add(new GetClientDTO(1, "Jane", "Doe"));
+			expected.add(new GetClientDTO(2, "John", "Doe"));
+			assertEquals(expected, actual);
+		}
+		
+	}
+	
+	@Test
+	public void test_nonPositiveLimit_getClientsPage() throws DatabaseException {
+		
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+			
+			try {
+				clientService.getClientsPage(null, "0");
+				fail("BadParameterException was not thrown");
+			} catch (BadParameterException e) {
+				assertEquals("Limit must be a positive int. User provided: 0", e.getMessage());
+			}
+		}
+		
+	}
+	
+	@Test
+	public void test_happyPath_getClientsWithAccounts() throws DatabaseException {
+		
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+			
+			List<Client> actual = clientService.getClientsWithAccounts(0, 500);
+			assertEquals(1, actual.size());
+			assertEquals(new Client(1, "Robert", "Bobby"), actual.get(0));
+			assertEquals(1, actual.get(0).getAccounts().size());
+		}
+		
+	}
+	
+	@Test
+	public void test_nonIntClientId_getClientWithAccounts() throws ClientNotFoundException, DatabaseException {
+		
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+			
+			try {
+				clientService.getClientWithAccounts("abc");
+				fail("BadParameterException was not thrown");
+			} catch (BadParameterException e) {
+				assertEquals(e.getMessage(), "Client id must be an int. User Provided: abc");
+			}
+			
+		}
+		
+	}
+	
 	@Test
 	public void test_nonIntClientId_getClientById() throws ClientNotFoundException, DatabaseException {
 		
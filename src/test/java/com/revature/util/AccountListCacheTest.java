@@ -0,0 +1,50 @@
+package com.revature.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.revature.model.Account;
+
+public class AccountListCacheTest {
+
+	@Test
+	public void test_loadBetweenWriteAndCommit_notCached() {
+		AccountListCache cache = new AccountListCache(1000, 60);
+		List<Account> beforeInsert = Arrays.asList(new Account(1, "Savings", 1000));
+
+		cache.accountChanging(); // A writer inserts account 2, not committed yet
+		long version = cache.version(); // A read starts after that...
+		List<Account> loaded = new ArrayList<>(beforeInsert); // ...and its query can't see the uncommitted row
+		cache.added(1, new Account(2, "Checking", 50)); // The insert commits, nothing is cached to apply it to
+		cache.putLoaded(1, loaded, version);
+
+		assertNull(cache.get(1));
+	}
+
+	@Test
+	public void test_loadPutBeforeCommit_changeApplied() {
+		AccountListCache cache = new AccountListCache(1000, 60);
+
+		cache.accountChanging();
+		cache.putLoaded(1, Arrays.asList(new Account(1, "Savings", 1000)), cache.version());
+		cache.updated(1, new Account(1, "Savings", 2500));
+
+		assertEquals(Arrays.asList(new Account(1, "Savings", 2500)), cache.get(1));
+	}
+
+	@Test
+	public void test_noChanges_putLoaded() {
+		AccountListCache cache = new AccountListCache(1000, 60);
+
+		cache.putLoaded(1, Arrays.asList(new Account(2, "Checking", 50), new Account(1, "Savings", 1000)), cache.version());
+
+		assertEquals(Arrays.asList(new Account(1, "Savings", 1000), new Account(2, "Checking", 50)), cache.get(1));
+	}
+
+}
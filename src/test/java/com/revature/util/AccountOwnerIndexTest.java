@@ -0,0 +1,80 @@
+package com.revature.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AccountOwnerIndexTest {
+
+	private AccountOwnerIndex index;
+
+	@Before
+	public void beforeTest() {
+		index = new AccountOwnerIndex(1000);
+	}
+
+	@Test
+	public void test_putAndRemove_get() {
+		index.put(1, 10);
+		index.put(2, 20);
+		index.remove(1);
+
+		assertEquals(AccountOwnerIndex.UNKNOWN, index.get(1));
+		assertEquals(20, index.get(2));
+		assertEquals(AccountOwnerIndex.UNKNOWN, index.get(3));
+		assertEquals(1, index.size());
+	}
+
+	@Test
+	public void test_growsPastFirstTable_get() {
+		for (int accountId = 1; accountId <= 500; accountId++) {
+			index.put(accountId, accountId % 7 + 1);
+		}
+		for (int accountId = 1; accountId <= 500; accountId += 2) {
+			index.remove(accountId);
+		}
+
+		for (int accountId = 1; accountId <= 500; accountId++) {
+			int expected = accountId % 2 == 0 ? accountId % 7 + 1 : AccountOwnerIndex.UNKNOWN;
+			assertEquals(expected, index.get(accountId));
+		}
+		assertEquals(250, index.size());
+	}
+
+	@Test
+	public void test_stopsAtMaxEntries_put() {
+		AccountOwnerIndex small = new AccountOwnerIndex(2);
+		small.put(1, 1);
+		small.put(2, 1);
+		small.put(3, 1);
+
+		assertEquals(AccountOwnerIndex.UNKNOWN, small.get(3));
+		assertEquals(2, small.size());
+	}
+
+	@Test
+	public void test_removeClient() {
+		index.put(1, 5);
+		index.put(2, 6);
+		index.put(3, 5);
+		index.removeClient(5);
+
+		assertEquals(AccountOwnerIndex.UNKNOWN, index.get(1));
+		assertEquals(6, index.get(2));
+		assertEquals(AccountOwnerIndex.UNKNOWN, index.get(3));
+	}
+
+	@Test
+	public void test_readRacingDelete_notPutBack() {
+		long version = index.version(); // A read starts and still sees account 1's row...
+		index.remove(1); // ...while the delete commits
+		index.putLoaded(1, 5, version);
+
+		assertEquals(AccountOwnerIndex.UNKNOWN, index.get(1));
+
+		index.putLoaded(1, 5, index.version()); // Nothing removed while this one ran
+		assertEquals(5, index.get(1));
+	}
+
+}
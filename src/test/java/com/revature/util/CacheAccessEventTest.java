@@ -0,0 +1,55 @@
+package com.revature.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class CacheAccessEventTest {
+
+	@Test
+	public void test_record_inARecording_hasCacheKeyAndHit() throws IOException {
+		List<RecordedEvent> events;
+		try (Recording recording = new Recording()) {
+			recording.enable("com.revature.CacheAccess");
+			recording.start();
+
+			CacheAccessEvent.record("clients", 7, true);
+			CacheAccessEvent.record("responses", "/clients/7", false);
+
+			recording.stop();
+			events = read(recording);
+		}
+
+		assertEquals(2, events.size());
+		assertEquals("clients", events.get(0).getString("cache"));
+		assertEquals("7", events.get(0).getString("key"));
+		assertTrue(events.get(0).getBoolean("hit"));
+		assertEquals("/clients/7", events.get(1).getString("key"));
+	}
+
+	@Test
+	public void test_record_noRecording_nothingHappens() {
+		CacheAccessEvent.record("clients", 7, true); // Just mustn't fail
+	}
+
+	private static List<RecordedEvent> read(Recording recording) throws IOException {
+		Path file = Files.createTempFile("cache-access", ".jfr");
+		try {
+			recording.dump(file);
+			return RecordingFile.readAllEvents(file);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+}
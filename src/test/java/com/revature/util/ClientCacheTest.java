@@ -0,0 +1,68 @@
+package com.revature.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import com.revature.dto.GetClientDTO;
+
+public class ClientCacheTest {
+
+	@Test
+	public void test_pastTtl_onlyServedStale() {
+		ClientCache cache = new ClientCache(100, 0, 60); // Everything is stale straight away
+
+		cache.putLoaded(1, new GetClientDTO(1, "Janet", "Doe"), cache.version());
+
+		assertNull(cache.get(1));
+		assertEquals(new GetClientDTO(1, "Janet", "Doe"), cache.getStale(1).getValue());
+		assertEquals(1, cache.getStats().getStaleServed());
+	}
+
+	@Test
+	public void test_staleValueReplaced_putLoaded() {
+		ClientCache cache = new ClientCache(100, 0, 60);
+
+		cache.putLoaded(1, new GetClientDTO(1, "Janet", "Doe"), cache.version());
+		cache.putLoaded(1, new GetClientDTO(1, "Janet", "Smith"), cache.version());
+
+		assertEquals(new GetClientDTO(1, "Janet", "Smith"), cache.getStale(1).getValue());
+	}
+
+	@Test
+	public void test_noMaxStaleness_getStale() {
+		ClientCache cache = new ClientCache(100, 0);
+
+		cache.putLoaded(1, new GetClientDTO(1, "Janet", "Doe"), cache.version());
+
+		assertNull(cache.getStale(1));
+	}
+
+	@Test
+	public void test_writingRequest_notServedStale() throws Exception {
+		ClientCache cache = new ClientCache(100, 0, 60);
+		cache.putLoaded(1, new GetClientDTO(1, "Janet", "Doe"), cache.version());
+
+		RequestContext.begin("POST", "/clients/1/accounts"); // Checks the client exists, then inserts an account
+		try {
+			assertNull(cache.getStale(1));
+		} finally {
+			RequestContext.end();
+		}
+
+		RequestContext.begin("GET", "/clients/1");
+		try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+			assertEquals(new GetClientDTO(1, "Janet", "Doe"), cache.getStale(1).getValue());
+
+			UnitOfWork.afterCommit(() -> {
+			}); // Something in this unit of work changed data
+			assertNull(cache.getStale(1));
+			unitOfWork.rollback();
+		} finally {
+			RequestContext.end();
+		}
+		assertEquals(1, cache.getStats().getStaleServed());
+	}
+
+}
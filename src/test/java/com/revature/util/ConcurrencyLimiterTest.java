@@ -0,0 +1,73 @@
+package com.revature.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+
+	private static final long millis = 1_000_000;
+
+	@Test
+	public void test_tryAcquire_rejectsOverTheLimitUntilOneIsReleased() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 2, 1, 10);
+
+		assertTrue(limiter.tryAcquire());
+		assertTrue(limiter.tryAcquire());
+		assertFalse(limiter.tryAcquire());
+
+		limiter.release(5 * millis, false);
+
+		assertTrue(limiter.tryAcquire());
+		assertEquals(1, limiter.getStats().getRejected());
+	}
+
+	@Test
+	public void test_release_steadyLatencyAtTheLimit_limitGrows() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 10, 1, 100);
+
+		for (int i = 0; i < 5; i++) {
+			load(limiter, 5 * millis);
+		}
+
+		assertTrue(limiter.getLimit() > 10);
+	}
+
+	@Test
+	public void test_release_latencyRises_limitComesDown() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 50, 1, 100);
+		for (int i = 0; i < 200; i++) {
+			assertTrue(limiter.tryAcquire());
+			limiter.release(5 * millis, false); // Learns what usual looks like, the limit stays where it is
+		}
+		assertEquals(50, limiter.getLimit());
+
+		load(limiter, 50 * millis);
+
+		assertTrue(limiter.getLimit() < 50);
+	}
+
+	@Test
+	public void test_release_overloaded_limitCutEvenWhenFast() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 50, 1, 100);
+
+		assertTrue(limiter.tryAcquire());
+		limiter.release(1 * millis, true);
+
+		assertEquals(45, limiter.getLimit());
+		assertEquals(1, limiter.getStats().getDropped());
+	}
+
+	// As many requests as the limit lets in at once, all taking rttNanos
+	private static void load(ConcurrencyLimiter limiter, long rttNanos) {
+		while (limiter.tryAcquire()) {
+			// Take every slot there is
+		}
+		while (limiter.getInFlight() > 0) {
+			limiter.release(rttNanos, false);
+		}
+	}
+
+}
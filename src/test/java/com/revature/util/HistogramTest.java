@@ -0,0 +1,54 @@
+package com.revature.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+	@Test
+	public void test_index_everyValueFallsInsideItsBucket() {
+		for (long micros = 0; micros < 1_000_000; micros += 7) {
+			int i = Histogram.index(micros);
+			long lower = i == 0 ? 0 : Histogram.upperBound(i - 1);
+
+			assertTrue(micros + " should be at least " + lower, micros >= lower);
+			assertTrue(micros + " should be under " + Histogram.upperBound(i), micros < Histogram.upperBound(i));
+		}
+	}
+
+	@Test
+	public void test_valueAtPercentile_withinOneSixteenth() {
+		Histogram histogram = new Histogram();
+		for (int millis = 1; millis <= 100; millis++) {
+			histogram.record(millis * 1_000_000L);
+		}
+
+		long p99 = histogram.valueAtPercentile(0.99);
+		assertTrue("p99 was " + p99, p99 >= 99_000_000L && p99 <= 99_000_000L * 17 / 16);
+
+		long p50 = histogram.valueAtPercentile(0.5);
+		assertTrue("p50 was " + p50, p50 >= 50_000_000L && p50 <= 50_000_000L * 17 / 16);
+	}
+
+	@Test
+	public void test_writeTo_cumulativePrometheusBuckets() {
+		Histogram histogram = new Histogram();
+		histogram.record(300_000L); // 0.3ms
+		histogram.record(3_000_000L); // 3ms
+		histogram.record(20_000_000_000L); // 20s, past every bound
+
+		StringBuilder out = new StringBuilder();
+		histogram.writeTo(out, "test_seconds", "method=\"GET\"");
+		String text = out.toString();
+
+		assertTrue(text, text.contains("test_seconds_bucket{method=\"GET\",le=\"0.0005\"} 1\n"));
+		assertTrue(text, text.contains("test_seconds_bucket{method=\"GET\",le=\"0.005\"} 2\n"));
+		assertTrue(text, text.contains("test_seconds_bucket{method=\"GET\",le=\"10\"} 2\n"));
+		assertTrue(text, text.contains("test_seconds_bucket{method=\"GET\",le=\"+Inf\"} 3\n"));
+		assertTrue(text, text.contains("test_seconds_count{method=\"GET\"} 3\n"));
+		assertEquals(3, histogram.getCount());
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.revature.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.revature.exceptions.DatabaseException;
+
+public class IdFilterTest {
+
+	@Test
+	public void test_notBuilt_everythingMightExist() {
+		IdFilter filter = new IdFilter("test", 10);
+
+		assertTrue(filter.mightContain(12345));
+	}
+
+	@Test
+	public void test_rebuiltAndAdded_mightContain() {
+		IdFilter filter = new IdFilter("test", 10);
+		filter.rebuild(consumer -> {
+			for (int id = 1; id <= 1000; id++) {
+				consumer.accept(id);
+			}
+		});
+		filter.add(5000);
+
+		for (int id = 1; id <= 1000; id++) {
+			assertTrue(filter.mightContain(id));
+		}
+		assertTrue(filter.mightContain(5000));
+
+		int falsePositives = 0;
+		for (int id = 1000001; id <= 1010000; id++) {
+			if (filter.mightContain(id)) {
+				falsePositives++;
+			}
+		}
+		assertTrue("Too many false positives: " + falsePositives, falsePositives < 300); // Sized for ~1% of 10000
+	}
+
+	@Test
+	public void test_failedRebuild_keepsOldFilter() {
+		IdFilter filter = new IdFilter("test", 10);
+		filter.rebuild(consumer -> consumer.accept(7));
+		filter.rebuild(consumer -> {
+			throw new DatabaseException("Database is down");
+		});
+
+		assertTrue(filter.mightContain(7));
+		assertFalse(filter.mightContain(8) && filter.mightContain(9) && filter.mightContain(10));
+	}
+
+	@Test
+	public void test_uncommittedInsertsMissedByScan_stillMightExist() throws InterruptedException {
+		IdFilter filter = new IdFilter("test", 10);
+		filter.rebuild(consumer -> consumer.accept(1));
+		filter.add(2); // Inserted before the rebuild starts, but commits only after the scan
+
+		CountDownLatch scanning = new CountDownLatch(1);
+		CountDownLatch inserted = new CountDownLatch(1);
+		Thread rebuilder = new Thread(() -> filter.rebuild(consumer -> {
+			scanning.countDown();
+			try {
+				inserted.await(5, TimeUnit.SECONDS); // A slow scan, 3 is inserted while it runs
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			consumer.accept(1); // Neither 2 nor 3 had committed when the scan read the table
+		}));
+		rebuilder.start();
+		assertTrue(scanning.await(5, TimeUnit.SECONDS));
+		filter.add(3);
+		inserted.countDown();
+		rebuilder.join(5000);
+
+		assertTrue(filter.mightContain(1));
+		assertTrue(filter.mightContain(2));
+		assertTrue(filter.mightContain(3));
+	}
+
+	@Test
+	public void test_failedRebuild_addedIdsKeptForTheNext() {
+		IdFilter filter = new IdFilter("test", 10);
+		filter.rebuild(consumer -> consumer.accept(1));
+		filter.add(2);
+		filter.rebuild(consumer -> {
+			throw new DatabaseException("Database is down");
+		});
+		filter.rebuild(consumer -> consumer.accept(1)); // 2's transaction is still open
+
+		assertTrue(filter.mightContain(2));
+	}
+
+}
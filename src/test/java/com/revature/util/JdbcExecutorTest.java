@@ -0,0 +1,166 @@
+package com.revature.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.InputStream;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.revature.exceptions.ClientNotFoundException;
+import com.revature.exceptions.ServerBusyException;
+import com.revature.model.Account;
+
+import io.javalin.http.Context;
+
+public class JdbcExecutorTest {
+
+	private JdbcExecutor executor = new JdbcExecutor("test", 1, 1);
+
+	@Test
+	public void test_respond_sendsWhatTheWorkReturnedAsJson() throws Exception {
+		Context ctx = mock(Context.class);
+
+		executor.respond(ctx, () -> new Account(1, "Checking", 100));
+
+		InputStream body = (InputStream) response(ctx).get(5, TimeUnit.SECONDS);
+		try (Scanner scanner = new Scanner(body, "UTF-8")) {
+			assertEquals("{\"id\":1,\"accountType\":\"Checking\",\"amount\":100}", scanner.useDelimiter("\\A").next());
+		}
+	}
+
+	@Test
+	public void test_respond_workFails_futureFailsWithTheSameException() throws Exception {
+		Context ctx = mock(Context.class);
+		ClientNotFoundException notFound = new ClientNotFoundException("Couldn't find a client with that id. Id provided: 9");
+
+		executor.respond(ctx, () -> {
+			throw notFound;
+		});
+
+		try {
+			response(ctx).get(5, TimeUnit.SECONDS);
+			fail("ClientNotFoundException was not thrown");
+		} catch (ExecutionException e) {
+			assertSame(notFound, e.getCause());
+		}
+	}
+
+	@Test(expected = ServerBusyException.class)
+	public void test_respond_threadAndQueueFull_serverBusy() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			executor.respond(mock(Context.class), () -> release.await(5, TimeUnit.SECONDS)); // Running
+			executor.respond(mock(Context.class), () -> "queued");
+
+			executor.respond(mock(Context.class), () -> "no room");
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void test_respond_slowResponseDoesNotHoldTheWorker() throws Exception {
+		CountDownLatch workStarted = new CountDownLatch(1);
+		CountDownLatch finishWork = new CountDownLatch(1);
+		CountDownLatch clientReads = new CountDownLatch(1);
+		try {
+			Context slow = mock(Context.class);
+			executor.respond(slow, () -> {
+				workStarted.countDown();
+				finishWork.await(5, TimeUnit.SECONDS);
+				return "first";
+			});
+			assertTrue(workStarted.await(5, TimeUnit.SECONDS));
+
+			// Like Javalin writing the response to a client that reads slowly
+			CompletableFuture<String> written = response(slow).thenApply(body -> {
+				try {
+					clientReads.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return Thread.currentThread().getName();
+			});
+			finishWork.countDown();
+
+			// The only worker is free for the next request while the first response is still being written
+			Context next = mock(Context.class);
+			executor.respond(next, () -> "second");
+			response(next).get(5, TimeUnit.SECONDS);
+
+			clientReads.countDown();
+			assertTrue(written.get(5, TimeUnit.SECONDS).startsWith("jdbc-responder-"));
+		} finally {
+			finishWork.countDown();
+			clientReads.countDown();
+		}
+	}
+
+	@Test
+	public void test_stream_runsOnThePoolAndWaits() throws Exception {
+		String[] thread = new String[1];
+
+		executor.stream(mock(Context.class), () -> thread[0] = Thread.currentThread().getName());
+
+		assertEquals("test-1", thread[0]);
+	}
+
+	@Test
+	public void test_stream_workFails_sameException() throws Exception {
+		ClientNotFoundException notFound = new ClientNotFoundException("Couldn't find a client with that id. Id provided: 9");
+
+		try {
+			executor.stream(mock(Context.class), () -> {
+				throw notFound;
+			});
+			fail("ClientNotFoundException was not thrown");
+		} catch (ClientNotFoundException e) {
+			assertSame(notFound, e);
+		}
+	}
+
+	@Test(expected = ServerBusyException.class)
+	public void test_stream_threadAndQueueFull_serverBusy() throws Exception {
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			// Two slow downloads, each waited for by its own request thread
+			CompletableFuture.runAsync(() -> stream(() -> {
+				running.countDown();
+				return release.await(5, TimeUnit.SECONDS);
+			}));
+			assertTrue(running.await(5, TimeUnit.SECONDS));
+			executor.respond(mock(Context.class), () -> "queued");
+
+			executor.stream(mock(Context.class), () -> "no room");
+		} finally {
+			release.countDown();
+		}
+	}
+
+	private void stream(JdbcExecutor.Work work) {
+		try {
+			executor.stream(mock(Context.class), work);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static CompletableFuture<?> response(Context ctx) {
+		ArgumentCaptor<CompletableFuture<?>> response = ArgumentCaptor.forClass(CompletableFuture.class);
+		verify(ctx).result(response.capture());
+		return response.getValue();
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.revature.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revature.dto.CacheStatsDTO;
+import com.revature.dto.GetClientDTO;
+import com.revature.dto.MessageDTO;
+import com.revature.model.Account;
+import com.revature.model.Client;
+
+import io.javalin.http.Context;
+import io.javalin.plugin.json.JavalinJackson;
+
+public class JsonUtilTest {
+
+	private ObjectMapper mapper = JavalinJackson.getObjectMapper();
+
+	@Test
+	public void test_handWrittenTypes_sameJsonAsJackson() throws Exception {
+		Client withAccounts = new Client(1, "Ada", "Lo\"ve\u00e9lace\u2028");
+		withAccounts.setAccounts(Arrays.asList(new Account(1, "Checking", 100), new Account(2, null, -5)));
+
+		List<Object> values = Arrays.asList(
+				new Account(3, "Savings", 2000),
+				new GetClientDTO(4, "Grace", null),
+				withAccounts,
+				new Client(5, "Alan", "Turing"),
+				new MessageDTO("Couldn't find a client with that id.\nId provided: 9"),
+				"Client was successfully deleted",
+				Arrays.asList(new GetClientDTO(6, "a", "b"), new GetClientDTO(7, "c", "d")),
+				new ArrayList<Account>());
+
+		for (Object value : values) {
+			assertEquals(mapper.writeValueAsString(value), JsonUtil.toJson(value));
+		}
+	}
+
+	@Test
+	public void test_otherTypes_sameJsonAsJackson() throws Exception {
+		CacheStatsDTO stats = new CacheStatsDTO("clients", 1, 10, 2, 3, 0);
+
+		assertArrayEquals(mapper.writeValueAsBytes(stats), JsonUtil.toJsonBytes(stats));
+		assertEquals(mapper.writeValueAsString(Arrays.asList(stats, stats)), JsonUtil.toJson(Arrays.asList(stats, stats)));
+	}
+
+	@Test
+	public void test_bigValue_bufferStillWorksAfter() throws Exception {
+		List<Account> accounts = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			accounts.add(new Account(i, "Checking", i * 10));
+		}
+
+		assertEquals(mapper.writeValueAsString(accounts), JsonUtil.toJson(accounts));
+		assertEquals("{\"message\":\"ok\"}", new String(JsonUtil.toJsonBytes(new MessageDTO("ok")), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void test_messageBody_encodedOnce() {
+		byte[] first = JsonUtil.toJsonBytes(new MessageDTO("Failed to delete client"));
+
+		assertSame(sendMessage("Failed to delete client"), sendMessage("Failed to delete client"));
+		assertArrayEquals(first, sendMessage("Failed to delete client"));
+	}
+
+	private static byte[] sendMessage(String message) {
+		Context ctx = mock(Context.class);
+		JsonUtil.message(ctx, message);
+		ArgumentCaptor<byte[]> body = ArgumentCaptor.forClass(byte[].class);
+		verify(ctx).result(body.capture());
+		return body.getValue();
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.revature.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.Test;
+
+public class QueryMetricsTest {
+
+	@Test
+	public void test_instrument_queryRowsCountedWhenTheResultSetCloses() throws SQLException {
+		PreparedStatement pstmt = mock(PreparedStatement.class);
+		ResultSet rs = mock(ResultSet.class);
+		when(pstmt.executeQuery()).thenReturn(rs);
+		when(rs.next()).thenReturn(true, true, false);
+		long rowsBefore = rows();
+
+		PreparedStatement instrumented = QueryMetrics.instrument(pstmt, "SELECT * FROM accounts WHERE client_id = ?");
+		try (ResultSet counted = instrumented.executeQuery()) {
+			while (counted.next()) {
+				// Read every row
+			}
+			assertEquals(rowsBefore, rows()); // Not recorded until it's closed
+		}
+
+		assertEquals(rowsBefore + 2, rows());
+		verify(rs).close();
+	}
+
+	@Test
+	public void test_instrument_updateCountsRowsChanged() throws SQLException {
+		PreparedStatement pstmt = mock(PreparedStatement.class);
+		when(pstmt.executeUpdate()).thenReturn(3);
+		long rowsBefore = rows();
+
+		assertEquals(3, QueryMetrics.instrument(pstmt, "DELETE FROM accounts WHERE client_id = ?").executeUpdate());
+
+		assertEquals(rowsBefore + 3, rows());
+	}
+
+	@Test
+	public void test_instrument_otherCallsGoStraightThrough() throws SQLException {
+		PreparedStatement pstmt = mock(PreparedStatement.class);
+
+		QueryMetrics.instrument(pstmt, "SELECT 1").setInt(1, 5);
+
+		verify(pstmt).setInt(1, 5);
+	}
+
+	@Test
+	public void test_instrument_statementRunTwice_bothQueriesCounted() throws SQLException {
+		PreparedStatement pstmt = mock(PreparedStatement.class);
+		ResultSet first = mock(ResultSet.class);
+		ResultSet second = mock(ResultSet.class);
+		when(pstmt.executeQuery()).thenReturn(first, second);
+		when(first.next()).thenReturn(true, false);
+		when(second.next()).thenReturn(true, true, true, false);
+		long rowsBefore = rows();
+
+		PreparedStatement instrumented = QueryMetrics.instrument(pstmt, "SELECT * FROM clients WHERE id > ?");
+		ResultSet counted = instrumented.executeQuery();
+		while (counted.next()) {
+			// Never closed, running the statement again does that
+		}
+		try (ResultSet again = instrumented.executeQuery()) {
+			while (again.next()) {
+				// Read every row
+			}
+		}
+
+		assertEquals(rowsBefore + 1 + 3, rows());
+		verify(second).close();
+	}
+
+	// Rows counted against statements prepared outside the repositories (like these)
+	private static long rows() {
+		StringBuilder out = new StringBuilder();
+		QueryMetrics.writeTo(out);
+
+		String prefix = "db_query_rows_total{method=\"other\"} ";
+		for (String line : out.toString().split("\n")) {
+			if (line.startsWith(prefix)) {
+				return Long.parseLong(line.substring(prefix.length()));
+			}
+		}
+		assertTrue(out.toString(), out.indexOf("db_query_rows_total") >= 0);
+		return 0;
+	}
+
+}
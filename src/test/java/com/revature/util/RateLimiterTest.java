@@ -0,0 +1,137 @@
+package com.revature.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Test;
+
+import com.revature.exceptions.TooManyRequestsException;
+
+import io.javalin.http.Context;
+
+public class RateLimiterTest {
+
+	private RateLimiter limiter = new RateLimiter("test", 1, 2);
+
+	@Test
+	public void test_check_overTheBurst_rejectedWithRetryAfter() throws TooManyRequestsException {
+		Context ctx = mock(Context.class);
+
+		limiter.check(ctx, 1, "caller-1");
+		limiter.check(ctx, 1, "caller-2");
+
+		try {
+			limiter.check(ctx, 1, "caller-3");
+			fail("Expected TooManyRequestsException");
+		} catch (TooManyRequestsException e) {
+			verify(ctx).header("Retry-After", "1");
+		}
+		assertEquals(1, limiter.getStats().getRejectedForClient());
+	}
+
+	@Test
+	public void test_check_differentClients_haveTheirOwnBuckets() throws TooManyRequestsException {
+		Context ctx = mock(Context.class);
+
+		limiter.check(ctx, 1, "caller-1");
+		limiter.check(ctx, 1, "caller-2");
+		limiter.check(ctx, 2, "caller-3");
+		limiter.check(ctx, 2, "caller-4");
+
+		assertEquals(4, limiter.getStats().getAllowed());
+	}
+
+	@Test
+	public void test_check_oneCallerAcrossClients_limitedAsACaller() throws TooManyRequestsException {
+		Context ctx = mock(Context.class);
+
+		limiter.check(ctx, 1, "caller");
+		limiter.check(ctx, 2, "caller");
+
+		try {
+			limiter.check(ctx, 3, "caller");
+			fail("Expected TooManyRequestsException");
+		} catch (TooManyRequestsException e) {
+			// Every client has tokens left, the caller doesn't
+		}
+		assertEquals(1, limiter.getStats().getRejectedForCaller());
+		assertEquals(0, limiter.getStats().getRejectedForClient());
+	}
+
+	@Test
+	public void test_check_callerOverItsLimit_clientKeepsItsTokens() throws TooManyRequestsException {
+		Context ctx = mock(Context.class);
+
+		limiter.check(ctx, null, "busy-caller");
+		limiter.check(ctx, null, "busy-caller");
+		for (int i = 0; i < 5; i++) {
+			try {
+				limiter.check(ctx, 1, "busy-caller");
+				fail("Expected TooManyRequestsException");
+			} catch (TooManyRequestsException e) {
+				// Turned away as a caller, before touching client 1's bucket
+			}
+		}
+
+		limiter.check(ctx, 1, "caller-1");
+		limiter.check(ctx, 1, "caller-2");
+		assertEquals(5, limiter.getStats().getRejectedForCaller());
+		assertEquals(0, limiter.getStats().getRejectedForClient());
+	}
+
+	@Test
+	public void test_check_sameClientWrittenDifferently_sharesABucket() throws TooManyRequestsException {
+		Context ctx = mock(Context.class);
+
+		limiter.check(ctx, RateLimiter.parseClientId("5"), "caller-1");
+		limiter.check(ctx, RateLimiter.parseClientId("05"), "caller-2");
+		try {
+			limiter.check(ctx, RateLimiter.parseClientId("+5"), "caller-3");
+			fail("Expected TooManyRequestsException");
+		} catch (TooManyRequestsException e) {
+			// Still client 5
+		}
+
+		assertNull(RateLimiter.parseClientId("five")); // Not an id at all, only limited as a caller
+		assertEquals(1, limiter.getStats().getRejectedForClient());
+	}
+
+	@Test
+	public void test_check_rejectedForTheClient_callerKeepsItsToken() throws TooManyRequestsException {
+		Context ctx = mock(Context.class);
+		limiter.check(ctx, 1, "caller-1");
+		limiter.check(ctx, 1, "caller-2"); // Client 1 is out of tokens
+
+		for (int i = 0; i < 3; i++) {
+			try {
+				limiter.check(ctx, 1, "caller-3");
+				fail("Expected TooManyRequestsException");
+			} catch (TooManyRequestsException e) {
+				// Client 1 is busy, not caller-3
+			}
+		}
+
+		limiter.check(ctx, 2, "caller-3");
+		limiter.check(ctx, 3, "caller-3");
+		assertEquals(3, limiter.getStats().getRejectedForClient());
+		assertEquals(0, limiter.getStats().getRejectedForCaller());
+	}
+
+	@Test
+	public void test_forRoute_eachRouteItsOwnLimiter() throws TooManyRequestsException {
+		RateLimiter get = RateLimiter.forRoute("test_route_get", 1, 1);
+		RateLimiter delete = RateLimiter.forRoute("test_route_delete", 1, 1);
+		Context ctx = mock(Context.class);
+
+		get.check(ctx, 1, "caller");
+		delete.check(ctx, 1, "caller"); // The get used up its own route's token, not this one's
+
+		assertSame(get, RateLimiter.forRoute("test_route_get", 5, 5));
+		assertEquals(1, get.getStats().getAllowed());
+	}
+
+}
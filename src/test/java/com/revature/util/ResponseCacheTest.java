@@ -0,0 +1,174 @@
+package com.revature.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+
+public class ResponseCacheTest {
+
+	private ResponseCache cache = new ResponseCache(1024 * 1024, 60);
+	private AtomicInteger handled = new AtomicInteger();
+
+	// Answers with the path it was asked for, counting how often it actually ran
+	private Handler handler = ctx -> {
+		handled.incrementAndGet();
+		ctx.contentType("application/json");
+		ctx.result("\"" + ctx.path() + "\"");
+	};
+
+	@Test
+	public void test_repeatRequest_servedFromCache() throws Exception {
+		Context first = get("/clients/5", null);
+		cache.cached(handler).handle(first);
+		Context second = get("/clients/5", null);
+		cache.cached(handler).handle(second);
+
+		assertEquals(1, handled.get());
+		assertEquals(200, second.status());
+		assertEquals("\"/clients/5\"", body(second));
+		assertEquals(first.res.getHeader("ETag"), second.res.getHeader("ETag"));
+	}
+
+	@Test
+	public void test_matchingIfNoneMatch_notModified() throws Exception {
+		Context first = get("/clients/5", null);
+		cache.cached(handler).handle(first);
+		String etag = first.res.getHeader("ETag");
+		assertNotNull(etag);
+
+		Context listed = get("/clients/5", null, "\"other\", W/" + etag);
+		cache.cached(handler).handle(listed);
+		assertEquals(304, listed.status());
+		assertEquals("", body(listed));
+
+		Context any = get("/clients/5", null, "*");
+		cache.cached(handler).handle(any);
+		assertEquals(304, any.status());
+
+		Context changed = get("/clients/5", null, "\"other\"");
+		cache.cached(handler).handle(changed);
+		assertEquals(200, changed.status());
+		assertEquals("\"/clients/5\"", body(changed));
+	}
+
+	@Test
+	public void test_invalidatedWhileBuilding_notStored() throws Exception {
+		Handler writtenMeanwhile = ctx -> {
+			handler.handle(ctx);
+			cache.invalidateClient("5"); // Another request changed client 5 while this one was reading it
+		};
+
+		cache.cached(writtenMeanwhile).handle(get("/clients/5", null));
+		cache.cached(handler).handle(get("/clients/5", null));
+
+		assertEquals(2, handled.get());
+	}
+
+	@Test
+	public void test_invalidateClient_onlyThatClient() throws Exception {
+		String[][] requests = { { "/clients/5", null }, { "/clients/5/accounts", "sort=-id" }, { "/clients/50", null },
+				{ "/clients", "limit=10" } };
+		for (String[] request : requests) {
+			cache.cached(handler).handle(get(request[0], request[1]));
+		}
+
+		cache.invalidateClient("5");
+		for (String[] request : requests) {
+			cache.cached(handler).handle(get(request[0], request[1]));
+		}
+
+		assertEquals(4 + 2, handled.get()); // Only client 5's two responses were built again
+	}
+
+	@Test
+	public void test_invalidateClientList_onlyTheList() throws Exception {
+		cache.cached(handler).handle(get("/clients", null));
+		cache.cached(handler).handle(get("/clients", "limit=10"));
+		cache.cached(handler).handle(get("/clients/5", null));
+
+		cache.invalidateClientList();
+		cache.cached(handler).handle(get("/clients", null));
+		cache.cached(handler).handle(get("/clients", "limit=10"));
+		cache.cached(handler).handle(get("/clients/5", null));
+
+		assertEquals(3 + 2, handled.get());
+	}
+
+	@Test
+	public void test_errorCommittedOrStale_notStored() throws Exception {
+		Handler notFound = ctx -> {
+			handler.handle(ctx);
+			ctx.status(404);
+		};
+		cache.cached(notFound).handle(get("/clients/1", null));
+		cache.cached(notFound).handle(get("/clients/1", null));
+		assertEquals(2, handled.get());
+
+		Context committed = get("/clients/2", null);
+		when(committed.res.isCommitted()).thenReturn(true);
+		cache.cached(handler).handle(committed);
+		cache.cached(handler).handle(get("/clients/2", null));
+		assertEquals(4, handled.get());
+
+		RequestContext request = RequestContext.begin("GET", "/clients/3");
+		RequestContext.end();
+		request.servedStale(30); // Part of it came from a cache because the database was down
+		Context stale = get("/clients/3", null);
+		when(stale.req.getAttribute("requestContext")).thenReturn(request);
+		cache.cached(handler).handle(stale);
+		cache.cached(handler).handle(get("/clients/3", null));
+		assertEquals(6, handled.get());
+	}
+
+	private static Context get(String path, String query) {
+		return get(path, query, null);
+	}
+
+	// A real Context over mocked servlet objects. The response remembers its status, headers and content type
+	private static Context get(String path, String query, String ifNoneMatch) {
+		HttpServletRequest req = mock(HttpServletRequest.class);
+		when(req.getMethod()).thenReturn("GET");
+		when(req.getRequestURI()).thenReturn(path);
+		when(req.getQueryString()).thenReturn(query);
+		when(req.getHeader("If-None-Match")).thenReturn(ifNoneMatch);
+
+		HttpServletResponse res = mock(HttpServletResponse.class);
+		Map<String, String> headers = new HashMap<>();
+		int[] status = { 200 };
+		String[] contentType = { null };
+		doAnswer(invocation -> headers.put(invocation.getArgument(0), invocation.getArgument(1))).when(res)
+				.setHeader(anyString(), anyString());
+		when(res.getHeader(anyString())).thenAnswer(invocation -> headers.get(invocation.getArgument(0)));
+		doAnswer(invocation -> status[0] = invocation.getArgument(0)).when(res).setStatus(anyInt());
+		when(res.getStatus()).thenAnswer(invocation -> status[0]);
+		doAnswer(invocation -> contentType[0] = invocation.getArgument(0)).when(res).setContentType(anyString());
+		when(res.getContentType()).thenAnswer(invocation -> contentType[0]);
+
+		return new Context(req, res, new HashMap<>());
+	}
+
+	private static String body(Context ctx) throws IOException {
+		InputStream result = ctx.resultStream();
+		return result == null ? "" : new String(result.readAllBytes(), StandardCharsets.UTF_8);
+	}
+
+}
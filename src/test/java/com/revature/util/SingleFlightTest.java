@@ -0,0 +1,96 @@
+package com.revature.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.revature.exceptions.ClientNotFoundException;
+
+public class SingleFlightTest {
+
+	private ExecutorService executor;
+	private SingleFlight<Integer, String> flight;
+
+	@Before
+	public void beforeTest() {
+		executor = Executors.newFixedThreadPool(2);
+		flight = new SingleFlight<>("test");
+	}
+
+	@After
+	public void afterTest() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void test_concurrentSameKey_sharesOneCall() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+
+		Future<String> leader = executor.submit(() -> flight.<InterruptedException, RuntimeException>run(1, () -> {
+			calls.incrementAndGet();
+			started.countDown();
+			release.await();
+			return "client 1";
+		}));
+		started.await(5, TimeUnit.SECONDS);
+
+		Future<String> follower = executor.submit(() -> flight.<RuntimeException, RuntimeException>run(1, () -> {
+			calls.incrementAndGet();
+			return "should not run";
+		}));
+		while (flight.getStats().getDeduplicated() == 0) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+
+		assertEquals("client 1", leader.get(5, TimeUnit.SECONDS));
+		assertEquals("client 1", follower.get(5, TimeUnit.SECONDS));
+		assertEquals(1, calls.get());
+		assertEquals(0, flight.getStats().getInFlight());
+	}
+
+	@Test
+	public void test_failedCall_followerGetsSameException() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ClientNotFoundException notFound = new ClientNotFoundException("Couldn't find a client with that id. Id provided: 9");
+
+		Future<String> leader = executor.submit(() -> flight.<ClientNotFoundException, InterruptedException>run(9, () -> {
+			started.countDown();
+			release.await();
+			throw notFound;
+		}));
+		started.await(5, TimeUnit.SECONDS);
+
+		Future<String> follower = executor.submit(() -> flight.<ClientNotFoundException, InterruptedException>run(9, () -> "should not run"));
+		while (flight.getStats().getDeduplicated() == 0) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+
+		for (Future<String> caller : Arrays.asList(leader, follower)) {
+			try {
+				caller.get(5, TimeUnit.SECONDS);
+				fail("ClientNotFoundException was not thrown");
+			} catch (ExecutionException e) {
+				assertSame(notFound, e.getCause());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,275 @@
+package com.revature.util;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import com.revature.dao.AccountFilter;
+import com.revature.dao.AccountRepository;
+import com.revature.exceptions.ServerBusyException;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.javalin.Javalin;
+import jdk.jfr.consumer.RecordingStream;
+
+/*
+ * Not a test (surefire only runs *Test classes), run it by hand, once per thread mode:
+ *
+ *   virtual_threads=false java -cp target/classes:target/test-classes:<dependencies> com.revature.util.ThreadModeBenchmark [concurrency] [requests] [blockMillis] [accounts|export]
+ *   virtual_threads=true  java -cp ... com.revature.util.ThreadModeBenchmark [concurrency] [requests] [blockMillis] [accounts|export]
+ *
+ * Starts Javalin the way Application does for the virtual_threads setting (Jetty's pool, the JdbcExecutor workers)
+ * and sends GET /accounts, concurrency of them at a time. Each one runs AccountRepository.getAccounts on
+ * JdbcExecutor.reads() in the request's unit of work, so it borrows a connection from HikariCP through
+ * ConnectionTracker, StatementCache and QueryMetrics like a real request. With export it's streamed instead, the way
+ * ?stream=true is: AccountRepository.streamAccounts on JdbcExecutor.exports(), writing each row to the response as it
+ * comes (keep concurrency near jdbc_export_threads + jdbc_export_queue_size, past that it's 503s).
+ *
+ * With db_url (and db_username, db_password) set, that's the real MariaDB driver against a real database. Otherwise
+ * a stand-in database behind HikariCP blocks in executeQuery for blockMillis, holding its connection the whole time.
+ *
+ * Prints the throughput, the requests turned away with a 503 (JdbcExecutor queue full), the most requests waiting
+ * on HikariCP for a connection at once, platform threads at peak, resident memory growth, and on Java 21 how often a
+ * virtual thread blocked while pinned to its carrier (jdk.VirtualThreadPinned, any duration).
+ */
+public class ThreadModeBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+		long blockMillis = args.length > 2 ? Long.parseLong(args[2]) : 20;
+		boolean export = args.length > 3 && args[3].equals("export");
+
+		boolean realDatabase = System.getenv("db_url") != null;
+		if (realDatabase) {
+			ConnectionUtil.configure();
+		} else {
+			HikariConfig config = new HikariConfig();
+			config.setPoolName("benchmark-pool");
+			config.setDataSource(standInDatabase(blockMillis));
+			config.setMaximumPoolSize(ConnectionUtil.getMaximumPoolSize());
+			ConnectionUtil.start(config);
+		}
+
+		String mode = Threads.useVirtualThreads() ? "virtual threads" : "platform threads";
+		System.out.println(mode + (export ? ", export" : "") + ", " + concurrency + " concurrent requests, " + requests + " in total, "
+				+ (realDatabase ? "MariaDB at " + System.getenv("db_url") : "stand-in database blocking " + blockMillis + "ms")
+				+ ", " + ConnectionUtil.getMaximumPoolSize() + " connections, " + JdbcExecutor.reads().getStats().getThreads()
+				+ " read threads, Java " + Runtime.version());
+
+		AccountRepository repository = new AccountRepository();
+		Javalin app = Javalin.create(config -> {
+			config.showJavalinBanner = false;
+			config.server(() -> new Server(Threads.useVirtualThreads() ? new VirtualThreadPool("jetty")
+					: new QueuedThreadPool(250, 8, 60000)));
+		});
+		app.before(RequestScope::begin);
+		app.after(ctx -> {
+			try {
+				RequestScope.finish(ctx);
+			} finally {
+				RequestScope.end(ctx);
+			}
+		});
+		app.exception(ServerBusyException.class, (e, ctx) -> ctx.status(503));
+		if (export) {
+			app.get("/accounts", ctx -> JdbcExecutor.exports().stream(ctx, () -> {
+				JsonArrayStream stream = new JsonArrayStream(ctx);
+				repository.streamAccounts(new AccountFilter(1), stream::write);
+				stream.finish();
+				return null;
+			}));
+		} else {
+			app.get("/accounts", ctx -> JdbcExecutor.reads().respond(ctx, () -> repository.getAccounts(new AccountFilter(1))));
+		}
+		app.start(0);
+
+		AtomicLong pinned = new AtomicLong();
+		RecordingStream pinning = new RecordingStream();
+		pinning.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO); // Not there before Java 21, ignored
+		pinning.onEvent("jdk.VirtualThreadPinned", event -> pinned.incrementAndGet());
+		pinning.startAsync();
+
+		ExecutorService clientThreads = Executors.newFixedThreadPool(4);
+		HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clientThreads).build();
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + app.port() + "/accounts")).build();
+
+		try {
+			send(client, request, Math.min(concurrency, 50), 500); // Warm up
+			pinned.set(0);
+
+			System.gc();
+			long rssBefore = rss();
+			ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+			threads.resetPeakThreadCount();
+
+			HikariDataSource pool = (HikariDataSource) ConnectionUtil.getDataSource();
+			AtomicLong peakRss = new AtomicLong(rssBefore);
+			AtomicInteger peakAwaitingConnection = new AtomicInteger();
+			Thread sampler = new Thread(() -> {
+				while (!Thread.currentThread().isInterrupted()) {
+					peakRss.accumulateAndGet(rss(), Math::max);
+					peakAwaitingConnection.accumulateAndGet(pool.getHikariPoolMXBean().getThreadsAwaitingConnection(), Math::max);
+					try {
+						Thread.sleep(20);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			});
+			sampler.start();
+
+			long start = System.nanoTime();
+			int[] failed = send(client, request, concurrency, requests);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			sampler.interrupt();
+			sampler.join();
+
+			long rssGrowth = Math.max(0, peakRss.get() - rssBefore);
+			System.out.printf("%s: %.0f requests/s, %d turned away (503), %d other failures, at most %d waiting for a "
+					+ "connection, %d platform threads at peak, %.1f MB more resident memory, %d pinned virtual thread "
+					+ "events%n", mode, requests / seconds, failed[0], failed[1], peakAwaitingConnection.get(),
+					threads.getPeakThreadCount(), rssGrowth / 1024.0 / 1024.0, pinned.get());
+		} finally {
+			pinning.close();
+			app.stop();
+			clientThreads.shutdownNow();
+			ConnectionUtil.shutdown();
+		}
+		System.exit(0); // The JdbcExecutor workers are daemons, but not on every JDK's virtual thread scheduler
+	}
+
+	// Sends requests with at most concurrency of them outstanding. Returns how many got a 503 and how many failed otherwise
+	private static int[] send(HttpClient client, HttpRequest request, int concurrency, int requests) throws InterruptedException {
+		Semaphore outstanding = new Semaphore(concurrency);
+		CountDownLatch done = new CountDownLatch(requests);
+		AtomicInteger busy = new AtomicInteger();
+		AtomicInteger failed = new AtomicInteger();
+
+		for (int i = 0; i < requests; i++) {
+			outstanding.acquire();
+			client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, e) -> {
+				if (e == null && response.statusCode() == 503) {
+					busy.incrementAndGet();
+				} else if (e != null || response.statusCode() != 200) {
+					failed.incrementAndGet();
+				}
+				outstanding.release();
+				done.countDown();
+			});
+		}
+
+		done.await();
+		return new int[] { busy.get(), failed.get() };
+	}
+
+	/*
+	 * A DataSource whose queries take blockMillis and return two accounts. Everything else answers with the
+	 * defaults HikariCP is happy with
+	 */
+	private static DataSource standInDatabase(long blockMillis) {
+		return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[] { DataSource.class },
+				(proxy, method, args) -> method.getName().equals("getConnection") ? connection(blockMillis)
+						: defaultFor(method.getReturnType()));
+	}
+
+	private static Connection connection(long blockMillis) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "prepareStatement":
+						return statement(blockMillis);
+					case "isValid":
+					case "isWrapperFor":
+						return true;
+					case "unwrap":
+						return proxy;
+					case "getTransactionIsolation":
+						return Connection.TRANSACTION_REPEATABLE_READ;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						return defaultFor(method.getReturnType());
+					}
+				});
+	}
+
+	private static PreparedStatement statement(long blockMillis) {
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+					if (method.getName().equals("executeQuery")) {
+						Thread.sleep(blockMillis); // The query running on the server, the connection stays borrowed
+						return rows(2);
+					}
+					return defaultFor(method.getReturnType());
+				});
+	}
+
+	private static ResultSet rows(int count) {
+		AtomicInteger row = new AtomicInteger();
+		return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "next":
+						return row.incrementAndGet() <= count;
+					case "getInt":
+						return row.get();
+					case "getString":
+						return "Checking";
+					default:
+						return defaultFor(method.getReturnType());
+					}
+				});
+	}
+
+	private static Object defaultFor(Class<?> type) {
+		if (type == boolean.class) {
+			return false;
+		} else if (type == int.class) {
+			return 0;
+		} else if (type == long.class) {
+			return 0L;
+		}
+		return null;
+	}
+
+	// Resident set size of this process in bytes (Linux only, 0 anywhere else)
+	private static long rss() {
+		try {
+			for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+				if (line.startsWith("VmRSS:")) {
+					return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+				}
+			}
+		} catch (IOException e) {
+			// Not on Linux
+		}
+		return 0;
+	}
+
+}
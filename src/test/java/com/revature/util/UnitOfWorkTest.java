@@ -0,0 +1,150 @@
+package com.revature.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+
+public class UnitOfWorkTest {
+
+	private Connection mockConnection;
+
+	@Before
+	public void beforeTest() {
+		mockConnection = mock(Connection.class);
+	}
+
+	@Test
+	public void test_joinedUnitOfWork_sharesConnection_outerCommits() throws SQLException {
+
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+
+			try (UnitOfWork outer = UnitOfWork.begin()) {
+				try (UnitOfWork inner = UnitOfWork.begin()) {
+					assertSame(mockConnection, UnitOfWork.currentConnection());
+					inner.commit();
+				}
+				verify(mockConnection, never()).commit(); // Only the outer unit of work commits
+
+				outer.commit();
+			}
+
+			verify(mockConnection, times(1)).setAutoCommit(false);
+			verify(mockConnection, times(1)).commit();
+			verify(mockConnection, times(1)).close();
+			mockedConnectionUtil.verify(ConnectionUtil::getConnection, times(1));
+		}
+
+	}
+
+	@Test
+	public void test_failedInnerUnitOfWork_rollsBackOuter() throws SQLException {
+
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+
+			try (UnitOfWork outer = UnitOfWork.begin()) {
+				try (UnitOfWork inner = UnitOfWork.begin()) {
+					assertSame(mockConnection, inner.getConnection());
+					// inner never commits, like a service that threw part way through
+				}
+
+				try {
+					outer.commit();
+					fail("SQLException was not thrown");
+				} catch (SQLException e) {
+					verify(mockConnection, never()).commit();
+				}
+			}
+
+			verify(mockConnection, times(1)).rollback();
+			verify(mockConnection, times(1)).close();
+		}
+
+	}
+
+	@Test
+	public void test_afterCommit_runsOnlyOnceOuterCommits() throws SQLException {
+
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+
+			List<String> ran = new ArrayList<>();
+			try (UnitOfWork outer = UnitOfWork.begin()) {
+				try (UnitOfWork inner = UnitOfWork.begin()) {
+					UnitOfWork.afterCommit(() -> ran.add("published"));
+					assertTrue(UnitOfWork.hasPendingWrites());
+					inner.commit();
+				}
+				assertEquals(0, ran.size());
+
+				outer.commit();
+				assertEquals(1, ran.size());
+				assertFalse(UnitOfWork.hasPendingWrites());
+			}
+		}
+
+	}
+
+	@Test
+	public void test_afterCommit_droppedOnRollback() throws SQLException {
+
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+
+			List<String> ran = new ArrayList<>();
+			try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+				UnitOfWork.afterCommit(() -> ran.add("published"));
+				unitOfWork.rollback(); // like a service that threw part way through
+			}
+
+			assertEquals(0, ran.size());
+			assertFalse(UnitOfWork.hasPendingWrites());
+		}
+
+	}
+
+	@Test
+	public void test_noRepositoryCalls_neverBorrowsConnection() throws SQLException {
+
+		try(MockedStatic<ConnectionUtil> mockedConnectionUtil = mockStatic(ConnectionUtil.class)) {
+			mockedConnectionUtil.when(ConnectionUtil::getConnection).thenReturn(mockConnection);
+
+			try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+				unitOfWork.commit();
+			}
+
+			mockedConnectionUtil.verify(ConnectionUtil::getConnection, never());
+		}
+
+	}
+
+	@Test
+	public void test_noActiveUnitOfWork_currentConnection() {
+
+		try {
+			UnitOfWork.currentConnection();
+			fail("SQLException was not thrown");
+		} catch (SQLException e) {
+			// expected
+		}
+
+	}
+
+}